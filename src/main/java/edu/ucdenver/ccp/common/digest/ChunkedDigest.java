@@ -0,0 +1,388 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.concurrency.ConcurrencyUtil;
+
+/**
+ * A chunked (Merkle tree) digest of a file. The file is divided into fixed-size blocks that are
+ * digested independently, and therefore concurrently. The block digests form the leaves of a binary
+ * hash tree. As in RFC 6962, each leaf is the digest of the byte 0x00 followed by a block digest and
+ * each parent node is the digest of the byte 0x01 followed by its two children, so a leaf can never
+ * be mistaken for an interior node. An unpaired node at the end of a level is promoted to the next
+ * level unchanged. The root digest is the digest of the byte 0x02, the block size, the file length
+ * and the top of the tree, so it summarizes the whole file together with the way it was divided.
+ * <p>
+ * Verifying a file against a stored chunked digest identifies exactly which blocks differ, so a
+ * partially corrupted or incomplete download can be repaired block by block.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ChunkedDigest {
+
+	/**
+	 * The default block size, 64 MB
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+	private static final byte LEAF_PREFIX = 0x00;
+	private static final byte NODE_PREFIX = 0x01;
+	private static final byte ROOT_PREFIX = 0x02;
+
+	private static final String FORMAT_HEADER = "# chunked digest v2";
+	private static final String ALGORITHM_KEY = "algorithm";
+	private static final String BLOCK_SIZE_KEY = "blockSize";
+	private static final String LENGTH_KEY = "length";
+	private static final String ROOT_KEY = "root";
+
+	private final DigestAlgorithm algorithm;
+	private final int blockSize;
+	private final long length;
+	private final List<byte[]> blockDigests;
+	private final byte[] rootDigest;
+
+	private ChunkedDigest(DigestAlgorithm algorithm, int blockSize, long length, List<byte[]> blockDigests) {
+		this.algorithm = algorithm;
+		this.blockSize = blockSize;
+		this.length = length;
+		this.blockDigests = blockDigests;
+		this.rootDigest = computeRootDigest(algorithm, blockSize, length, blockDigests);
+	}
+
+	/**
+	 * Computes the chunked digest of the input file using a dedicated pool with one thread per
+	 * available processor. The common <code>ForkJoinPool</code> is deliberately not used, as
+	 * blocking reads would stall every parallel stream in the JVM.
+	 * 
+	 * @param file
+	 * @param algorithm
+	 * @param blockSize
+	 * @return
+	 * @throws IOException
+	 */
+	public static ChunkedDigest compute(File file, DigestAlgorithm algorithm, int blockSize) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			return compute(file, algorithm, blockSize, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Computes the chunked digest of the input file, digesting blocks concurrently using the input
+	 * executor
+	 * 
+	 * @param file
+	 * @param algorithm
+	 * @param blockSize
+	 *            the number of bytes in each block (the last block may be shorter)
+	 * @param executor
+	 * @return
+	 * @throws IOException
+	 */
+	public static ChunkedDigest compute(File file, final DigestAlgorithm algorithm, final int blockSize,
+			ExecutorService executor) throws IOException {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException(String.format("The block size must be greater than zero: %d",
+					blockSize));
+		}
+		FileUtil.validateFile(file);
+		final long length = file.length();
+		/* an empty file consists of a single empty block */
+		long blockCount = Math.max(1, (length + blockSize - 1) / blockSize);
+		if (blockCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(String.format(
+					"The block size (%d) is too small for a file of %d bytes.", blockSize, length));
+		}
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+			for (int i = 0; i < blockCount; i++) {
+				final long start = (long) i * blockSize;
+				final long end = Math.min(length, start + blockSize);
+				tasks.add(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws IOException {
+						return digestBlock(channel, algorithm, start, end);
+					}
+				});
+			}
+			List<byte[]> blockDigests = ConcurrencyUtil.invokeAll(executor, tasks);
+			return new ChunkedDigest(algorithm, blockSize, length, Collections.unmodifiableList(blockDigests));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Digests the bytes of the input channel in the range [start, end). Positional reads do not
+	 * change the position of the channel, so blocks can be read concurrently from the same channel.
+	 */
+	private static byte[] digestBlock(FileChannel channel, DigestAlgorithm algorithm, long start, long end)
+			throws IOException {
+		MessageDigest digest = algorithm.createMessageDigest();
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_SIZE, Math.max(1, end - start)));
+		long position = start;
+		while (position < end) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - position));
+			int byteCount = channel.read(buffer, position);
+			if (byteCount < 0) {
+				throw new EOFException(String.format("File ended at byte %d while reading block ending at byte %d.",
+						position, end));
+			}
+			digest.update(buffer.array(), 0, byteCount);
+			position += byteCount;
+		}
+		return digest.digest();
+	}
+
+	private static byte[] computeRootDigest(DigestAlgorithm algorithm, int blockSize, long length,
+			List<byte[]> blockDigests) {
+		MessageDigest digest = algorithm.createMessageDigest();
+		List<byte[]> level = new ArrayList<byte[]>(blockDigests.size());
+		for (byte[] blockDigest : blockDigests) {
+			digest.update(LEAF_PREFIX);
+			digest.update(blockDigest);
+			level.add(digest.digest());
+		}
+		while (level.size() > 1) {
+			List<byte[]> nextLevel = new ArrayList<byte[]>((level.size() + 1) / 2);
+			for (int i = 0; i < level.size(); i += 2) {
+				if (i + 1 == level.size()) {
+					nextLevel.add(level.get(i));
+				} else {
+					digest.update(NODE_PREFIX);
+					digest.update(level.get(i));
+					digest.update(level.get(i + 1));
+					nextLevel.add(digest.digest());
+				}
+			}
+			level = nextLevel;
+		}
+		digest.update(ROOT_PREFIX);
+		digest.update(ByteBuffer.allocate(12).putInt(blockSize).putLong(length).array());
+		digest.update(level.get(0));
+		return digest.digest();
+	}
+
+	/**
+	 * @return the algorithm used to digest the blocks
+	 */
+	public DigestAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * @return the number of bytes in each block (the last block may be shorter)
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * @return the length of the file that was digested
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return blockDigests.size();
+	}
+
+	/**
+	 * @param blockIndex
+	 * @return the lower-case hex representation of the digest of the specified block
+	 */
+	public String getBlockDigest(int blockIndex) {
+		return Hex.encodeHexString(blockDigests.get(blockIndex));
+	}
+
+	/**
+	 * @return the lower-case hex representation of the root of the hash tree
+	 */
+	public String getRootDigest() {
+		return Hex.encodeHexString(rootDigest);
+	}
+
+	/**
+	 * Compares the blocks of this (expected) digest against those of the input digest
+	 * 
+	 * @param actual
+	 * @return the indexes of the blocks that differ, including blocks that are present in only one
+	 *         of the two digests, in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the two digests do not use the same algorithm and block size
+	 */
+	public List<Integer> getMismatchedBlocks(ChunkedDigest actual) {
+		if (algorithm != actual.algorithm || blockSize != actual.blockSize) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot compare chunked digests with different algorithms or block sizes: %s/%d vs %s/%d",
+					algorithm, blockSize, actual.algorithm, actual.blockSize));
+		}
+		List<Integer> mismatchedBlocks = new ArrayList<Integer>();
+		int blockCount = Math.max(getBlockCount(), actual.getBlockCount());
+		for (int i = 0; i < blockCount; i++) {
+			if (i >= getBlockCount() || i >= actual.getBlockCount()
+					|| !MessageDigest.isEqual(blockDigests.get(i), actual.blockDigests.get(i))) {
+				mismatchedBlocks.add(i);
+			}
+		}
+		return mismatchedBlocks;
+	}
+
+	/**
+	 * Computes the chunked digest of the input file using the algorithm and block size of this
+	 * digest and compares the two. Blocks are digested using a dedicated pool, as in
+	 * {@link #compute(File, DigestAlgorithm, int)}.
+	 * 
+	 * @param file
+	 * @return the indexes of the blocks of the file that do not match this digest; the list is
+	 *         empty if the file matches
+	 * @throws IOException
+	 */
+	public List<Integer> verify(File file) throws IOException {
+		return getMismatchedBlocks(compute(file, algorithm, blockSize));
+	}
+
+	/**
+	 * @see #verify(File)
+	 * @param file
+	 * @param executor
+	 * @return
+	 * @throws IOException
+	 */
+	public List<Integer> verify(File file, ExecutorService executor) throws IOException {
+		return getMismatchedBlocks(compute(file, algorithm, blockSize, executor));
+	}
+
+	/**
+	 * Writes this digest to the input file. The file is plain text: a header line, one
+	 * <code>key value</code> line each for the algorithm, block size, file length and root digest,
+	 * followed by the block digests, one per line.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		List<String> lines = new ArrayList<String>(getBlockCount() + 5);
+		lines.add(FORMAT_HEADER);
+		lines.add(ALGORITHM_KEY + " " + algorithm.name());
+		lines.add(BLOCK_SIZE_KEY + " " + blockSize);
+		lines.add(LENGTH_KEY + " " + length);
+		lines.add(ROOT_KEY + " " + getRootDigest());
+		for (byte[] blockDigest : blockDigests) {
+			lines.add(Hex.encodeHexString(blockDigest));
+		}
+		FileWriterUtil.printLines(lines, file, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+	}
+
+	/**
+	 * Reads a digest written by {@link #write(File)}
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 *             if the file is malformed, or if the stored root digest does not match the stored
+	 *             block digests
+	 */
+	public static ChunkedDigest read(File file) throws IOException {
+		List<String> lines = FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8);
+		if (lines.size() < 6 || !lines.get(0).equals(FORMAT_HEADER)) {
+			throw new IOException("Unrecognized chunked digest file format: " + file.getAbsolutePath());
+		}
+		try {
+			DigestAlgorithm algorithm = DigestAlgorithm.valueOf(getValue(lines.get(1), ALGORITHM_KEY, file));
+			int blockSize = Integer.parseInt(getValue(lines.get(2), BLOCK_SIZE_KEY, file));
+			long length = Long.parseLong(getValue(lines.get(3), LENGTH_KEY, file));
+			String rootDigest = getValue(lines.get(4), ROOT_KEY, file);
+			List<byte[]> blockDigests = new ArrayList<byte[]>(lines.size() - 5);
+			for (String line : lines.subList(5, lines.size())) {
+				blockDigests.add(Hex.decodeHex(line.trim().toCharArray()));
+			}
+			ChunkedDigest digest = new ChunkedDigest(algorithm, blockSize, length,
+					Collections.unmodifiableList(blockDigests));
+			if (!digest.getRootDigest().equals(rootDigest)) {
+				throw new IOException("Root digest does not match the block digests in chunked digest file: "
+						+ file.getAbsolutePath());
+			}
+			return digest;
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Malformed chunked digest file: " + file.getAbsolutePath(), e);
+		} catch (DecoderException e) {
+			throw new IOException("Malformed block digest in chunked digest file: " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private static String getValue(String line, String key, File file) throws IOException {
+		if (!line.startsWith(key + " ")) {
+			throw new IOException(String.format("Expected '%s' line in chunked digest file %s but found: %s", key,
+					file.getAbsolutePath(), line));
+		}
+		return line.substring(key.length() + 1).trim();
+	}
+
+}
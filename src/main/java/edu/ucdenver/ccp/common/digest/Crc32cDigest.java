@@ -0,0 +1,137 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the CRC-32C (Castagnoli) checksum of
+ * its input. The 4-byte digest is the checksum in big-endian byte order, so
+ * its hex representation matches the conventional 8 digit CRC-32C value.
+ * <p>
+ * The checksum is computed eight bytes at a time using the slicing-by-8
+ * table method.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class Crc32cDigest extends MessageDigest implements Cloneable {
+
+	/**
+	 * The reversed Castagnoli polynomial
+	 */
+	private static final int POLYNOMIAL = 0x82F63B78;
+
+	/**
+	 * Eight consecutive 256 entry lookup tables. Table k gives the CRC of a
+	 * byte followed by k zero bytes.
+	 */
+	private static final int[] TABLES = createTables();
+
+	private int crc = 0xFFFFFFFF;
+
+	public Crc32cDigest() {
+		super(DigestAlgorithm.CRC32C.getAlgorithmName());
+	}
+
+	private static int[] createTables() {
+		int[] tables = new int[8 * 256];
+		for (int n = 0; n < 256; n++) {
+			int c = n;
+			for (int k = 0; k < 8; k++) {
+				c = ((c & 1) != 0) ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+			}
+			tables[n] = c;
+		}
+		for (int n = 0; n < 256; n++) {
+			int c = tables[n];
+			for (int k = 1; k < 8; k++) {
+				c = (c >>> 8) ^ tables[c & 0xFF];
+				tables[k * 256 + n] = c;
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * @return the CRC-32C checksum of the input consumed since the last reset
+	 */
+	public long getValue() {
+		return (~crc) & 0xFFFFFFFFL;
+	}
+
+	@Override
+	protected void engineUpdate(byte input) {
+		crc = (crc >>> 8) ^ TABLES[(crc ^ input) & 0xFF];
+	}
+
+	@Override
+	protected void engineUpdate(byte[] input, int offset, int len) {
+		int c = crc;
+		int i = offset;
+		int end = offset + len;
+		for (; i + 8 <= end; i += 8) {
+			int one = c ^ ((input[i] & 0xFF) | (input[i + 1] & 0xFF) << 8 | (input[i + 2] & 0xFF) << 16
+					| (input[i + 3] & 0xFF) << 24);
+			int two = (input[i + 4] & 0xFF) | (input[i + 5] & 0xFF) << 8 | (input[i + 6] & 0xFF) << 16
+					| (input[i + 7] & 0xFF) << 24;
+			c = TABLES[7 * 256 + (one & 0xFF)] ^ TABLES[6 * 256 + ((one >>> 8) & 0xFF)]
+					^ TABLES[5 * 256 + ((one >>> 16) & 0xFF)] ^ TABLES[4 * 256 + (one >>> 24)]
+					^ TABLES[3 * 256 + (two & 0xFF)] ^ TABLES[2 * 256 + ((two >>> 8) & 0xFF)]
+					^ TABLES[256 + ((two >>> 16) & 0xFF)] ^ TABLES[two >>> 24];
+		}
+		for (; i < end; i++) {
+			c = (c >>> 8) ^ TABLES[(c ^ input[i]) & 0xFF];
+		}
+		crc = c;
+	}
+
+	@Override
+	protected byte[] engineDigest() {
+		int value = ~crc;
+		engineReset();
+		return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+	}
+
+	@Override
+	protected int engineGetDigestLength() {
+		return 4;
+	}
+
+	@Override
+	protected void engineReset() {
+		crc = 0xFFFFFFFF;
+	}
+
+}
@@ -0,0 +1,280 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.FileUtil;
+
+/**
+ * A persistent cache of file digests keyed by the absolute path, size and last modification time
+ * of each file. A digest is only computed if the cache holds no digest for the requested
+ * algorithm, or if the file has changed size or modification time since the digest was cached, so
+ * unchanged files are never read twice. Missing digests for a file are computed together in a
+ * single read (see {@link DigestUtil#computeDigests(File, DigestAlgorithm...)}).
+ * <p>
+ * Modification times are compared at the full resolution reported by the file system. As a file
+ * can be rewritten without changing its modification time if both writes fall within the
+ * timestamp granularity of the file system, digests of files modified within
+ * {@link FileUtil#TIMESTAMP_GRANULARITY_NANOS} of the time they are read are returned but not
+ * cached.
+ * <p>
+ * The cache is safe for use by multiple threads. Changes are only written to the cache file when
+ * {@link #save()} is called; the cache file is replaced atomically so that a concurrent or
+ * interrupted save never leaves a partially written cache file behind. A cache file that cannot
+ * be read is ignored and replaced on the next save.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DigestCache {
+
+	private static final Logger logger = Logger.getLogger(DigestCache.class);
+
+	private static final int MAGIC_NUMBER = 0x44474343;
+	private static final int FORMAT_VERSION = 2;
+
+	private final File cacheFile;
+
+	/**
+	 * Maps the absolute path of each file to its cached digests
+	 */
+	private final Map<String, Entry> pathToEntryMap = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Loads the cache stored in the input file, if it exists
+	 * 
+	 * @param cacheFile
+	 *            the file in which the cache is stored
+	 */
+	public DigestCache(File cacheFile) {
+		this.cacheFile = cacheFile.getAbsoluteFile();
+		if (this.cacheFile.exists()) {
+			try {
+				read();
+			} catch (IOException e) {
+				pathToEntryMap.clear();
+				logger.warn("Ignoring unreadable digest cache file: " + this.cacheFile.getPath(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return the file in which the cache is stored
+	 */
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * @return the number of files with cached digests
+	 */
+	public int size() {
+		return pathToEntryMap.size();
+	}
+
+	/**
+	 * Returns the requested digests of the input file, computing (and caching) only those that are
+	 * not already cached for the current version of the file
+	 * 
+	 * @param file
+	 * @param algorithms
+	 * @return a mapping from each requested algorithm to the lower-case hex representation of the
+	 *         digest of the file
+	 * @throws IOException
+	 */
+	public Map<DigestAlgorithm, String> getDigests(File file, DigestAlgorithm... algorithms) throws IOException {
+		if (algorithms.length == 0) {
+			throw new IllegalArgumentException("At least one digest algorithm must be specified.");
+		}
+		FileUtil.validateFile(file);
+		File absoluteFile = file.getAbsoluteFile();
+		/* the size and modification time are recorded before the file is read */
+		long readTime = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		long length = absoluteFile.length();
+		long lastModified = FileUtil.getLastModifiedNanos(absoluteFile);
+		Entry entry = pathToEntryMap.get(absoluteFile.getPath());
+		if (entry == null || entry.length != length || entry.lastModified != lastModified) {
+			entry = new Entry(length, lastModified, new EnumMap<DigestAlgorithm, String>(DigestAlgorithm.class));
+		}
+
+		EnumSet<DigestAlgorithm> missingAlgorithms = EnumSet.noneOf(DigestAlgorithm.class);
+		for (DigestAlgorithm algorithm : algorithms) {
+			if (!entry.digests.containsKey(algorithm)) {
+				missingAlgorithms.add(algorithm);
+			}
+		}
+		if (!missingAlgorithms.isEmpty()) {
+			Map<DigestAlgorithm, String> digests = new EnumMap<DigestAlgorithm, String>(DigestAlgorithm.class);
+			digests.putAll(entry.digests);
+			digests.putAll(DigestUtil.computeDigests(absoluteFile,
+					missingAlgorithms.toArray(new DigestAlgorithm[missingAlgorithms.size()])));
+			entry = new Entry(length, lastModified, digests);
+			/*
+			 * a file modified this recently may be modified again without a change in its
+			 * modification time, so its digests are not cached
+			 */
+			if (FileUtil.isModificationSettled(lastModified, readTime)) {
+				pathToEntryMap.put(absoluteFile.getPath(), entry);
+			} else {
+				pathToEntryMap.remove(absoluteFile.getPath());
+			}
+		}
+
+		Map<DigestAlgorithm, String> requestedDigests = new EnumMap<DigestAlgorithm, String>(DigestAlgorithm.class);
+		for (DigestAlgorithm algorithm : algorithms) {
+			requestedDigests.put(algorithm, entry.digests.get(algorithm));
+		}
+		return requestedDigests;
+	}
+
+	/**
+	 * @param file
+	 * @param algorithm
+	 * @return the lower-case hex representation of the digest of the input file
+	 * @throws IOException
+	 */
+	public String getDigest(File file, DigestAlgorithm algorithm) throws IOException {
+		return getDigests(file, algorithm).get(algorithm);
+	}
+
+	/**
+	 * Writes the cache to the cache file, first removing the entries of files that no longer
+	 * exist. The cache is written to a uniquely named temporary file that then atomically replaces
+	 * the cache file.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		for (Iterator<String> pathIter = pathToEntryMap.keySet().iterator(); pathIter.hasNext();) {
+			if (!new File(pathIter.next()).exists()) {
+				pathIter.remove();
+			}
+		}
+		File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+		boolean saved = false;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			/* take a snapshot so that the count matches the entries written */
+			Map<String, Entry> entries = new HashMap<String, Entry>(pathToEntryMap);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				out.writeUTF(mapEntry.getKey());
+				out.writeLong(entry.length);
+				out.writeLong(entry.lastModified);
+				out.writeInt(entry.digests.size());
+				for (Map.Entry<DigestAlgorithm, String> digest : entry.digests.entrySet()) {
+					out.writeUTF(digest.getKey().name());
+					out.writeUTF(digest.getValue());
+				}
+			}
+			out.close();
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			saved = true;
+		} finally {
+			if (!saved) {
+				out.close();
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+	}
+
+	private void read() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+		try {
+			if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unrecognized digest cache file format: " + cacheFile.getPath());
+			}
+			int entryCount = in.readInt();
+			for (int i = 0; i < entryCount; i++) {
+				String path = in.readUTF();
+				long length = in.readLong();
+				long lastModified = in.readLong();
+				int digestCount = in.readInt();
+				Map<DigestAlgorithm, String> digests = new EnumMap<DigestAlgorithm, String>(DigestAlgorithm.class);
+				for (int j = 0; j < digestCount; j++) {
+					String algorithmName = in.readUTF();
+					String digest = in.readUTF();
+					try {
+						digests.put(DigestAlgorithm.valueOf(algorithmName), digest);
+					} catch (IllegalArgumentException e) {
+						throw new IOException("Unknown digest algorithm in cache file: " + algorithmName, e);
+					}
+				}
+				pathToEntryMap.put(path, new Entry(length, lastModified, digests));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The digests cached for a single version of a file
+	 */
+	private static class Entry {
+		private final long length;
+		private final long lastModified;
+		private final Map<DigestAlgorithm, String> digests;
+
+		private Entry(long length, long lastModified, Map<DigestAlgorithm, String> digests) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.digests = Collections.unmodifiableMap(digests);
+		}
+	}
+
+}
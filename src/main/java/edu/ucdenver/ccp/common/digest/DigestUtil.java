@@ -36,11 +36,31 @@ package edu.ucdenver.ccp.common.digest;
  * #L%
  */
 
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.concurrency.ConcurrencyUtil;
 
 /**
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
@@ -48,6 +68,11 @@ import org.apache.commons.codec.binary.Base64;
  */
 public class DigestUtil {
 
+	/**
+	 * The size of the buffer used to read files when computing file digests
+	 */
+	private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
 	/**
 	 * @param fieldValues
 	 * @return
@@ -65,4 +90,145 @@ public class DigestUtil {
 		}
 	}
 	
+
+	/**
+	 * Computes the requested digests of the input file while reading the file
+	 * only once
+	 * 
+	 * @param file
+	 * @param algorithms
+	 * @return a mapping from each requested algorithm to the lower-case hex
+	 *         representation of the digest of the file
+	 * @throws IOException
+	 */
+	public static Map<DigestAlgorithm, String> computeDigests(File file, DigestAlgorithm... algorithms)
+			throws IOException {
+		if (algorithms.length == 0) {
+			throw new IllegalArgumentException("At least one digest algorithm must be specified.");
+		}
+		FileUtil.validateFile(file);
+		EnumSet<DigestAlgorithm> algorithmSet = EnumSet.noneOf(DigestAlgorithm.class);
+		Collections.addAll(algorithmSet, algorithms);
+		Map<DigestAlgorithm, MessageDigest> digests = new EnumMap<DigestAlgorithm, MessageDigest>(
+				DigestAlgorithm.class);
+		for (DigestAlgorithm algorithm : algorithmSet) {
+			digests.put(algorithm, algorithm.createMessageDigest());
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_BUFFER_SIZE);
+		byte[] bytes = new byte[FILE_BUFFER_SIZE];
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				int length = buffer.remaining();
+				/*
+				 * the bytes are copied out of the direct buffer once so that
+				 * each digest consumes them from an array rather than making
+				 * its own copy
+				 */
+				buffer.get(bytes, 0, length);
+				buffer.clear();
+				for (MessageDigest digest : digests.values()) {
+					digest.update(bytes, 0, length);
+				}
+			}
+		} finally {
+			channel.close();
+		}
+
+		Map<DigestAlgorithm, String> algorithmToDigestMap = new EnumMap<DigestAlgorithm, String>(
+				DigestAlgorithm.class);
+		for (Map.Entry<DigestAlgorithm, MessageDigest> entry : digests.entrySet()) {
+			algorithmToDigestMap.put(entry.getKey(), Hex.encodeHexString(entry.getValue().digest()));
+		}
+		return algorithmToDigestMap;
+	}
+
+	/**
+	 * @param file
+	 * @param algorithm
+	 * @return the lower-case hex representation of the digest of the input
+	 *         file
+	 * @throws IOException
+	 */
+	public static String computeDigest(File file, DigestAlgorithm algorithm) throws IOException {
+		return computeDigests(file, algorithm).get(algorithm);
+	}
+
+	/**
+	 * Computes the requested digests of each file returned by
+	 * {@link FileUtil#getFileIterator(File, boolean)} using a fixed pool of the specified number
+	 * of threads
+	 * 
+	 * @see #computeDigests(File, boolean, DigestCache, ExecutorService, DigestAlgorithm...)
+	 * @param threadCount
+	 *            the number of files digested concurrently
+	 */
+	public static Map<File, Map<DigestAlgorithm, String>> computeDigests(File fileOrDirectory, boolean recurse,
+			DigestCache cache, int threadCount, DigestAlgorithm... algorithms) throws IOException {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(String.format("The thread count must be greater than zero: %d",
+					threadCount));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			return computeDigests(fileOrDirectory, recurse, cache, executor, algorithms);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Computes the requested digests of each file returned by
+	 * {@link FileUtil#getFileIterator(File, boolean)}, digesting files concurrently using the input
+	 * executor. If a cache is specified, digests of files that have not changed since they were
+	 * cached are not recomputed, and the cache is saved once all files have been digested. The
+	 * cache file itself is never digested.
+	 * 
+	 * @param fileOrDirectory
+	 * @param recurse
+	 * @param cache
+	 *            the cache to consult and update; may be null
+	 * @param executor
+	 * @param algorithms
+	 * @return a mapping from each file to its digests, in the order the files were returned by the
+	 *         file iterator
+	 * @throws IOException
+	 */
+	public static Map<File, Map<DigestAlgorithm, String>> computeDigests(File fileOrDirectory, boolean recurse,
+			final DigestCache cache, ExecutorService executor, final DigestAlgorithm... algorithms)
+			throws IOException {
+		if (algorithms.length == 0) {
+			throw new IllegalArgumentException("At least one digest algorithm must be specified.");
+		}
+		List<File> files = new ArrayList<File>();
+		List<Callable<Map<DigestAlgorithm, String>>> tasks = new ArrayList<Callable<Map<DigestAlgorithm, String>>>();
+		for (Iterator<File> fileIter = FileUtil.getFileIterator(fileOrDirectory, recurse); fileIter.hasNext();) {
+			final File file = fileIter.next();
+			if (cache != null && file.getAbsoluteFile().equals(cache.getCacheFile())) {
+				continue;
+			}
+			files.add(file);
+			tasks.add(new Callable<Map<DigestAlgorithm, String>>() {
+				@Override
+				public Map<DigestAlgorithm, String> call() throws IOException {
+					if (cache == null) {
+						return computeDigests(file, algorithms);
+					}
+					return cache.getDigests(file, algorithms);
+				}
+			});
+		}
+		List<Map<DigestAlgorithm, String>> results = ConcurrencyUtil.invokeAll(executor, tasks);
+		Map<File, Map<DigestAlgorithm, String>> fileToDigestsMap = new LinkedHashMap<File, Map<DigestAlgorithm, String>>();
+		for (int i = 0; i < files.size(); i++) {
+			fileToDigestsMap.put(files.get(i), results.get(i));
+		}
+		if (cache != null) {
+			cache.save();
+		}
+		return fileToDigestsMap;
+	}
+
 }
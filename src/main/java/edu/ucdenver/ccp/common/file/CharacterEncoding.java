@@ -116,6 +116,40 @@ public enum CharacterEncoding {
 				.onUnmappableCharacter(CodingErrorAction.REPORT);
 	}
 
+	/**
+	 * Computes the number of bytes the specified characters occupy when encoded using this
+	 * character encoding, without performing the encoding.
+	 * 
+	 * @param chars
+	 * @param offset
+	 *            the index of the first character to count
+	 * @param length
+	 *            the number of characters to count
+	 * @return the number of bytes required to encode the characters
+	 */
+	public long getEncodedLength(char[] chars, int offset, int length) {
+		if (this != UTF_8) {
+			/* US-ASCII and ISO-8859-1 are single byte encodings */
+			return length;
+		}
+		long byteCount = 0;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			char c = chars[i];
+			if (c < 0x80) {
+				byteCount++;
+			} else if (c < 0x800) {
+				byteCount += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+				byteCount += 4;
+				i++;
+			} else {
+				byteCount += 3;
+			}
+		}
+		return byteCount;
+	}
+
 	/**
 	 * Given a file name as input, this method returns the character encoding-specific file name by
 	 * appending the encoding-specific file suffix if necessary
@@ -0,0 +1,334 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory table of String values stored column by column using dictionary encoding. Each
+ * distinct value is stored once in a dictionary that is shared by all columns, and each cell is
+ * stored as the <code>int</code> code of its value in that dictionary. For files in which the
+ * same values are repeated across many rows, e.g. identifier mapping files, this layout uses a
+ * small fraction of the memory required by a <code>List&lt;String[]&gt;</code> holding one array
+ * (and one String per cell) per row.
+ * <p>
+ * Tables are typically loaded using
+ * {@link FileReaderUtil#loadColumnarTableFromDelimitedFile(java.io.File, CharacterEncoding, String, String, int...)}.
+ * Rows are appended using {@link #addRow(String...)}; a <code>null</code> cell value is
+ * supported and is encoded as {@link #NULL_CODE}. This class is not thread-safe while rows are
+ * being added.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ColumnarTable {
+
+	/**
+	 * The code used to represent a <code>null</code> cell value
+	 */
+	public static final int NULL_CODE = -1;
+
+	private static final int INITIAL_ROW_CAPACITY = 1024;
+
+	private final int columnCount;
+	private int rowCount = 0;
+
+	/**
+	 * The dictionary codes, one array per column; only the first rowCount entries are in use
+	 */
+	private int[][] columnCodes;
+
+	/**
+	 * The dictionary codes of a read-only table, e.g. memory-mapped from a
+	 * {@link ColumnarTableCache} file. Each column is split into regions of
+	 * {@link #rowsPerRegion} rows so that columns are not limited to the 2GB size of a single
+	 * buffer. Null if the codes are held in columnCodes.
+	 */
+	private final IntBuffer[][] columnCodeRegions;
+
+	private final int rowsPerRegion;
+
+	/**
+	 * The distinct values in the table, indexed by their code
+	 */
+	private final List<String> dictionary;
+
+	/**
+	 * Maps each distinct value to its code; built on first use for read-only tables, as most
+	 * loads of a cached table only decode values
+	 */
+	private volatile Map<String, Integer> valueToCodeMap;
+
+	/**
+	 * @param columnCount
+	 *            the number of columns in the table
+	 */
+	public ColumnarTable(int columnCount) {
+		if (columnCount < 1) {
+			throw new IllegalArgumentException("A table must have at least one column. Requested column count: "
+					+ columnCount);
+		}
+		this.columnCount = columnCount;
+		this.columnCodes = new int[columnCount][INITIAL_ROW_CAPACITY];
+		this.columnCodeRegions = null;
+		this.rowsPerRegion = 0;
+		this.dictionary = new ArrayList<String>();
+		this.valueToCodeMap = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Creates a read-only table whose codes are stored in the specified buffers
+	 * 
+	 * @param dictionary
+	 *            the distinct values of the table, indexed by their code
+	 * @param columnCodeRegions
+	 *            the codes of each column, one per row, split into regions of
+	 *            <code>rowsPerRegion</code> rows (the last region of a column may be shorter)
+	 * @param rowsPerRegion
+	 * @param rowCount
+	 */
+	ColumnarTable(List<String> dictionary, IntBuffer[][] columnCodeRegions, int rowsPerRegion, int rowCount) {
+		this.columnCount = columnCodeRegions.length;
+		this.columnCodeRegions = columnCodeRegions;
+		this.rowsPerRegion = rowsPerRegion;
+		this.rowCount = rowCount;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return true if rows cannot be added to this table, e.g. because it was loaded from a
+	 *         {@link ColumnarTableCache}
+	 */
+	public boolean isReadOnly() {
+		return columnCodeRegions != null;
+	}
+
+	/**
+	 * Appends a row to the table
+	 * 
+	 * @param values
+	 *            the values of the row, one per column
+	 * @throws IllegalArgumentException
+	 *             if the number of values does not match the number of columns
+	 */
+	public void addRow(String... values) {
+		if (isReadOnly()) {
+			throw new UnsupportedOperationException("Rows cannot be added to a read-only table.");
+		}
+		if (values.length != columnCount) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot add row to table. Expected %d values but observed %d: %s", columnCount, values.length,
+					Arrays.toString(values)));
+		}
+		if (rowCount == columnCodes[0].length) {
+			int newCapacity = rowCount + Math.max(rowCount >> 1, 16);
+			for (int c = 0; c < columnCount; c++) {
+				columnCodes[c] = Arrays.copyOf(columnCodes[c], newCapacity);
+			}
+		}
+		for (int c = 0; c < columnCount; c++) {
+			columnCodes[c][rowCount] = encode(values[c]);
+		}
+		rowCount++;
+	}
+
+	/**
+	 * @param value
+	 * @return the code for the input value, adding it to the dictionary if necessary
+	 */
+	private int encode(String value) {
+		if (value == null) {
+			return NULL_CODE;
+		}
+		Integer code = valueToCodeMap.get(value);
+		if (code == null) {
+			code = dictionary.size();
+			dictionary.add(value);
+			valueToCodeMap.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * @return the number of columns in the table
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * @return the number of rows in the table
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @param rowIndex
+	 * @param columnIndex
+	 * @return the value of the specified cell
+	 * @throws IndexOutOfBoundsException
+	 *             if the row or column does not exist
+	 */
+	public String getValue(int rowIndex, int columnIndex) {
+		return decode(getCode(rowIndex, columnIndex));
+	}
+
+	/**
+	 * @param rowIndex
+	 * @param columnIndex
+	 * @return the dictionary code of the specified cell
+	 * @throws IndexOutOfBoundsException
+	 *             if the row or column does not exist
+	 */
+	public int getCode(int rowIndex, int columnIndex) {
+		if (rowIndex < 0 || rowIndex >= rowCount) {
+			throw new IndexOutOfBoundsException(String.format("Row index %d does not exist. Row count: %d", rowIndex,
+					rowCount));
+		}
+		if (columnIndex < 0 || columnIndex >= columnCount) {
+			throw new IndexOutOfBoundsException(String.format("Column index %d does not exist. Column count: %d",
+					columnIndex, columnCount));
+		}
+		if (columnCodeRegions != null) {
+			return columnCodeRegions[columnIndex][rowIndex / rowsPerRegion].get(rowIndex % rowsPerRegion);
+		}
+		return columnCodes[columnIndex][rowIndex];
+	}
+
+	/**
+	 * @param rowIndex
+	 * @return the values of the specified row
+	 */
+	public String[] getRow(int rowIndex) {
+		String[] row = new String[columnCount];
+		for (int c = 0; c < columnCount; c++) {
+			row[c] = getValue(rowIndex, c);
+		}
+		return row;
+	}
+
+	/**
+	 * @param code
+	 * @return the value for the specified dictionary code
+	 */
+	public String decode(int code) {
+		return (code == NULL_CODE) ? null : dictionary.get(code);
+	}
+
+	/**
+	 * Returns the dictionary code for the input value. As the dictionary is shared by all columns,
+	 * the code can be used to find matching cells in any column by comparing integers.
+	 * 
+	 * @param value
+	 * @return the code for the input value, or {@link #NULL_CODE} if the value is not in the table
+	 */
+	public int getDictionaryCode(String value) {
+		Integer code = getValueToCodeMap().get(value);
+		return (code == null) ? NULL_CODE : code;
+	}
+
+	/**
+	 * @return the mapping from each distinct value to its code, building it from the dictionary if
+	 *         this is a read-only table whose mapping has not been used before
+	 */
+	private Map<String, Integer> getValueToCodeMap() {
+		Map<String, Integer> map = valueToCodeMap;
+		if (map == null) {
+			synchronized (this) {
+				map = valueToCodeMap;
+				if (map == null) {
+					map = new HashMap<String, Integer>((int) (dictionary.size() / 0.75f) + 1);
+					for (int code = 0; code < dictionary.size(); code++) {
+						map.put(dictionary.get(code), code);
+					}
+					valueToCodeMap = map;
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * @return the distinct values in the table, indexed by their dictionary code
+	 */
+	public List<String> getDictionary() {
+		return Collections.unmodifiableList(dictionary);
+	}
+
+	/**
+	 * @param columnIndex
+	 * @return a copy of the dictionary codes of the specified column, one per row
+	 */
+	public int[] getColumnCodes(int columnIndex) {
+		if (columnIndex < 0 || columnIndex >= columnCount) {
+			throw new IndexOutOfBoundsException(String.format("Column index %d does not exist. Column count: %d",
+					columnIndex, columnCount));
+		}
+		if (columnCodeRegions != null) {
+			int[] codes = new int[rowCount];
+			for (int r = 0; r < columnCodeRegions[columnIndex].length; r++) {
+				IntBuffer region = columnCodeRegions[columnIndex][r].duplicate();
+				region.get(codes, r * rowsPerRegion, region.remaining());
+			}
+			return codes;
+		}
+		return Arrays.copyOf(columnCodes[columnIndex], rowCount);
+	}
+
+	/**
+	 * Releases unused row capacity once all rows have been added
+	 */
+	public void trimToSize() {
+		if (isReadOnly()) {
+			return;
+		}
+		for (int c = 0; c < columnCount; c++) {
+			columnCodes[c] = Arrays.copyOf(columnCodes[c], Math.max(rowCount, 1));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarTable [columnCount=" + columnCount + ", rowCount=" + rowCount + ", dictionarySize="
+				+ dictionary.size() + "]";
+	}
+
+}
@@ -0,0 +1,408 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * An opt-in, persistent cache of parsed delimited files. The first time a file is loaded, the
+ * requested columns are parsed into a dictionary-encoded {@link ColumnarTable} and written to a
+ * compact binary cache file. Subsequent loads of the same columns from the same, unchanged file
+ * read the dictionary and memory-map the column codes from the cache file instead of parsing the
+ * source file again.
+ * <p>
+ * A cache file is only used if the absolute path, size and last modification time of the source
+ * file, and the encoding, delimiter, comment indicator and column indexes of the request, all
+ * match those recorded in the cache file. If constructed with <code>verifyChecksum</code> set,
+ * the MD5 checksum of the source file must match as well; this guards against changes that
+ * preserve the size and modification time at the cost of reading the source file once per load.
+ * A cache file that is stale or unreadable is silently replaced. A cache file created from a
+ * source file that was modified too recently for its modification time to be trusted (see
+ * {@link FileUtil#getSettledLastModifiedNanos(File)}) is replaced the next time it is used.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ColumnarTableCache {
+
+	private static final Logger logger = Logger.getLogger(ColumnarTableCache.class);
+
+	/**
+	 * The suffix used for cache files
+	 */
+	public static final String CACHE_FILE_SUFFIX = ".colcache";
+
+	private static final int MAGIC_NUMBER = 0x43435442;
+	private static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The number of rows in each memory-mapped region of a column, chosen so that each region
+	 * stays well below the 2GB limit of a single mapping
+	 */
+	static final int ROWS_PER_REGION = 1 << 28;
+
+	private final File cacheDirectory;
+	private final boolean verifyChecksum;
+	private final int rowsPerRegion;
+
+	/**
+	 * @param cacheDirectory
+	 *            the directory in which cache files are stored; if null, cache files are stored
+	 *            next to the files they were created from
+	 */
+	public ColumnarTableCache(File cacheDirectory) {
+		this(cacheDirectory, false);
+	}
+
+	/**
+	 * @param cacheDirectory
+	 *            the directory in which cache files are stored; if null, cache files are stored
+	 *            next to the files they were created from
+	 * @param verifyChecksum
+	 *            if true, the MD5 checksum of the source file is also used to validate cache files
+	 */
+	public ColumnarTableCache(File cacheDirectory, boolean verifyChecksum) {
+		this(cacheDirectory, verifyChecksum, ROWS_PER_REGION);
+	}
+
+	/**
+	 * @param cacheDirectory
+	 * @param verifyChecksum
+	 * @param rowsPerRegion
+	 *            the number of rows in each memory-mapped region of a column
+	 */
+	ColumnarTableCache(File cacheDirectory, boolean verifyChecksum, int rowsPerRegion) {
+		this.cacheDirectory = cacheDirectory;
+		this.verifyChecksum = verifyChecksum;
+		this.rowsPerRegion = rowsPerRegion;
+	}
+
+	/**
+	 * Loads the requested columns of the input file, using the cache file if it is up to date and
+	 * creating (or replacing) it otherwise. The arguments are treated as in
+	 * {@link FileReaderUtil#loadColumnarTableFromDelimitedFile(File, CharacterEncoding, String, String, int...)}.
+	 * The returned table is read-only.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 */
+	public ColumnarTable loadColumnarTable(File inputFile, CharacterEncoding encoding, String delimiter,
+			String commentIndicator, int... columnIndexes) throws IOException {
+		String checksum = verifyChecksum ? FileComparisonUtil.computeMd5Checksum(inputFile) : "";
+		CacheKey key = new CacheKey(inputFile, FileUtil.getLastModifiedNanos(inputFile), encoding, delimiter,
+				commentIndicator, columnIndexes, checksum);
+		File cacheFile = getCacheFile(inputFile, encoding, delimiter, commentIndicator, columnIndexes);
+		if (cacheFile.exists()) {
+			try {
+				ColumnarTable table = readCacheFile(cacheFile, key, rowsPerRegion);
+				if (table != null) {
+					return table;
+				}
+				logger.info("Replacing stale cache file: " + cacheFile.getAbsolutePath());
+			} catch (IOException e) {
+				logger.warn("Replacing unreadable cache file: " + cacheFile.getAbsolutePath(), e);
+			}
+		}
+		CacheKey cacheKey = new CacheKey(inputFile, FileUtil.getSettledLastModifiedNanos(inputFile), encoding,
+				delimiter, commentIndicator, columnIndexes, checksum);
+		ColumnarTable table = FileReaderUtil.loadColumnarTableFromDelimitedFile(inputFile, encoding, delimiter,
+				commentIndicator, columnIndexes);
+		return writeCacheFile(cacheFile, cacheKey, table, rowsPerRegion);
+	}
+
+	/**
+	 * Loads the requested columns of the input file as rows, using the cache file if possible.
+	 * This is a drop-in replacement for
+	 * {@link FileReaderUtil#loadColumnsFromDelimitedFile(File, CharacterEncoding, String, String, int...)}.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 */
+	public List<String[]> loadColumns(File inputFile, CharacterEncoding encoding, String delimiter,
+			String commentIndicator, int... columnIndexes) throws IOException {
+		ColumnarTable table = loadColumnarTable(inputFile, encoding, delimiter, commentIndicator, columnIndexes);
+		List<String[]> rows = new ArrayList<String[]>(table.getRowCount());
+		for (int i = 0; i < table.getRowCount(); i++) {
+			rows.add(table.getRow(i));
+		}
+		return rows;
+	}
+
+	/**
+	 * @return the cache file used for the specified load request
+	 */
+	public File getCacheFile(File inputFile, CharacterEncoding encoding, String delimiter, String commentIndicator,
+			int... columnIndexes) {
+		String requestHash = DigestUtils.md5Hex(inputFile.getAbsolutePath() + '\u0000' + encoding + '\u0000'
+				+ delimiter + '\u0000' + commentIndicator + '\u0000' + Arrays.toString(columnIndexes));
+		File directory = (cacheDirectory == null) ? inputFile.getAbsoluteFile().getParentFile() : cacheDirectory;
+		return new File(directory, inputFile.getName() + "." + requestHash.substring(0, 16) + CACHE_FILE_SUFFIX);
+	}
+
+	/**
+	 * Writes the table to a uniquely named temporary file that then atomically replaces the cache
+	 * file, so that concurrent readers never observe a partially written cache file and concurrent
+	 * writers never share a temporary file
+	 * 
+	 * @return the read-only table mapped from the written cache file
+	 */
+	private static ColumnarTable writeCacheFile(File cacheFile, CacheKey key, ColumnarTable table, int rowsPerRegion)
+			throws IOException {
+		File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+		boolean written = false;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			key.write(out);
+			out.writeInt(table.getRowCount());
+			out.writeInt(table.getColumnCount());
+			List<String> dictionary = table.getDictionary();
+			out.writeInt(dictionary.size());
+			for (String value : dictionary) {
+				byte[] bytes = value.getBytes(CharacterEncoding.UTF_8.getCharacterSetName());
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			/* align the codes so that they can be mapped as an IntBuffer */
+			while (out.size() % 4 != 0) {
+				out.writeByte(0);
+			}
+			for (int c = 0; c < table.getColumnCount(); c++) {
+				for (int code : table.getColumnCodes(c)) {
+					out.writeInt(code);
+				}
+			}
+			out.close();
+			/*
+			 * the table is mapped before the move so that it is read from this file even if another
+			 * writer replaces the cache file
+			 */
+			ColumnarTable cachedTable = readCacheFile(tempFile, key, rowsPerRegion);
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			written = true;
+			return cachedTable;
+		} finally {
+			if (!written) {
+				out.close();
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+	}
+
+	/**
+	 * @return the table stored in the cache file, or null if the cache file does not match the
+	 *         input key
+	 * @throws IOException
+	 *             if the cache file cannot be read or is corrupt
+	 */
+	private static ColumnarTable readCacheFile(File cacheFile, CacheKey key, int rowsPerRegion) throws IOException {
+		CountingInputStream countingStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(
+				cacheFile)));
+		DataInputStream in = new DataInputStream(countingStream);
+		int rowCount;
+		int columnCount;
+		List<String> dictionary;
+		try {
+			if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			if (!key.equals(CacheKey.read(in))) {
+				return null;
+			}
+			rowCount = in.readInt();
+			columnCount = in.readInt();
+			int dictionarySize = in.readInt();
+			dictionary = new ArrayList<String>(dictionarySize);
+			for (int i = 0; i < dictionarySize; i++) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				dictionary.add(new String(bytes, CharacterEncoding.UTF_8.getCharacterSetName()));
+			}
+		} finally {
+			in.close();
+		}
+		long codesOffset = countingStream.getByteCount();
+		codesOffset += (4 - codesOffset % 4) % 4;
+		long columnByteCount = 4L * rowCount;
+		if (cacheFile.length() != codesOffset + columnByteCount * columnCount) {
+			throw new IOException("Cache file has an unexpected length: " + cacheFile.getAbsolutePath());
+		}
+		int regionCount = (int) (((long) rowCount + rowsPerRegion - 1) / rowsPerRegion);
+		IntBuffer[][] columnCodeRegions = new IntBuffer[columnCount][regionCount];
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			for (int c = 0; c < columnCount; c++) {
+				for (int r = 0; r < regionCount; r++) {
+					long firstRow = (long) r * rowsPerRegion;
+					long regionRows = Math.min(rowsPerRegion, rowCount - firstRow);
+					/* the mapping remains valid after the channel is closed */
+					columnCodeRegions[c][r] = channel
+							.map(FileChannel.MapMode.READ_ONLY, codesOffset + c * columnByteCount + 4 * firstRow,
+									4 * regionRows).order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+				}
+			}
+		} finally {
+			raf.close();
+		}
+		return new ColumnarTable(dictionary, columnCodeRegions, rowsPerRegion, rowCount);
+	}
+
+	/**
+	 * The properties of a source file and load request that a cache file must match to be used
+	 */
+	private static class CacheKey {
+		private final String path;
+		private final long length;
+		private final long lastModified;
+		private final String checksum;
+		private final String encoding;
+		private final String delimiter;
+		private final String commentIndicator;
+		private final int[] columnIndexes;
+
+		private CacheKey(String path, long length, long lastModified, String checksum, String encoding,
+				String delimiter, String commentIndicator, int[] columnIndexes) {
+			this.path = path;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.checksum = checksum;
+			this.encoding = encoding;
+			this.delimiter = delimiter;
+			this.commentIndicator = commentIndicator;
+			this.columnIndexes = (columnIndexes == null) ? new int[0] : columnIndexes;
+		}
+
+		private CacheKey(File inputFile, long lastModified, CharacterEncoding encoding, String delimiter,
+				String commentIndicator, int[] columnIndexes, String checksum) {
+			this(inputFile.getAbsolutePath(), inputFile.length(), lastModified, checksum, encoding.name(), delimiter,
+					commentIndicator, columnIndexes);
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeUTF(path);
+			out.writeLong(length);
+			out.writeLong(lastModified);
+			out.writeUTF(checksum);
+			out.writeUTF(encoding);
+			writeNullableString(out, delimiter);
+			writeNullableString(out, commentIndicator);
+			out.writeInt(columnIndexes.length);
+			for (int columnIndex : columnIndexes) {
+				out.writeInt(columnIndex);
+			}
+		}
+
+		private static CacheKey read(DataInputStream in) throws IOException {
+			String path = in.readUTF();
+			long length = in.readLong();
+			long lastModified = in.readLong();
+			String checksum = in.readUTF();
+			String encoding = in.readUTF();
+			String delimiter = readNullableString(in);
+			String commentIndicator = readNullableString(in);
+			int[] columnIndexes = new int[in.readInt()];
+			for (int i = 0; i < columnIndexes.length; i++) {
+				columnIndexes[i] = in.readInt();
+			}
+			return new CacheKey(path, length, lastModified, checksum, encoding, delimiter, commentIndicator,
+					columnIndexes);
+		}
+
+		private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+			out.writeBoolean(value != null);
+			if (value != null) {
+				out.writeUTF(value);
+			}
+		}
+
+		private static String readNullableString(DataInputStream in) throws IOException {
+			return in.readBoolean() ? in.readUTF() : null;
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return path.equals(other.path) && length == other.length && lastModified == other.lastModified
+					&& checksum.equals(other.checksum) && encoding.equals(other.encoding)
+					&& equal(delimiter, other.delimiter) && equal(commentIndicator, other.commentIndicator)
+					&& Arrays.equals(columnIndexes, other.columnIndexes);
+		}
+
+		private static boolean equal(String s1, String s2) {
+			return (s1 == null) ? s2 == null : s1.equals(s2);
+		}
+	}
+
+}
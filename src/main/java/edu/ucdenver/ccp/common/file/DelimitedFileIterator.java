@@ -0,0 +1,131 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+
+/**
+ * A lazy, closeable <code>Iterator</code> that converts the lines of a file (or stream) one at a
+ * time, e.g. into the requested columns of a delimited file. Only the current line is held in
+ * memory, so arbitrarily large files can be processed. Instances are returned by the
+ * <code>iterate*</code> and <code>stream*</code> methods of {@link FileReaderUtil} and should be
+ * closed when no longer needed, e.g. using try-with-resources.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ * @param <T>
+ *            the type each line is converted into
+ */
+public abstract class DelimitedFileIterator<T> implements Iterator<T>, Closeable {
+
+	private final StreamLineIterator lineIterator;
+
+	/**
+	 * @param lineIterator
+	 *            the iterator supplying the lines to convert
+	 */
+	protected DelimitedFileIterator(StreamLineIterator lineIterator) {
+		this.lineIterator = lineIterator;
+	}
+
+	/**
+	 * Converts the text of a line into the value returned by this iterator
+	 * 
+	 * @param line
+	 * @return
+	 */
+	protected abstract T convert(String line);
+
+	/**
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		return lineIterator.hasNext();
+	}
+
+	/**
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return convert(lineIterator.next().getText());
+	}
+
+	/**
+	 * This method is not supported
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if this method is called
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("The remove() operation is not supported by DelimitedFileIterator.");
+	}
+
+	/**
+	 * Closes the underlying file or stream
+	 */
+	@Override
+	public void close() {
+		lineIterator.close();
+	}
+
+	/**
+	 * @return a sequential <code>Stream</code> over the remaining values of this iterator. Closing
+	 *         the stream closes the underlying file or stream.
+	 */
+	public Stream<T> stream() {
+		Stream<T> stream = StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+		return stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,279 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Describes the differences observed when comparing a file of actual output
+ * against a file of expected output. Comparisons may stop early once a
+ * maximum number of mismatches has been observed, in which case the report is
+ * marked as truncated.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class FileComparisonReport {
+
+	/**
+	 * The kinds of differences that can be observed between two files
+	 */
+	public enum MismatchType {
+		/**
+		 * A line in the file of actual output that does not correspond to a
+		 * line in the file of expected output
+		 */
+		UNEXPECTED_LINE,
+		/**
+		 * A line in the file of expected output that does not correspond to a
+		 * line in the file of actual output
+		 */
+		MISSING_LINE,
+		/**
+		 * A line in the file of actual output that differs from the line at the
+		 * same position in the file of expected output
+		 */
+		DIFFERENT_LINE
+	}
+
+	/**
+	 * A single difference between the file of actual output and the file of
+	 * expected output. Line numbers are zero-based; a line number is -1 if the
+	 * mismatch does not involve a line from the corresponding file.
+	 */
+	public static class Mismatch {
+		private final MismatchType type;
+		private final long lineNumber;
+		private final String line;
+		private final long expectedLineNumber;
+		private final String expectedLine;
+
+		Mismatch(MismatchType type, long lineNumber, String line, long expectedLineNumber, String expectedLine) {
+			this.type = type;
+			this.lineNumber = lineNumber;
+			this.line = line;
+			this.expectedLineNumber = expectedLineNumber;
+			this.expectedLine = expectedLine;
+		}
+
+		/**
+		 * @return the kind of difference observed
+		 */
+		public MismatchType getType() {
+			return type;
+		}
+
+		/**
+		 * @return the number of the line in the file of actual output, or -1
+		 *         for a {@link MismatchType#MISSING_LINE}
+		 */
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return the line from the file of actual output, or null for a
+		 *         {@link MismatchType#MISSING_LINE}
+		 */
+		public String getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the number of the line in the file of expected output, or -1
+		 *         for an {@link MismatchType#UNEXPECTED_LINE}
+		 */
+		public long getExpectedLineNumber() {
+			return expectedLineNumber;
+		}
+
+		/**
+		 * @return the line from the file of expected output, or null for an
+		 *         {@link MismatchType#UNEXPECTED_LINE}
+		 */
+		public String getExpectedLine() {
+			return expectedLine;
+		}
+
+		@Override
+		public String toString() {
+			switch (type) {
+			case UNEXPECTED_LINE:
+				return String.format("Line (%d) in file of actual output, not in expected output: '%s'", lineNumber,
+						line);
+			case MISSING_LINE:
+				return String.format("EXPECTED LINE (%d) not in file: '%s'", expectedLineNumber, expectedLine);
+			case DIFFERENT_LINE:
+				return String.format("Line (%d) in file of actual output differs from expected line (%d): '%s' != '%s'",
+						lineNumber, expectedLineNumber, line, expectedLine);
+			default:
+				throw new IllegalStateException(String.format("Unknown MismatchType: %s", type.toString()));
+			}
+		}
+	}
+
+	private final int maxMismatches;
+	private final List<Mismatch> mismatches;
+	private long lineCount = -1;
+	private long expectedLineCount = -1;
+	private boolean truncated = false;
+
+	/**
+	 * @param maxMismatches
+	 *            the number of mismatches after which the comparison stops
+	 */
+	FileComparisonReport(int maxMismatches) {
+		if (maxMismatches < 1) {
+			throw new IllegalArgumentException(String.format(
+					"The maximum number of mismatches must be greater than zero: %d", maxMismatches));
+		}
+		this.maxMismatches = maxMismatches;
+		this.mismatches = new ArrayList<Mismatch>();
+	}
+
+	/**
+	 * Records a mismatch. Once the maximum number of mismatches has been
+	 * recorded any further mismatch is dropped and the report is marked as
+	 * truncated.
+	 * 
+	 * @param mismatch
+	 * @return true if the mismatch was dropped because the maximum number of
+	 *         mismatches had already been reached, in which case the comparison
+	 *         should stop
+	 */
+	boolean addMismatch(Mismatch mismatch) {
+		if (mismatches.size() >= maxMismatches) {
+			truncated = true;
+			return true;
+		}
+		mismatches.add(mismatch);
+		return false;
+	}
+
+	/**
+	 * Marks this report as the result of a complete comparison
+	 * 
+	 * @param lineCount
+	 * @param expectedLineCount
+	 */
+	void complete(long lineCount, long expectedLineCount) {
+		this.lineCount = lineCount;
+		this.expectedLineCount = expectedLineCount;
+		this.truncated = false;
+	}
+
+	/**
+	 * Orders the mismatches by type, and then by line number within each type
+	 */
+	void sortMismatches() {
+		Collections.sort(mismatches, new Comparator<Mismatch>() {
+			@Override
+			public int compare(Mismatch m1, Mismatch m2) {
+				int comparison = m1.getType().compareTo(m2.getType());
+				if (comparison == 0) {
+					comparison = Long.compare(m1.getLineNumber(), m2.getLineNumber());
+				}
+				if (comparison == 0) {
+					comparison = Long.compare(m1.getExpectedLineNumber(), m2.getExpectedLineNumber());
+				}
+				return comparison;
+			}
+		});
+	}
+
+	/**
+	 * @return true if the file of actual output matches the file of expected
+	 *         output
+	 */
+	public boolean isMatch() {
+		return mismatches.isEmpty() && !truncated;
+	}
+
+	/**
+	 * @return true if the comparison stopped early because the maximum number of
+	 *         mismatches was reached. In this case only the first mismatches
+	 *         observed are reported.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * @return the mismatches observed
+	 */
+	public List<Mismatch> getMismatches() {
+		return Collections.unmodifiableList(mismatches);
+	}
+
+	/**
+	 * @return the number of lines in the file of actual output, or -1 if the
+	 *         comparison was truncated
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the number of lines in the file of expected output, or -1 if the
+	 *         comparison was truncated
+	 */
+	public long getExpectedLineCount() {
+		return expectedLineCount;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		if (isMatch()) {
+			sb.append(String.format("File of actual output matches expected output. # lines in file: %d", lineCount));
+		} else if (truncated) {
+			sb.append(String.format(
+					"File of actual output does not match expected output. Comparison stopped after %d mismatches.",
+					mismatches.size()));
+		} else {
+			sb.append(String.format(
+					"File of actual output does not match expected output. # lines in file: %d # expected lines: %d # mismatches: %d",
+					lineCount, expectedLineCount, mismatches.size()));
+		}
+		for (Mismatch mismatch : mismatches) {
+			sb.append(System.getProperty("line.separator")).append(mismatch.toString());
+		}
+		return sb.toString();
+	}
+
+}
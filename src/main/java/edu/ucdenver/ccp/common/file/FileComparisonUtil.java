@@ -34,18 +34,27 @@ package edu.ucdenver.ccp.common.file;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.log4j.Logger;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.digest.ChunkedDigest;
+import edu.ucdenver.ccp.common.digest.DigestAlgorithm;
+import edu.ucdenver.ccp.common.digest.DigestCache;
+import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+import edu.ucdenver.ccp.common.string.DelimitedLineParser;
 
 /**
  * A simple utility for comparing the contents of text files.
@@ -140,15 +149,43 @@ public class FileComparisonUtil {
 	public static boolean hasExpectedLines(File outputFile, CharacterEncoding encoding, List<String> expectedLines,
 			String columnDelimiterRegex, LineOrder lineOrder, ColumnOrder columnOrder, LineTrim lineTrim,
 			ShowWhiteSpace showWhiteSpace) throws IOException {
-		List<String> lines = FileReaderUtil.loadLinesFromFile(outputFile, encoding);
-		return hasExpectedLines(lines, expectedLines, columnDelimiterRegex, lineOrder, columnOrder, lineTrim,
-				showWhiteSpace);
+		final StreamLineIterator lineIter = new StreamLineIterator(outputFile, encoding);
+		try {
+			/* the file is streamed so that only the expected lines are held in memory */
+			Iterator<String> lines = new Iterator<String>() {
+				@Override
+				public boolean hasNext() {
+					return lineIter.hasNext();
+				}
+
+				@Override
+				public String next() {
+					return lineIter.next().getText();
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException("The remove() method is not supported for this iterator.");
+				}
+			};
+			return hasExpectedLines(lines, expectedLines, columnDelimiterRegex, lineOrder, columnOrder, lineTrim,
+					showWhiteSpace);
+		} finally {
+			lineIter.close();
+		}
 	}
 
 	public static boolean hasExpectedLines(List<String> lines, List<String> expectedLines, String columnDelimiterRegex,
 			LineOrder lineOrder, ColumnOrder columnOrder, LineTrim lineTrim, ShowWhiteSpace showWhiteSpace) {
+		return hasExpectedLines(lines.iterator(), expectedLines, columnDelimiterRegex, lineOrder, columnOrder,
+				lineTrim, showWhiteSpace);
+	}
+
+	private static boolean hasExpectedLines(Iterator<String> lines, List<String> expectedLines,
+			String columnDelimiterRegex, LineOrder lineOrder, ColumnOrder columnOrder, LineTrim lineTrim,
+			ShowWhiteSpace showWhiteSpace) {
 		List<String> remainingExpectedLines = new ArrayList<String>(expectedLines);
-		if (lines.size() == 0 && expectedLines.size() > 0)
+		if (!lines.hasNext() && expectedLines.size() > 0)
 			logger.info("File contains no output.");
 
 		List<String> trimmedExpectedLines = new ArrayList<String>(expectedLines);
@@ -161,26 +198,38 @@ public class FileComparisonUtil {
 			}
 		}
 
+		ExpectedLineMultiset expectedLineMultiset = null;
+		if (lineOrder == LineOrder.ANY_ORDER) {
+			expectedLineMultiset = new ExpectedLineMultiset(trimmedExpectedLines, columnOrder, columnDelimiterRegex);
+		}
+
 		int lineIndex = 0;
 		boolean allLinesAsExpected = true;
-		for (String line : lines) {
+		while (lines.hasNext()) {
+			String line = lines.next();
 			if (lineTrim.equals(LineTrim.ON))
 				line = line.trim();
-			if (isAnExpectedLine(line, trimmedExpectedLines, lineIndex, lineOrder, columnOrder, columnDelimiterRegex)) {
+			if (expectedLineMultiset != null) {
+				if (!expectedLineMultiset.remove(line)) {
+					logUnexpectedLine(line, lineIndex, showWhiteSpace);
+					allLinesAsExpected = false;
+				}
+			} else if (isAnExpectedLine(line, trimmedExpectedLines, lineIndex, lineOrder, columnOrder,
+					columnDelimiterRegex)) {
 				remainingExpectedLines.remove(line);
 			} else {
-				if (showWhiteSpace.equals(ShowWhiteSpace.ON)) {
-					line = line.replaceAll("\\t", "[TAB]").replaceAll(" ", "[SPC]");
-				}
-				logger.info(String.format("Line (%d) in file of actual output, not in expected list: '%s'", lineIndex,
-						line));
+				logUnexpectedLine(line, lineIndex, showWhiteSpace);
 				allLinesAsExpected = false;
 			}
 			lineIndex++;
 		}
-		boolean hasExpectedLines = (lines.size() == expectedLines.size() && allLinesAsExpected);
+		if (expectedLineMultiset != null) {
+			remainingExpectedLines = expectedLineMultiset.getRemainingLines();
+		}
+		int lineCount = lineIndex;
+		boolean hasExpectedLines = (lineCount == expectedLines.size() && allLinesAsExpected);
 		if (!hasExpectedLines) {
-			logger.info("File of actual output does not contain expected lines. # lines in file: " + lines.size()
+			logger.info("File of actual output does not contain expected lines. # lines in file: " + lineCount
 					+ " # expected lines: " + expectedLines.size()
 					+ " Expected lines matched those in actual output file: " + allLinesAsExpected);
 			for (String line : remainingExpectedLines) {
@@ -194,8 +243,60 @@ public class FileComparisonUtil {
 	}
 
 	/**
-	 * Returns true if the input line matches one of the expected lines based on
-	 * the LineOrder and ColumnOrder properties.
+	 * Compares a file of actual output against a file of expected output
+	 * without loading either file into memory, based on the LineOrder and
+	 * ColumnOrder properties. If line order matters, the files are compared
+	 * line by line. Otherwise, lines are hash partitioned into temporary spill
+	 * files so that files larger than the available heap can be compared.
+	 * 
+	 * @param outputFile
+	 *            the file of actual output
+	 * @param expectedOutputFile
+	 *            the file of expected output
+	 * @param encoding
+	 * @param columnDelimiterRegex
+	 * @param lineOrder
+	 * @param columnOrder
+	 * @param lineTrim
+	 * @param maxMismatches
+	 *            the comparison stops once this many mismatches have been
+	 *            observed
+	 * @return a report of the differences between the two files
+	 * @throws IOException
+	 */
+	public static FileComparisonReport compareFiles(File outputFile, File expectedOutputFile,
+			CharacterEncoding encoding, String columnDelimiterRegex, LineOrder lineOrder, ColumnOrder columnOrder,
+			LineTrim lineTrim, int maxMismatches) throws IOException {
+		return compareFiles(outputFile, expectedOutputFile, encoding, columnDelimiterRegex, lineOrder, columnOrder,
+				lineTrim, maxMismatches, null);
+	}
+
+	/**
+	 * @see #compareFiles(File, File, CharacterEncoding, String, LineOrder,
+	 *      ColumnOrder, LineTrim, int)
+	 * @param spillDirectory
+	 *            the directory where temporary spill files are written when
+	 *            lines can appear in any order; if null the system temporary
+	 *            directory is used
+	 */
+	public static FileComparisonReport compareFiles(File outputFile, File expectedOutputFile,
+			CharacterEncoding encoding, String columnDelimiterRegex, LineOrder lineOrder, ColumnOrder columnOrder,
+			LineTrim lineTrim, int maxMismatches, File spillDirectory) throws IOException {
+		StreamingFileComparator comparator = new StreamingFileComparator(encoding, columnDelimiterRegex, columnOrder,
+				lineTrim, spillDirectory, StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		return comparator.compare(outputFile, expectedOutputFile, lineOrder, maxMismatches);
+	}
+
+	private static void logUnexpectedLine(String line, int lineIndex, ShowWhiteSpace showWhiteSpace) {
+		if (showWhiteSpace.equals(ShowWhiteSpace.ON)) {
+			line = line.replaceAll("\\t", "[TAB]").replaceAll(" ", "[SPC]");
+		}
+		logger.info(String.format("Line (%d) in file of actual output, not in expected list: '%s'", lineIndex, line));
+	}
+
+	/**
+	 * Returns true if the input line matches the expected line at the same
+	 * index based on the ColumnOrder property.
 	 * 
 	 * @param line
 	 * @param expectedLines
@@ -211,46 +312,110 @@ public class FileComparisonUtil {
 			if (expectedLines.size() > lineIndex)
 				return linesAreEquivalent(line, expectedLines.get(lineIndex), columnOrder, delimiterRegex);
 			return false;
-		} else if (lineOrder == LineOrder.ANY_ORDER) {
-			return lineInExpectedSet(line, expectedLines, columnOrder, delimiterRegex);
 		} else
 			throw new RuntimeException(String.format("Unknown LineOrder: %s", lineOrder.toString()));
 	}
 
 	/**
-	 * Returns true if the input line is a member of the expected lines list
-	 * based on the LineOrder and ColumnOrder properties.
+	 * Returns a signature of the input line such that two lines have the same
+	 * signature if and only if they are equivalent based on the ColumnOrder
+	 * property. If column order matters, the signature is the line itself.
+	 * Otherwise, lines are equivalent if they have the same number of columns
+	 * and the same set of distinct column values, so the signature is the
+	 * column count followed by the sorted distinct column values.
 	 * 
 	 * @param line
-	 * @param expectedLines
 	 * @param columnOrder
-	 * @param delimiterRegex
+	 * @param columnParser
+	 *            splits the line into columns; only used if column order does
+	 *            not matter
 	 * @return
 	 */
-	private static boolean lineInExpectedSet(String line, List<String> expectedLines, ColumnOrder columnOrder,
-			String delimiterRegex) {
+	static String getLineSignature(String line, ColumnOrder columnOrder, DelimitedLineParser columnParser) {
 		if (columnOrder == ColumnOrder.AS_IN_FILE) {
-			if (expectedLines.contains(line)) {
-				expectedLines.remove(line);
-				return true;
-			}
-			return false;
+			return line;
 		} else if (columnOrder == ColumnOrder.ANY_ORDER) {
-			String[] lineToks = line.split(delimiterRegex, -1);
-			for (String expectedLine : expectedLines) {
-				String[] expectedLineToks = expectedLine.split(delimiterRegex, -1);
-				if (lineToks.length == expectedLineToks.length) {
-					if (CollectionsUtil.array2Set(lineToks).equals(CollectionsUtil.array2Set(expectedLineToks))) {
-						expectedLines.remove(expectedLine);
-						return true;
-					}
+			String[] columns = columnParser.parse(line);
+			int columnCount = columns.length;
+			Arrays.sort(columns);
+			StringBuilder signature = new StringBuilder(line.length() + 16);
+			signature.append(columnCount);
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0 && columns[i].equals(columns[i - 1])) {
+					continue;
 				}
+				/* length-prefix each value so that signatures cannot be ambiguous */
+				signature.append('|').append(columns[i].length()).append(':').append(columns[i]);
 			}
-			return false;
+			return signature.toString();
 		} else
 			throw new RuntimeException(String.format("Unknown ColumnOrder: %s", columnOrder.toString()));
 	}
 
+	/**
+	 * A multiset of expected lines keyed by line signature, used when lines can
+	 * appear in any order. Each actual line is matched in constant time by
+	 * removing one expected line with the same signature.
+	 */
+	private static class ExpectedLineMultiset {
+		private final List<String> expectedLines;
+		private final ColumnOrder columnOrder;
+		private final DelimitedLineParser columnParser;
+
+		/**
+		 * Maps each signature to the indexes of the unmatched expected lines
+		 * with that signature, in list order
+		 */
+		private final Map<String, ArrayDeque<Integer>> signatureToIndexesMap;
+
+		private final boolean[] matched;
+
+		private ExpectedLineMultiset(List<String> expectedLines, ColumnOrder columnOrder, String delimiterRegex) {
+			this.expectedLines = expectedLines;
+			this.columnOrder = columnOrder;
+			this.columnParser = (columnOrder == ColumnOrder.ANY_ORDER) ? new DelimitedLineParser(delimiterRegex)
+					: null;
+			this.signatureToIndexesMap = new HashMap<String, ArrayDeque<Integer>>();
+			this.matched = new boolean[expectedLines.size()];
+			for (int i = 0; i < expectedLines.size(); i++) {
+				String signature = getLineSignature(expectedLines.get(i), columnOrder, columnParser);
+				ArrayDeque<Integer> indexes = signatureToIndexesMap.get(signature);
+				if (indexes == null) {
+					indexes = new ArrayDeque<Integer>(1);
+					signatureToIndexesMap.put(signature, indexes);
+				}
+				indexes.add(i);
+			}
+		}
+
+		/**
+		 * @param line
+		 * @return true if an unmatched expected line equivalent to the input
+		 *         line was found (and is now marked as matched)
+		 */
+		private boolean remove(String line) {
+			ArrayDeque<Integer> indexes = signatureToIndexesMap.get(getLineSignature(line, columnOrder, columnParser));
+			if (indexes == null || indexes.isEmpty()) {
+				return false;
+			}
+			matched[indexes.poll()] = true;
+			return true;
+		}
+
+		/**
+		 * @return the expected lines that have not been matched, in list order
+		 */
+		private List<String> getRemainingLines() {
+			List<String> remainingLines = new ArrayList<String>();
+			for (int i = 0; i < matched.length; i++) {
+				if (!matched[i]) {
+					remainingLines.add(expectedLines.get(i));
+				}
+			}
+			return remainingLines;
+		}
+	}
+
 	/**
 	 * Returns true if the input line is as expected, false otherwise. If
 	 * columnOrder is ANY_ORDER then columns can be rearranged.
@@ -354,10 +519,27 @@ public class FileComparisonUtil {
 	 */
 	public static boolean fileHasExpectedMd5Checksum(File inputFile, File checkSumFile,
 			CheckSumExtractor checkSumExtractor) {
+		return fileHasExpectedMd5Checksum(inputFile, checkSumFile, checkSumExtractor, null);
+	}
+
+	/**
+	 * @param inputFile
+	 * @param checkSumFile
+	 * @param checkSumExtractor
+	 * @param digestCache
+	 *            if not null, the MD5 checksum of the inputFile is retrieved
+	 *            from (or added to) this cache so that it is only computed if
+	 *            the inputFile has changed since it was last checked
+	 * @return true if the MD5 checksum in the checkSumFile equals the MD5
+	 *         checksum computed on the inputFile, false otherwise
+	 */
+	public static boolean fileHasExpectedMd5Checksum(File inputFile, File checkSumFile,
+			CheckSumExtractor checkSumExtractor, DigestCache digestCache) {
 		try {
 			String checkSumLine = FileReaderUtil.loadLinesFromFile(checkSumFile, CharacterEncoding.UTF_8).get(0);
 			String expectedChecksum = checkSumExtractor.extractCheckSumFromLine(checkSumLine);
-			String actualCheckSum = computeMd5Checksum(inputFile);
+			String actualCheckSum = (digestCache == null) ? computeMd5Checksum(inputFile) : digestCache.getDigest(
+					inputFile, DigestAlgorithm.MD5);
 			if (!expectedChecksum.equals(actualCheckSum))
 				logger.warn("MD5 check sum failure. Expected: '" + expectedChecksum + "' but was: '" + actualCheckSum
 						+ "'");
@@ -393,6 +575,22 @@ public class FileComparisonUtil {
 		return fileHasExpectedMd5Checksum(inputFile, checkSumFile);
 	}
 
+	/**
+	 * Assumes there is a file in the same directory as the input file called
+	 * [INPUT_FILE_NAME].md5 that contains the expected MD5 checksum for the
+	 * input file. Uses the {@link DefaultCheckSumExtractor}.
+	 * 
+	 * @param inputFile
+	 * @param digestCache
+	 *            the cache consulted for the MD5 checksum of the inputFile
+	 * @return true if the MD5 checksum in the checkSumFile equals the MD5
+	 *         checksum computed on the inputFile, false otherwise
+	 */
+	public static boolean fileHasExpectedMd5Checksum(File inputFile, DigestCache digestCache) {
+		File checkSumFile = getChecksumFile(inputFile);
+		return fileHasExpectedMd5Checksum(inputFile, checkSumFile, new DefaultCheckSumExtractor(), digestCache);
+	}
+
 	/**
 	 * Assumes there is a file in the same directory as the input file called
 	 * [INPUT_FILE_NAME].md5 that contains the expected MD5 checksum for the
@@ -410,6 +608,82 @@ public class FileComparisonUtil {
 		return fileHasExpectedMd5Checksum(inputFile, checkSumFile, checkSumExtractor);
 	}
 
+	/**
+	 * Computes a chunked MD5 digest of the input file using the default block
+	 * size and writes it to a file in the same directory called
+	 * [INPUT_FILE_NAME].merkle, next to the [INPUT_FILE_NAME].md5 file
+	 * 
+	 * @see ChunkedDigest
+	 * @param inputFile
+	 * @return the chunked digest file
+	 */
+	public static File createChunkedChecksumFile(File inputFile) {
+		return createChunkedChecksumFile(inputFile, DigestAlgorithm.MD5, ChunkedDigest.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Computes a chunked digest of the input file and writes it to a file in
+	 * the same directory called [INPUT_FILE_NAME].merkle
+	 * 
+	 * @param inputFile
+	 * @param algorithm
+	 * @param blockSize
+	 * @return the chunked digest file
+	 */
+	public static File createChunkedChecksumFile(File inputFile, DigestAlgorithm algorithm, int blockSize) {
+		try {
+			File chunkedChecksumFile = getChunkedChecksumFile(inputFile);
+			ChunkedDigest.compute(inputFile, algorithm, blockSize).write(chunkedChecksumFile);
+			return chunkedChecksumFile;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Simply appends .merkle to the input file name
+	 * 
+	 * @param inputFile
+	 * @return
+	 */
+	public static File getChunkedChecksumFile(File inputFile) {
+		return new File(inputFile.getAbsolutePath() + ".merkle");
+	}
+
+	/**
+	 * Assumes there is a file in the same directory as the input file called
+	 * [INPUT_FILE_NAME].merkle that contains the expected chunked digest for
+	 * the input file. Blocks are verified in parallel.
+	 * 
+	 * @param inputFile
+	 * @return the indexes of the blocks of the input file that do not match
+	 *         the expected chunked digest; the list is empty if the file is as
+	 *         expected
+	 */
+	public static List<Integer> findCorruptBlocks(File inputFile) {
+		try {
+			ChunkedDigest expectedDigest = ChunkedDigest.read(getChunkedChecksumFile(inputFile));
+			List<Integer> corruptBlocks = expectedDigest.verify(inputFile);
+			if (!corruptBlocks.isEmpty())
+				logger.warn(String.format("Chunked check sum failure. %d of %d blocks (of %d bytes) do not match: %s",
+						corruptBlocks.size(), expectedDigest.getBlockCount(), expectedDigest.getBlockSize(),
+						corruptBlocks.toString()));
+			return corruptBlocks;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @see #findCorruptBlocks(File)
+	 * @param inputFile
+	 * @return true if every block of the input file matches the expected
+	 *         chunked digest, false otherwise
+	 */
+	public static boolean fileHasExpectedChunkedChecksum(File inputFile) {
+		return findCorruptBlocks(inputFile).isEmpty();
+	}
+
 	/**
 	 * Computes the MD5 CheckSum for the input file
 	 * 
@@ -419,7 +693,7 @@ public class FileComparisonUtil {
 	 * @throws IOException
 	 */
 	public static String computeMd5Checksum(File inputFile) throws FileNotFoundException, IOException {
-		return DigestUtils.md5Hex(new FileInputStream(inputFile));
+		return DigestUtil.computeDigest(inputFile, DigestAlgorithm.MD5);
 	}
 
 }
@@ -41,13 +41,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.reader.ByteColumnScanner;
 import edu.ucdenver.ccp.common.file.reader.Line;
 import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+import edu.ucdenver.ccp.common.string.DelimitedLineParser;
 import edu.ucdenver.ccp.common.string.StringUtil;
+import edu.ucdenver.ccp.common.string.StringUtil.RemoveFieldEnclosures;
 
 /**
  * Utility method helpful when reading the content of a file
@@ -114,8 +119,13 @@ public class FileReaderUtil {
 	public static List<String[]> loadColumnsFromDelimitedFile(File inputFile, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int... columnIndexes) throws IOException,
 			ArrayIndexOutOfBoundsException, IllegalArgumentException {
-		return loadColumnsFromDelimitedFile(new FileInputStream(inputFile), encoding, delimiter, commentIndicator,
-				columnIndexes);
+		DelimitedFileIterator<String[]> columnIter = iterateColumnsFromDelimitedFile(inputFile, encoding, delimiter,
+				commentIndicator, columnIndexes);
+		try {
+			return toList(columnIter);
+		} finally {
+			columnIter.close();
+		}
 	}
 
 	/**
@@ -144,19 +154,529 @@ public class FileReaderUtil {
 	public static List<String[]> loadColumnsFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int... columnIndexes) throws IOException,
 			ArrayIndexOutOfBoundsException, IllegalArgumentException {
+		return toList(iterateColumnsFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator,
+				columnIndexes));
+	}
+
+	/**
+	 * Returns a lazy iterator over the column values of the input file; one String[] per line of
+	 * the file. Lines are read and parsed one at a time as the iterator advances. The delimiter and
+	 * column indexes are treated as in
+	 * {@link #loadColumnsFromDelimitedFile(File, CharacterEncoding, String, String, int...)}. The
+	 * returned iterator should be closed when no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static DelimitedFileIterator<String[]> iterateColumnsFromDelimitedFile(File inputFile,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, int... columnIndexes)
+			throws IOException, IllegalArgumentException {
+		validateColumnRequest(delimiter, columnIndexes);
+		return iterateColumnsFromDelimitedFile(new FileInputStream(inputFile), encoding, delimiter, commentIndicator,
+				columnIndexes);
+	}
+
+	/**
+	 * Returns a lazy iterator over the column values of the input stream; one String[] per line.
+	 * Closing the returned iterator closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static DelimitedFileIterator<String[]> iterateColumnsFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, final int... columnIndexes)
+			throws IOException, IllegalArgumentException {
+		validateColumnRequest(delimiter, columnIndexes);
+		final DelimitedLineParser parser = (delimiter == null) ? null : new DelimitedLineParser(delimiter);
+		return new DelimitedFileIterator<String[]>(new StreamLineIterator(inputStream, encoding, commentIndicator)) {
+			@Override
+			protected String[] convert(String line) {
+				if (parser == null) {
+					return new String[] { line };
+				}
+				return getColumnsFromLine(line, parser, columnIndexes);
+			}
+		};
+	}
+
+	/**
+	 * Returns a lazy <code>Stream</code> over the column values of the input file; one String[]
+	 * per line. The stream should be closed when no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static Stream<String[]> streamColumnsFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int... columnIndexes) throws IOException,
+			IllegalArgumentException {
+		return iterateColumnsFromDelimitedFile(inputFile, encoding, delimiter, commentIndicator, columnIndexes)
+				.stream();
+	}
+
+	/**
+	 * Returns a lazy <code>Stream</code> over the column values of the input stream; one String[]
+	 * per line. Closing the returned stream closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static Stream<String[]> streamColumnsFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, int... columnIndexes)
+			throws IOException, IllegalArgumentException {
+		return iterateColumnsFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndexes)
+				.stream();
+	}
+
+	/**
+	 * Returns a lazy iterator over the requested columns of a file delimited by a single ASCII
+	 * character, e.g. a tab. Unlike
+	 * {@link #iterateColumnsFromDelimitedFile(File, CharacterEncoding, String, String, int...)},
+	 * columns are located by scanning the raw bytes of the file and only the requested columns are
+	 * decoded, which is considerably faster when few of many columns are needed. The returned
+	 * scanner should be closed when no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 *            an ASCII character other than a line terminator
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 *            the columns to return; at least one is required
+	 * @return
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             - if the delimiter is not an ASCII character or no column indexes are requested
+	 * @see ByteColumnScanner
+	 */
+	public static ByteColumnScanner scanColumnsFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			char delimiter, String commentIndicator, int... columnIndexes) throws IOException,
+			IllegalArgumentException {
+		FileInputStream inputStream = new FileInputStream(inputFile);
+		try {
+			return new ByteColumnScanner(inputStream, encoding, delimiter, commentIndicator, columnIndexes);
+		} catch (IllegalArgumentException e) {
+			inputStream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a lazy iterator over the requested columns of an input stream delimited by a single
+	 * ASCII character. Closing the returned scanner closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 *            an ASCII character other than a line terminator
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 *            the columns to return; at least one is required
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             - if the delimiter is not an ASCII character or no column indexes are requested
+	 * @see ByteColumnScanner
+	 */
+	public static ByteColumnScanner scanColumnsFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, char delimiter, String commentIndicator, int... columnIndexes)
+			throws IllegalArgumentException {
+		return new ByteColumnScanner(inputStream, encoding, delimiter, commentIndicator, columnIndexes);
+	}
+
+	/**
+	 * Loads the requested columns of the input file into a dictionary-encoded
+	 * {@link ColumnarTable}. This is the preferred way to hold large files in memory whose values
+	 * repeat across many rows. The delimiter and column indexes are treated as in
+	 * {@link #loadColumnsFromDelimitedFile(File, CharacterEncoding, String, String, int...)}; if
+	 * the delimiter is null, the table has a single column containing the entire line.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if a requested column index does not exist
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static ColumnarTable loadColumnarTableFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int... columnIndexes) throws IOException,
+			ArrayIndexOutOfBoundsException, IllegalArgumentException {
+		DelimitedFileIterator<String[]> columnIter = iterateColumnsFromDelimitedFile(inputFile, encoding, delimiter,
+				commentIndicator, columnIndexes);
+		try {
+			return toColumnarTable(columnIter, (delimiter == null) ? 1 : columnIndexes.length);
+		} finally {
+			columnIter.close();
+		}
+	}
+
+	/**
+	 * Loads the requested columns of the input stream into a dictionary-encoded
+	 * {@link ColumnarTable}
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndexes
+	 * @return
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if a requested column index does not exist
+	 * @throws IllegalArgumentException
+	 *             - if a delimiter is specified, but no column indexes are requested
+	 */
+	public static ColumnarTable loadColumnarTableFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, int... columnIndexes)
+			throws IOException, ArrayIndexOutOfBoundsException, IllegalArgumentException {
+		return toColumnarTable(iterateColumnsFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator,
+				columnIndexes), (delimiter == null) ? 1 : columnIndexes.length);
+	}
+
+	private static ColumnarTable toColumnarTable(Iterator<String[]> rowIterator, int columnCount) {
+		ColumnarTable table = new ColumnarTable(columnCount);
+		while (rowIterator.hasNext()) {
+			table.addRow(rowIterator.next());
+		}
+		table.trimToSize();
+		return table;
+	}
+
+	/**
+	 * Loads the requested column of the input file as <code>int</code> values. Values are parsed
+	 * directly from each line without creating intermediate Strings or boxed Integers. If the
+	 * delimiter is null, the entire line is parsed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return the values of the column, one per (non-comment) line
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if the requested column index does not exist on a line; the message includes the
+	 *             line number
+	 * @throws NumberFormatException
+	 *             - if a value is not a valid int; the message includes the line number and column
+	 */
+	public static int[] loadIntColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding, String delimiter,
+			String commentIndicator, int columnIndex) throws IOException {
+		IntColumnBuffer buffer = new IntColumnBuffer();
+		loadPrimitiveColumn(inputFile, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	/**
+	 * Loads the requested column of the input stream as <code>int</code> values
+	 * 
+	 * @see #loadIntColumnFromDelimitedFile(File, CharacterEncoding, String, String, int)
+	 */
+	public static int[] loadIntColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		IntColumnBuffer buffer = new IntColumnBuffer();
+		loadPrimitiveColumn(inputStream, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	/**
+	 * Loads the requested column of the input file as <code>long</code> values. Values are parsed
+	 * directly from each line without creating intermediate Strings or boxed Longs. If the
+	 * delimiter is null, the entire line is parsed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return the values of the column, one per (non-comment) line
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if the requested column index does not exist on a line; the message includes the
+	 *             line number
+	 * @throws NumberFormatException
+	 *             - if a value is not a valid long; the message includes the line number and column
+	 */
+	public static long[] loadLongColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		LongColumnBuffer buffer = new LongColumnBuffer();
+		loadPrimitiveColumn(inputFile, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	/**
+	 * Loads the requested column of the input stream as <code>long</code> values
+	 * 
+	 * @see #loadLongColumnFromDelimitedFile(File, CharacterEncoding, String, String, int)
+	 */
+	public static long[] loadLongColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		LongColumnBuffer buffer = new LongColumnBuffer();
+		loadPrimitiveColumn(inputStream, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	/**
+	 * Loads the requested column of the input file as <code>double</code> values without boxing.
+	 * Any format accepted by {@link Double#parseDouble(String)} is supported. If the delimiter is
+	 * null, the entire line is parsed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return the values of the column, one per (non-comment) line
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if the requested column index does not exist on a line; the message includes the
+	 *             line number
+	 * @throws NumberFormatException
+	 *             - if a value is not a valid double; the message includes the line number and
+	 *             column
+	 */
+	public static double[] loadDoubleColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		DoubleColumnBuffer buffer = new DoubleColumnBuffer();
+		loadPrimitiveColumn(inputFile, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	/**
+	 * Loads the requested column of the input stream as <code>double</code> values
+	 * 
+	 * @see #loadDoubleColumnFromDelimitedFile(File, CharacterEncoding, String, String, int)
+	 */
+	public static double[] loadDoubleColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		DoubleColumnBuffer buffer = new DoubleColumnBuffer();
+		loadPrimitiveColumn(inputStream, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		return buffer.toArray();
+	}
+
+	private static void loadPrimitiveColumn(File inputFile, CharacterEncoding encoding, String delimiter,
+			String commentIndicator, int columnIndex, PrimitiveColumnBuffer buffer) throws IOException {
+		FileInputStream inputStream = new FileInputStream(inputFile);
+		try {
+			loadPrimitiveColumn(inputStream, encoding, delimiter, commentIndicator, columnIndex, buffer);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Locates the requested column on each line and hands its bounds to the buffer for parsing.
+	 * Line numbers in the messages of thrown exceptions are one-based.
+	 */
+	private static void loadPrimitiveColumn(InputStream inputStream, CharacterEncoding encoding, String delimiter,
+			String commentIndicator, int columnIndex, PrimitiveColumnBuffer buffer) throws IOException {
+		DelimitedLineParser parser = (delimiter == null) ? null : new DelimitedLineParser(delimiter);
+		int[] columnBounds = new int[2];
+		for (StreamLineIterator lineIter = new StreamLineIterator(inputStream, encoding, commentIndicator); lineIter
+				.hasNext();) {
+			Line line = lineIter.next();
+			String text = line.getText();
+			if (parser == null) {
+				columnBounds[0] = 0;
+				columnBounds[1] = text.length();
+			} else {
+				try {
+					parser.locateColumn(text, columnIndex, columnBounds);
+				} catch (ArrayIndexOutOfBoundsException e) {
+					throw new ArrayIndexOutOfBoundsException(String.format("Line %d: %s", line.getLineNumber() + 1,
+							e.getMessage()));
+				}
+			}
+			try {
+				buffer.add(text, columnBounds[0], columnBounds[1]);
+			} catch (NumberFormatException e) {
+				throw new NumberFormatException(String.format("Invalid %s value \"%s\" in column %d on line %d: %s",
+						buffer.getTypeName(), text.substring(columnBounds[0], columnBounds[1]), columnIndex,
+						line.getLineNumber() + 1, text));
+			}
+		}
+	}
+
+	/**
+	 * Parses a long value from the specified region of the input String without creating a
+	 * substring. An optional leading '+' or '-' sign is accepted.
+	 * 
+	 * @throws NumberFormatException
+	 *             if the region does not contain a valid long value
+	 */
+	private static long parseLong(String text, int start, int end) throws NumberFormatException {
+		if (start >= end) {
+			throw new NumberFormatException("empty value");
+		}
+		boolean negative = false;
+		char first = text.charAt(start);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			if (++start == end) {
+				throw new NumberFormatException("sign without digits");
+			}
+		}
+		/* accumulate negatively so that Long.MIN_VALUE can be represented */
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplicationLimit = limit / 10;
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+				throw new NumberFormatException("not a valid long");
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw new NumberFormatException("not a valid long");
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * A growable buffer of primitive values parsed directly from a region of a line
+	 */
+	private static abstract class PrimitiveColumnBuffer {
+		protected int size = 0;
+
+		protected abstract void add(String text, int start, int end) throws NumberFormatException;
+
+		protected abstract String getTypeName();
+
+		protected int newCapacity(int capacity) {
+			return capacity + Math.max(capacity >> 1, 16);
+		}
+	}
+
+	private static class IntColumnBuffer extends PrimitiveColumnBuffer {
+		private int[] values = new int[1024];
+
+		@Override
+		protected void add(String text, int start, int end) throws NumberFormatException {
+			long value = parseLong(text, start, end);
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("not a valid int");
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, newCapacity(size));
+			}
+			values[size++] = (int) value;
+		}
+
+		@Override
+		protected String getTypeName() {
+			return "int";
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private static class LongColumnBuffer extends PrimitiveColumnBuffer {
+		private long[] values = new long[1024];
+
+		@Override
+		protected void add(String text, int start, int end) throws NumberFormatException {
+			long value = parseLong(text, start, end);
+			if (size == values.length) {
+				values = Arrays.copyOf(values, newCapacity(size));
+			}
+			values[size++] = value;
+		}
+
+		@Override
+		protected String getTypeName() {
+			return "long";
+		}
+
+		private long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private static class DoubleColumnBuffer extends PrimitiveColumnBuffer {
+		private double[] values = new double[1024];
+
+		@Override
+		protected void add(String text, int start, int end) throws NumberFormatException {
+			double value = Double.parseDouble(text.substring(start, end));
+			if (size == values.length) {
+				values = Arrays.copyOf(values, newCapacity(size));
+			}
+			values[size++] = value;
+		}
+
+		@Override
+		protected String getTypeName() {
+			return "double";
+		}
+
+		private double[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * @param delimiter
+	 * @param columnIndexes
+	 * @throws IllegalArgumentException
+	 *             if a delimiter is specified, but no column indexes are requested
+	 */
+	private static void validateColumnRequest(String delimiter, int... columnIndexes)
+			throws IllegalArgumentException {
 		if (delimiter != null && (columnIndexes == null || columnIndexes.length == 0)) {
 			throw new IllegalArgumentException(String.format(
 					"Cannot parse columns from line. A delimiter \"%s\" has been specified, "
 							+ "however no columns have been requested. If you want the entire line, "
 							+ "set the delimiter to be null.", delimiter));
 		}
-		List<String[]> outputColumns = new ArrayList<String[]>();
-		for (StreamLineIterator lineIter = new StreamLineIterator(inputStream, encoding, commentIndicator); lineIter
-				.hasNext();) {
-			Line line = lineIter.next();
-			outputColumns.add(getColumnsFromLine(line.getText(), delimiter, columnIndexes));
+	}
+
+	/**
+	 * Drains the input iterator into a list
+	 * 
+	 * @param iterator
+	 * @return
+	 */
+	private static <T> List<T> toList(Iterator<T> iterator) {
+		List<T> list = new ArrayList<T>();
+		while (iterator.hasNext()) {
+			list.add(iterator.next());
 		}
-		return outputColumns;
+		return list;
 	}
 
 	/**
@@ -192,18 +712,26 @@ public class FileReaderUtil {
 			return new String[] { line };
 		}
 
-		String[] lineTokens = StringUtil.splitWithFieldEnclosure(line, delimiterRegex, fieldEnclosingRegex);
-		int[] cIndexes = columnIndexes;
-		if (columnIndexes == null || columnIndexes.length == 0) {
-			cIndexes = CollectionsUtil.createZeroBasedSequence(lineTokens.length);
-		}
-		String[] outputColumns = new String[cIndexes.length];
-		int outputIndex = 0;
-		for (int columnIndex : cIndexes) {
-			ensureColumnIndexIsValid(columnIndex, line, lineTokens);
-			outputColumns[outputIndex++] = lineTokens[columnIndex];
-		}
-		return outputColumns;
+		return StringUtil.splitColumnsWithFieldEnclosure(line, delimiterRegex, fieldEnclosingRegex,
+				RemoveFieldEnclosures.FALSE, columnIndexes);
+	}
+
+	/**
+	 * Returns the columns extracted from the input line using a precompiled
+	 * {@link DelimitedLineParser}. This is the preferred method when processing many lines that
+	 * share the same delimiter as the delimiter is only compiled once. Only the requested columns
+	 * are extracted, and the line is scanned no further than the highest requested column.
+	 * 
+	 * @param line
+	 * @param parser
+	 * @param columnIndexes
+	 *            if null or empty, all columns are returned
+	 * @return
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public static String[] getColumnsFromLine(String line, DelimitedLineParser parser, int... columnIndexes)
+			throws ArrayIndexOutOfBoundsException {
+		return parser.parseColumns(line, columnIndexes);
 	}
 
 	/**
@@ -220,12 +748,12 @@ public class FileReaderUtil {
 	 */
 	public static List<String> loadColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int columnIndex) throws IOException {
-		FileInputStream inputStream = new FileInputStream(inputFile);
+		DelimitedFileIterator<String> columnIter = iterateColumnFromDelimitedFile(inputFile, encoding, delimiter,
+				commentIndicator, columnIndex);
 		try {
-		return loadColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator,
-				columnIndex);
+			return toList(columnIter);
 		} finally {
-			inputStream.close();
+			columnIter.close();
 		}
 	}
 
@@ -243,14 +771,91 @@ public class FileReaderUtil {
 	 */
 	public static List<String> loadColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int columnIndex) throws IOException {
-		List<String[]> singleColumnAsArrayList = loadColumnsFromDelimitedFile(inputStream, encoding, delimiter,
-				commentIndicator, columnIndex);
-		List<String> outputList = new ArrayList<String>(singleColumnAsArrayList.size());
-		while (!singleColumnAsArrayList.isEmpty()) {
-			outputList.add(singleColumnAsArrayList.get(0)[0]);
-			singleColumnAsArrayList.remove(0);
-		}
-		return outputList;
+		return toList(iterateColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator,
+				columnIndex));
+	}
+
+	/**
+	 * Returns a lazy iterator over the contents of the requested column in the input file. If the
+	 * delimiter is null, the entire line is returned. The returned iterator should be closed when
+	 * no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 */
+	public static DelimitedFileIterator<String> iterateColumnFromDelimitedFile(File inputFile,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, int columnIndex)
+			throws IOException {
+		return iterateColumnFromDelimitedFile(new FileInputStream(inputFile), encoding, delimiter, commentIndicator,
+				columnIndex);
+	}
+
+	/**
+	 * Returns a lazy iterator over the contents of the requested column in the input stream. If
+	 * the delimiter is null, the entire line is returned. Closing the returned iterator closes the
+	 * input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 */
+	public static DelimitedFileIterator<String> iterateColumnFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, final int columnIndex)
+			throws IOException {
+		final DelimitedLineParser parser = (delimiter == null) ? null : new DelimitedLineParser(delimiter);
+		return new DelimitedFileIterator<String>(new StreamLineIterator(inputStream, encoding, commentIndicator)) {
+			@Override
+			protected String convert(String line) {
+				if (parser == null) {
+					return line;
+				}
+				return parser.parseColumns(line, columnIndex)[0];
+			}
+		};
+	}
+
+	/**
+	 * Returns a lazy <code>Stream</code> over the contents of the requested column in the input
+	 * file. The stream should be closed when no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<String> streamColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		return iterateColumnFromDelimitedFile(inputFile, encoding, delimiter, commentIndicator, columnIndex).stream();
+	}
+
+	/**
+	 * Returns a lazy <code>Stream</code> over the contents of the requested column in the input
+	 * stream. Closing the returned stream closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<String> streamColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		return iterateColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndex)
+				.stream();
 	}
 
 	/**
@@ -288,35 +893,80 @@ public class FileReaderUtil {
 	}
 
 	/**
-	 * Returns true if the input String[] contains a column for the input column Index, false
-	 * otherwise.
+	 * Returns a lazy iterator over the lines of the input File. The returned iterator should be
+	 * closed when no longer needed.
 	 * 
-	 * @param columnIndex
-	 * @param lineTokens
+	 * @param inputFile
+	 * @param encoding
+	 * @param commentIndicator
+	 *            lines starting with this prefix are skipped, may be null
 	 * @return
-	 * @throws ArrayIndexOutOfBoundsException
+	 * @throws IOException
 	 */
-	private static boolean isColumnIndexValid(int columnIndex, String[] lineTokens) {
-		return (columnIndex > -1 && columnIndex < lineTokens.length);
+	public static DelimitedFileIterator<String> iterateLinesFromFile(File inputFile, CharacterEncoding encoding,
+			String commentIndicator) throws IOException {
+		return iterateColumnFromDelimitedFile(inputFile, encoding, null, commentIndicator, 0);
+	}
+
+	/**
+	 * Returns a lazy iterator over the lines of the input stream. Closing the returned iterator
+	 * closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param commentIndicator
+	 *            lines starting with this prefix are skipped, may be null
+	 * @return
+	 * @throws IOException
+	 */
+	public static DelimitedFileIterator<String> iterateLinesFromFile(InputStream inputStream,
+			CharacterEncoding encoding, String commentIndicator) throws IOException {
+		return iterateColumnFromDelimitedFile(inputStream, encoding, null, commentIndicator, 0);
 	}
 
 	/**
-	 * Checks that the columnIndex index exists in the input String[]. If the index does not exist,
-	 * an exception is thrown.
+	 * Returns a lazy <code>Stream</code> over the lines of the input File. The stream should be
+	 * closed when no longer needed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param commentIndicator
+	 *            lines starting with this prefix are skipped, may be null
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<String> streamLinesFromFile(File inputFile, CharacterEncoding encoding,
+			String commentIndicator) throws IOException {
+		return iterateLinesFromFile(inputFile, encoding, commentIndicator).stream();
+	}
+
+	/**
+	 * Returns a lazy <code>Stream</code> over the lines of the input stream. Closing the returned
+	 * stream closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param commentIndicator
+	 *            lines starting with this prefix are skipped, may be null
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<String> streamLinesFromFile(InputStream inputStream, CharacterEncoding encoding,
+			String commentIndicator) throws IOException {
+		return iterateLinesFromFile(inputStream, encoding, commentIndicator).stream();
+	}
+
+	/**
+	 * Returns true if the input String[] contains a column for the input column Index, false
+	 * otherwise.
 	 * 
 	 * @param columnIndex
-	 * @param line
 	 * @param lineTokens
 	 * @return
 	 * @throws ArrayIndexOutOfBoundsException
 	 */
-	private static void ensureColumnIndexIsValid(int columnIndex, String line, String[] lineTokens)
-			throws ArrayIndexOutOfBoundsException {
-		if (!isColumnIndexValid(columnIndex, lineTokens)) {
-			throw new ArrayIndexOutOfBoundsException(String.format(
-					"Column index %d does not exist on line. There are only %d columns on line: %s", columnIndex,
-					lineTokens.length, line));
-		}
+	private static boolean isColumnIndexValid(int columnIndex, String[] lineTokens) {
+		return (columnIndex > -1 && columnIndex < lineTokens.length);
 	}
 
 }
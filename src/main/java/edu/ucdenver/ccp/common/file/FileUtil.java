@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -56,6 +57,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -75,6 +77,19 @@ import edu.ucdenver.ccp.common.string.StringUtil;
  */
 public class FileUtil {
 
+	/**
+	 * A conservative bound on the modification time granularity of common file systems (FAT
+	 * records modification times to the nearest two seconds)
+	 */
+	public static final long TIMESTAMP_GRANULARITY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+	/**
+	 * Returned by {@link #getSettledLastModifiedNanos(File)} for a file that was modified too
+	 * recently for its modification time to identify its content; never equal to the modification
+	 * time of a file
+	 */
+	public static final long UNSETTLED_TIMESTAMP = Long.MIN_VALUE;
+
 	/**
 	 * This enum replaces the need for the boolean cleanDirectory parameter that
 	 * has been used in the past
@@ -851,4 +866,45 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * @param file
+	 * @return the last modification time of the input file, in nanoseconds since the epoch, at the
+	 *         full resolution reported by the file system
+	 * @throws IOException
+	 */
+	public static long getLastModifiedNanos(File file) throws IOException {
+		return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param lastModifiedNanos
+	 *            the modification time of a file
+	 * @param readTimeNanos
+	 *            the time at which the file was read
+	 * @return true if the file was modified at least {@link #TIMESTAMP_GRANULARITY_NANOS} before it
+	 *         was read, i.e. any later modification is guaranteed to change its modification time
+	 */
+	public static boolean isModificationSettled(long lastModifiedNanos, long readTimeNanos) {
+		return readTimeNanos - lastModifiedNanos >= TIMESTAMP_GRANULARITY_NANOS;
+	}
+
+	/**
+	 * Returns the modification time to record in the fingerprint of a cache or index derived from
+	 * the input file, which should be called before the file is read. A file can be rewritten
+	 * without changing its modification time if both writes fall within the timestamp granularity
+	 * of the file system, so if the file was modified within {@link #TIMESTAMP_GRANULARITY_NANOS}
+	 * of now, {@link #UNSETTLED_TIMESTAMP} is returned; a fingerprint recording it never matches
+	 * the file, so the cache is rebuilt the next time it is used.
+	 * 
+	 * @param file
+	 * @return the modification time of the input file in nanoseconds, or
+	 *         {@link #UNSETTLED_TIMESTAMP} if it was modified too recently to be trusted
+	 * @throws IOException
+	 */
+	public static long getSettledLastModifiedNanos(File file) throws IOException {
+		long readTime = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		long lastModified = getLastModifiedNanos(file);
+		return isModificationSettled(lastModified, readTime) ? lastModified : UNSETTLED_TIMESTAMP;
+	}
+
 }
@@ -0,0 +1,545 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.FileComparisonReport.Mismatch;
+import edu.ucdenver.ccp.common.file.FileComparisonReport.MismatchType;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.ColumnOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineTrim;
+import edu.ucdenver.ccp.common.file.reader.Line;
+import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+import edu.ucdenver.ccp.common.string.DelimitedLineParser;
+
+/**
+ * Compares a file of actual output against a file of expected output without
+ * loading either file into memory. If line order matters, the two files are
+ * read in lockstep. If lines can appear in any order, the lines of both files
+ * are hash partitioned by line signature into spill files so that each
+ * partition can be matched in memory independently.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+final class StreamingFileComparator {
+
+	private static final Logger logger = Logger.getLogger(StreamingFileComparator.class);
+
+	/**
+	 * The default number of bytes of the file of expected output to place in
+	 * each partition when lines can appear in any order
+	 */
+	static final long DEFAULT_PARTITION_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * The maximum number of partitions a file is split into in a single pass.
+	 * Each partition has its own open output stream while a file is being
+	 * partitioned, so this is kept well below typical open file limits. A
+	 * partition that is still larger than the partition size is itself
+	 * partitioned in a further pass.
+	 */
+	static final int MAX_PARTITION_COUNT = 256;
+
+	/**
+	 * The maximum number of partitioning passes. Lines with equal signature
+	 * hash codes always share a partition, so a partition may remain large
+	 * however often it is partitioned; such a partition is matched in memory
+	 * once this depth is reached.
+	 */
+	private static final int MAX_PARTITION_DEPTH = 4;
+
+	private static final int PARTITION_BUFFER_SIZE = 16 * 1024;
+
+	private static final Charset PARTITION_CHARSET = Charset.forName("UTF-8");
+
+	private final CharacterEncoding encoding;
+	private final ColumnOrder columnOrder;
+	private final DelimitedLineParser columnParser;
+	private final LineTrim lineTrim;
+	private final File spillDirectory;
+	private final long partitionSize;
+
+	/**
+	 * @param encoding
+	 * @param columnDelimiterRegex
+	 * @param columnOrder
+	 * @param lineTrim
+	 * @param spillDirectory
+	 *            the directory where partition files are written; if null the
+	 *            system temporary directory is used
+	 * @param partitionSize
+	 *            the approximate number of bytes of the file of expected output
+	 *            to place in each partition
+	 */
+	StreamingFileComparator(CharacterEncoding encoding, String columnDelimiterRegex, ColumnOrder columnOrder,
+			LineTrim lineTrim, File spillDirectory, long partitionSize) {
+		if (partitionSize < 1) {
+			throw new IllegalArgumentException(String.format("The partition size must be greater than zero: %d",
+					partitionSize));
+		}
+		this.encoding = encoding;
+		this.columnOrder = columnOrder;
+		this.columnParser = (columnOrder == ColumnOrder.ANY_ORDER) ? new DelimitedLineParser(columnDelimiterRegex)
+				: null;
+		this.lineTrim = lineTrim;
+		this.spillDirectory = (spillDirectory == null) ? new File(System.getProperty("java.io.tmpdir"))
+				: spillDirectory;
+		this.partitionSize = partitionSize;
+	}
+
+	/**
+	 * @param file
+	 *            the file of actual output
+	 * @param expectedFile
+	 *            the file of expected output
+	 * @param lineOrder
+	 * @param maxMismatches
+	 *            the comparison stops once this many mismatches have been
+	 *            observed
+	 * @return a report of the differences between the two files
+	 * @throws IOException
+	 */
+	FileComparisonReport compare(File file, File expectedFile, LineOrder lineOrder, int maxMismatches)
+			throws IOException {
+		FileUtil.validateFile(file);
+		FileUtil.validateFile(expectedFile);
+		FileComparisonReport report = new FileComparisonReport(maxMismatches);
+		if (lineOrder == LineOrder.AS_IN_FILE) {
+			compareInOrder(file, expectedFile, report);
+		} else if (lineOrder == LineOrder.ANY_ORDER) {
+			compareInAnyOrder(file, expectedFile, report);
+		} else
+			throw new RuntimeException(String.format("Unknown LineOrder: %s", lineOrder.toString()));
+		return report;
+	}
+
+	/**
+	 * Walks both files in lockstep, comparing lines at the same position
+	 */
+	private void compareInOrder(File file, File expectedFile, FileComparisonReport report) throws IOException {
+		LineRecordIterator lineIter = new LineRecordIterator(file);
+		try {
+			LineRecordIterator expectedLineIter = new LineRecordIterator(expectedFile);
+			try {
+				while (lineIter.hasNext() || expectedLineIter.hasNext()) {
+					LineRecord line = lineIter.hasNext() ? lineIter.next() : null;
+					LineRecord expectedLine = expectedLineIter.hasNext() ? expectedLineIter.next() : null;
+					Mismatch mismatch = null;
+					if (line == null) {
+						mismatch = new Mismatch(MismatchType.MISSING_LINE, -1, null, expectedLine.lineNumber,
+								expectedLine.text);
+					} else if (expectedLine == null) {
+						mismatch = new Mismatch(MismatchType.UNEXPECTED_LINE, line.lineNumber, line.text, -1, null);
+					} else if (!getLineSignature(line.text).equals(getLineSignature(expectedLine.text))) {
+						mismatch = new Mismatch(MismatchType.DIFFERENT_LINE, line.lineNumber, line.text,
+								expectedLine.lineNumber, expectedLine.text);
+					}
+					if (mismatch != null && report.addMismatch(mismatch)) {
+						return;
+					}
+				}
+				report.complete(lineIter.getLineCount(), expectedLineIter.getLineCount());
+			} finally {
+				expectedLineIter.close();
+			}
+		} finally {
+			lineIter.close();
+		}
+	}
+
+	/**
+	 * Matches lines regardless of order. Small files are matched directly in
+	 * memory; larger files are first hash partitioned into spill files.
+	 */
+	private void compareInAnyOrder(File file, File expectedFile, FileComparisonReport report) throws IOException {
+		if (expectedFile.length() <= partitionSize) {
+			LineRecordIterator lineIter = new LineRecordIterator(file);
+			try {
+				LineRecordIterator expectedLineIter = new LineRecordIterator(expectedFile);
+				try {
+					if (!matchPartition(lineIter, expectedLineIter, report)) {
+						report.complete(lineIter.getLineCount(), expectedLineIter.getLineCount());
+					}
+				} finally {
+					expectedLineIter.close();
+				}
+			} finally {
+				lineIter.close();
+			}
+		} else {
+			comparePartitions(file, expectedFile, report);
+		}
+		report.sortMismatches();
+	}
+
+	private void comparePartitions(File file, File expectedFile, FileComparisonReport report) throws IOException {
+		File partitionDirectory = new File(spillDirectory, "file-comparison-" + UUID.randomUUID().toString());
+		FileUtil.mkdir(partitionDirectory);
+		try {
+			int partitionCount = getPartitionCount(expectedFile.length());
+			logger.info(String.format("Partitioning lines of %s and %s into %d partitions in %s",
+					file.getAbsolutePath(), expectedFile.getAbsolutePath(), partitionCount,
+					partitionDirectory.getAbsolutePath()));
+			long[] recordCounts;
+			LineRecordIterator lineIter = new LineRecordIterator(file);
+			try {
+				recordCounts = partition(lineIter, partitionDirectory, "actual", partitionCount, 0);
+			} finally {
+				lineIter.close();
+			}
+			long[] expectedRecordCounts;
+			LineRecordIterator expectedLineIter = new LineRecordIterator(expectedFile);
+			try {
+				expectedRecordCounts = partition(expectedLineIter, partitionDirectory, "expected", partitionCount, 0);
+			} finally {
+				expectedLineIter.close();
+			}
+			if (!matchPartitions(partitionDirectory, recordCounts, expectedRecordCounts, 0, report)) {
+				report.complete(sum(recordCounts), sum(expectedRecordCounts));
+			}
+		} finally {
+			FileUtil.deleteDirectory(partitionDirectory);
+		}
+	}
+
+	/**
+	 * Matches each pair of partitions in the input directory. A pair whose
+	 * expected partition is larger than the partition size is partitioned
+	 * again into a subdirectory before being matched.
+	 * 
+	 * @return true if a mismatch was dropped because the maximum number of
+	 *         mismatches had been reached
+	 * @throws IOException
+	 */
+	private boolean matchPartitions(File partitionDirectory, long[] recordCounts, long[] expectedRecordCounts,
+			int depth, FileComparisonReport report) throws IOException {
+		for (int i = 0; i < recordCounts.length; i++) {
+			File partitionFile = getPartitionFile(partitionDirectory, "actual", i);
+			File expectedPartitionFile = getPartitionFile(partitionDirectory, "expected", i);
+			boolean truncated;
+			if (expectedPartitionFile.length() > partitionSize && depth + 1 < MAX_PARTITION_DEPTH) {
+				int subpartitionCount = getPartitionCount(expectedPartitionFile.length());
+				File subpartitionDirectory = new File(partitionDirectory, "partition." + i);
+				FileUtil.mkdir(subpartitionDirectory);
+				long[] subpartitionRecordCounts;
+				PartitionIterator partitionIter = new PartitionIterator(partitionFile, recordCounts[i]);
+				try {
+					subpartitionRecordCounts = partition(partitionIter, subpartitionDirectory, "actual",
+							subpartitionCount, depth + 1);
+				} finally {
+					partitionIter.close();
+				}
+				long[] expectedSubpartitionRecordCounts;
+				PartitionIterator expectedPartitionIter = new PartitionIterator(expectedPartitionFile,
+						expectedRecordCounts[i]);
+				try {
+					expectedSubpartitionRecordCounts = partition(expectedPartitionIter, subpartitionDirectory,
+							"expected", subpartitionCount, depth + 1);
+				} finally {
+					expectedPartitionIter.close();
+				}
+				FileUtil.deleteFile(partitionFile);
+				FileUtil.deleteFile(expectedPartitionFile);
+				truncated = matchPartitions(subpartitionDirectory, subpartitionRecordCounts,
+						expectedSubpartitionRecordCounts, depth + 1, report);
+				FileUtil.deleteDirectory(subpartitionDirectory);
+			} else {
+				PartitionIterator partitionIter = new PartitionIterator(partitionFile, recordCounts[i]);
+				try {
+					PartitionIterator expectedPartitionIter = new PartitionIterator(expectedPartitionFile,
+							expectedRecordCounts[i]);
+					try {
+						truncated = matchPartition(partitionIter, expectedPartitionIter, report);
+					} finally {
+						expectedPartitionIter.close();
+					}
+				} finally {
+					partitionIter.close();
+				}
+			}
+			if (truncated) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of partitions needed to split the input number of
+	 *         expected bytes into partitions of the partition size, bounded by
+	 *         {@link #MAX_PARTITION_COUNT}
+	 */
+	private int getPartitionCount(long expectedByteCount) {
+		long partitionCount = (expectedByteCount + partitionSize - 1) / partitionSize;
+		return (int) Math.max(2, Math.min(MAX_PARTITION_COUNT, partitionCount));
+	}
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	/**
+	 * Matches the lines of a single partition using a multiset of the expected
+	 * lines keyed by line signature
+	 * 
+	 * @return true if a mismatch was dropped because the maximum number of
+	 *         mismatches had been reached
+	 */
+	private boolean matchPartition(Iterator<LineRecord> lineIter, Iterator<LineRecord> expectedLineIter,
+			FileComparisonReport report) {
+		Map<String, ArrayDeque<LineRecord>> signatureToExpectedLinesMap = new HashMap<String, ArrayDeque<LineRecord>>();
+		while (expectedLineIter.hasNext()) {
+			LineRecord expectedLine = expectedLineIter.next();
+			String signature = getLineSignature(expectedLine.text);
+			ArrayDeque<LineRecord> expectedLines = signatureToExpectedLinesMap.get(signature);
+			if (expectedLines == null) {
+				expectedLines = new ArrayDeque<LineRecord>(1);
+				signatureToExpectedLinesMap.put(signature, expectedLines);
+			}
+			expectedLines.add(expectedLine);
+		}
+		while (lineIter.hasNext()) {
+			LineRecord line = lineIter.next();
+			String signature = getLineSignature(line.text);
+			ArrayDeque<LineRecord> expectedLines = signatureToExpectedLinesMap.get(signature);
+			if (expectedLines == null) {
+				if (report.addMismatch(new Mismatch(MismatchType.UNEXPECTED_LINE, line.lineNumber, line.text, -1,
+						null))) {
+					return true;
+				}
+			} else {
+				expectedLines.poll();
+				if (expectedLines.isEmpty()) {
+					signatureToExpectedLinesMap.remove(signature);
+				}
+			}
+		}
+		List<LineRecord> missingLines = new ArrayList<LineRecord>();
+		for (ArrayDeque<LineRecord> expectedLines : signatureToExpectedLinesMap.values()) {
+			missingLines.addAll(expectedLines);
+		}
+		Collections.sort(missingLines, new Comparator<LineRecord>() {
+			@Override
+			public int compare(LineRecord r1, LineRecord r2) {
+				return Long.compare(r1.lineNumber, r2.lineNumber);
+			}
+		});
+		for (LineRecord expectedLine : missingLines) {
+			if (report.addMismatch(new Mismatch(MismatchType.MISSING_LINE, -1, null, expectedLine.lineNumber,
+					expectedLine.text))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Distributes the input lines among the partition files by line signature
+	 * hash. Each partitioning depth uses different bits of the hash so that a
+	 * partition can be split further.
+	 * 
+	 * @return the number of lines written to each partition
+	 * @throws IOException
+	 */
+	private long[] partition(Iterator<LineRecord> lineIter, File partitionDirectory, String prefix,
+			int partitionCount, int depth) throws IOException {
+		long[] recordCounts = new long[partitionCount];
+		DataOutputStream[] partitionStreams = new DataOutputStream[partitionCount];
+		try {
+			for (int i = 0; i < partitionCount; i++) {
+				partitionStreams[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+						getPartitionFile(partitionDirectory, prefix, i)), PARTITION_BUFFER_SIZE));
+			}
+			while (lineIter.hasNext()) {
+				LineRecord line = lineIter.next();
+				int hash = mix(getLineSignature(line.text).hashCode() + depth * 0x9E3779B9);
+				int partition = (hash & Integer.MAX_VALUE) % partitionCount;
+				byte[] bytes = line.text.getBytes(PARTITION_CHARSET);
+				partitionStreams[partition].writeLong(line.lineNumber);
+				partitionStreams[partition].writeInt(bytes.length);
+				partitionStreams[partition].write(bytes);
+				recordCounts[partition]++;
+			}
+		} finally {
+			for (DataOutputStream partitionStream : partitionStreams) {
+				if (partitionStream != null) {
+					partitionStream.close();
+				}
+			}
+		}
+		return recordCounts;
+	}
+
+	/**
+	 * The MurmurHash3 finalizer; spreads every input bit across the hash
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	private static File getPartitionFile(File partitionDirectory, String prefix, int partition) {
+		return new File(partitionDirectory, prefix + "." + partition);
+	}
+
+	private String getLineSignature(String line) {
+		return FileComparisonUtil.getLineSignature(line, columnOrder, columnParser);
+	}
+
+	/**
+	 * A line and its zero-based line number
+	 */
+	private static class LineRecord {
+		private final long lineNumber;
+		private final String text;
+
+		private LineRecord(long lineNumber, String text) {
+			this.lineNumber = lineNumber;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Iterates over the (optionally trimmed) lines of a file
+	 */
+	private class LineRecordIterator implements Iterator<LineRecord> {
+		private final StreamLineIterator lineIter;
+		private long lineCount = 0;
+
+		private LineRecordIterator(File file) throws IOException {
+			this.lineIter = new StreamLineIterator(file, encoding);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return lineIter.hasNext();
+		}
+
+		@Override
+		public LineRecord next() {
+			Line line = lineIter.next();
+			String text = (lineTrim == LineTrim.ON) ? line.getText().trim() : line.getText();
+			return new LineRecord(lineCount++, text);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("The remove() method is not supported for this iterator.");
+		}
+
+		private long getLineCount() {
+			return lineCount;
+		}
+
+		private void close() {
+			lineIter.close();
+		}
+	}
+
+	/**
+	 * Iterates over the line records stored in a partition file
+	 */
+	private static class PartitionIterator implements Iterator<LineRecord> {
+		private final DataInputStream partitionStream;
+		private long remainingRecords;
+
+		private PartitionIterator(File partitionFile, long recordCount) throws IOException {
+			this.partitionStream = new DataInputStream(new BufferedInputStream(new FileInputStream(partitionFile),
+					PARTITION_BUFFER_SIZE));
+			this.remainingRecords = recordCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remainingRecords > 0;
+		}
+
+		@Override
+		public LineRecord next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				long lineNumber = partitionStream.readLong();
+				byte[] bytes = new byte[partitionStream.readInt()];
+				partitionStream.readFully(bytes);
+				remainingRecords--;
+				return new LineRecord(lineNumber, new String(bytes, PARTITION_CHARSET));
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading partition file.", e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("The remove() method is not supported for this iterator.");
+		}
+
+		private void close() throws IOException {
+			partitionStream.close();
+		}
+	}
+
+}
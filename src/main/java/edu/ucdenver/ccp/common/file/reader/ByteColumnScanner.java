@@ -0,0 +1,402 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Extracts the requested columns from a file delimited by a single ASCII character (e.g. a tab)
+ * by scanning the raw bytes of the file. All supported {@link CharacterEncoding}s are
+ * ASCII-compatible, so the delimiter and line terminator bytes can never occur inside a
+ * multi-byte character; lines and columns are therefore located without decoding the file and
+ * only the bytes of the requested columns are decoded into Strings. For wide files of which only a
+ * few columns are needed, this avoids decoding the vast majority of the input.
+ * <p>
+ * Line terminators (LF, CR and CRLF) and comment lines are handled as by {@link StreamLineReader}.
+ * Returned rows contain the requested columns in the order requested. Instances are typically
+ * created using
+ * {@link edu.ucdenver.ccp.common.file.FileReaderUtil#scanColumnsFromDelimitedFile(File, CharacterEncoding, char, String, int...)}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ByteColumnScanner implements Iterator<String[]>, Closeable {
+
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+	private final InputStream inputStream;
+	private final CharsetDecoder decoder;
+	private final byte delimiter;
+	private final byte[] skipLinePrefix;
+	private final int[] columnIndexes;
+
+	/**
+	 * The start and end index in the buffer of each column up to the highest requested column of
+	 * the current line
+	 */
+	private final int[] columnBounds;
+
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * The index of the first unread byte in the buffer
+	 */
+	private int start = 0;
+
+	/**
+	 * The number of valid bytes in the buffer
+	 */
+	private int limit = 0;
+
+	private boolean endOfStream = false;
+
+	/**
+	 * The bounds of the current line in the buffer
+	 */
+	private int lineStart;
+	private int lineEnd;
+
+	/**
+	 * The zero-based number of the line most recently read
+	 */
+	private long lineNumber = -1;
+
+	private String[] nextRow = null;
+
+	/**
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 *            the column delimiter; must be an ASCII character other than CR or LF
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped, may be null
+	 * @param columnIndexes
+	 *            the zero-based indexes of the columns to return; at least one is required
+	 * @throws IllegalArgumentException
+	 *             if the delimiter is not a valid single-byte delimiter or no columns are requested
+	 */
+	public ByteColumnScanner(InputStream inputStream, CharacterEncoding encoding, char delimiter,
+			String skipLinePrefix, int... columnIndexes) {
+		if (delimiter >= 0x80 || delimiter == LF || delimiter == CR) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot scan columns using delimiter 0x%x. The delimiter must be an ASCII character other "
+							+ "than a line terminator.", (int) delimiter));
+		}
+		if (columnIndexes == null || columnIndexes.length == 0) {
+			throw new IllegalArgumentException("Cannot scan columns. No column indexes have been requested.");
+		}
+		int maxColumnIndex = -1;
+		for (int columnIndex : columnIndexes) {
+			maxColumnIndex = Math.max(maxColumnIndex, columnIndex);
+		}
+		this.inputStream = inputStream;
+		this.decoder = encoding.getDecoder();
+		this.delimiter = (byte) delimiter;
+		this.columnIndexes = columnIndexes.clone();
+		this.columnBounds = new int[2 * (maxColumnIndex + 1)];
+		try {
+			this.skipLinePrefix = (skipLinePrefix == null) ? null : skipLinePrefix.getBytes(encoding
+					.getCharacterSetName());
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 * @param skipLinePrefix
+	 * @param columnIndexes
+	 * @throws IOException
+	 * @see #ByteColumnScanner(InputStream, CharacterEncoding, char, String, int...)
+	 */
+	public ByteColumnScanner(File inputFile, CharacterEncoding encoding, char delimiter, String skipLinePrefix,
+			int... columnIndexes) throws IOException {
+		this(new FileInputStream(inputFile), encoding, delimiter, skipLinePrefix, columnIndexes);
+	}
+
+	/**
+	 * @return the requested columns of the next (non-comment) line, or null if there are no more
+	 *         lines
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested column does not exist on the line
+	 */
+	public String[] readRow() throws IOException {
+		while (readLine()) {
+			if (!skipLine()) {
+				return extractColumns();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the zero-based line number of the line from which the most recent row was read
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Locates the next line in the buffer, reading from the input stream as necessary
+	 * 
+	 * @return false if there are no more lines
+	 */
+	private boolean readLine() throws IOException {
+		int i = start;
+		while (true) {
+			while (i < limit) {
+				byte b = buffer[i];
+				if (b == LF || b == CR) {
+					if (b == CR && i + 1 == limit && !endOfStream) {
+						/* the next byte is needed to determine whether this is a CRLF */
+						break;
+					}
+					lineStart = start;
+					lineEnd = i;
+					start = (b == CR && i + 1 < limit && buffer[i + 1] == LF) ? i + 2 : i + 1;
+					lineNumber++;
+					return true;
+				}
+				i++;
+			}
+			if (endOfStream) {
+				if (start == limit) {
+					return false;
+				}
+				/* the final line has no terminator */
+				lineStart = start;
+				lineEnd = limit;
+				start = limit;
+				lineNumber++;
+				return true;
+			}
+			i = fillBuffer(i);
+		}
+	}
+
+	/**
+	 * Discards consumed bytes, grows the buffer if it is full and reads more bytes
+	 * 
+	 * @param scanIndex
+	 *            the index at which scanning will resume
+	 * @return the scan index adjusted for any bytes that were discarded
+	 */
+	private int fillBuffer(int scanIndex) throws IOException {
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, limit - start);
+			limit -= start;
+			scanIndex -= start;
+			start = 0;
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int count = inputStream.read(buffer, limit, buffer.length - limit);
+		if (count < 0) {
+			endOfStream = true;
+		} else {
+			limit += count;
+		}
+		return scanIndex;
+	}
+
+	/**
+	 * @return true if the current line starts with the skip line prefix, ignoring surrounding
+	 *         whitespace
+	 */
+	private boolean skipLine() {
+		if (skipLinePrefix == null) {
+			return false;
+		}
+		int s = lineStart;
+		int e = lineEnd;
+		while (s < e && (buffer[s] & 0xff) <= ' ') {
+			s++;
+		}
+		while (e > s && (buffer[e - 1] & 0xff) <= ' ') {
+			e--;
+		}
+		if (e - s < skipLinePrefix.length) {
+			return false;
+		}
+		for (int i = 0; i < skipLinePrefix.length; i++) {
+			if (buffer[s + i] != skipLinePrefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Locates the columns of the current line up to the highest requested column and decodes the
+	 * requested columns
+	 */
+	private String[] extractColumns() throws CharacterCodingException {
+		int columnCount = 0;
+		int maxColumnCount = columnBounds.length / 2;
+		int columnStart = lineStart;
+		for (int i = lineStart; i < lineEnd && columnCount < maxColumnCount; i++) {
+			if (buffer[i] == delimiter) {
+				columnBounds[2 * columnCount] = columnStart;
+				columnBounds[2 * columnCount + 1] = i;
+				columnCount++;
+				columnStart = i + 1;
+			}
+		}
+		if (columnCount < maxColumnCount) {
+			columnBounds[2 * columnCount] = columnStart;
+			columnBounds[2 * columnCount + 1] = lineEnd;
+			columnCount++;
+		}
+		String[] row = new String[columnIndexes.length];
+		for (int i = 0; i < columnIndexes.length; i++) {
+			int columnIndex = columnIndexes[i];
+			if (columnIndex < 0 || columnIndex >= columnCount) {
+				throw new ArrayIndexOutOfBoundsException(String.format(
+						"Column index %d does not exist on line. There are only %d columns on line: %s",
+						columnIndex, countColumns(), decode(lineStart, lineEnd)));
+			}
+			row[i] = decode(columnBounds[2 * columnIndex], columnBounds[2 * columnIndex + 1]);
+		}
+		return row;
+	}
+
+	/**
+	 * @return the total number of columns on the current line
+	 */
+	private int countColumns() {
+		int columnCount = 1;
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (buffer[i] == delimiter) {
+				columnCount++;
+			}
+		}
+		return columnCount;
+	}
+
+	private String decode(int from, int to) throws CharacterCodingException {
+		return decoder.decode(ByteBuffer.wrap(buffer, from, to - from)).toString();
+	}
+
+	/**
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		if (nextRow != null) {
+			return true;
+		}
+		try {
+			nextRow = readRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return nextRow != null;
+	}
+
+	/**
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public String[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String[] row = nextRow;
+		nextRow = null;
+		return row;
+	}
+
+	/**
+	 * This method is not supported
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if this method is called
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("The remove() operation is not supported by ByteColumnScanner.");
+	}
+
+	/**
+	 * @return a sequential <code>Stream</code> over the remaining rows. Closing the stream closes
+	 *         the underlying input stream.
+	 */
+	public Stream<String[]> stream() {
+		Stream<String[]> stream = StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+		return stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					close();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+
+}
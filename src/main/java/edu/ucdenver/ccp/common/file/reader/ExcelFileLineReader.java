@@ -54,6 +54,9 @@ import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
  * Simple class to read lines from an Excel file. This class assumes that the
  * first line in a header (and uses the header to determine the number of
  * columns in the file).
+ * <p>
+ * The entire workbook is loaded into memory. Large .xlsx files can be read with bounded memory
+ * using {@link StreamingExcelFileLineReader}.
  */
 public class ExcelFileLineReader extends LineReader<Line> {
 
@@ -0,0 +1,312 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFReader.SheetIterator;
+
+import edu.ucdenver.ccp.concurrency.ConcurrencyUtil;
+
+/**
+ * Reads the sheets of an Excel (.xlsx) workbook. The workbook file and its shared strings are
+ * opened once and shared by the readers of all sheets, and sheets are parsed as described for
+ * {@link StreamingExcelFileLineReader}, i.e. without loading the workbook into memory. Several
+ * sheets can be decoded concurrently, either into a single stream of lines in sheet order (see
+ * {@link #openSheets(List, String, ExecutorService)}) or by processing each sheet separately (see
+ * {@link #processSheets(List, String, ExecutorService, SheetProcessor)}). Each line returned is a
+ * {@link SheetLine} that identifies the sheet it was read from.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ExcelWorkbookReader implements Closeable {
+
+	/**
+	 * Implementations process the lines of a single sheet. Implementations are called concurrently
+	 * from multiple threads.
+	 * 
+	 * @param <R>
+	 *            the type of the result computed for each sheet
+	 */
+	public static interface SheetProcessor<R> {
+		/**
+		 * @param sheetName
+		 * @param reader
+		 *            returns the lines of the sheet; it is closed once this method returns
+		 * @return the result of processing the sheet
+		 * @throws IOException
+		 */
+		public R process(String sheetName, LineReader<SheetLine> reader) throws IOException;
+	}
+
+	/**
+	 * The package holding the workbook
+	 */
+	private final OPCPackage workbookPackage;
+
+	/**
+	 * The strings shared by all sheets of the workbook
+	 */
+	private final ReadOnlySharedStringsTable sharedStrings;
+
+	/**
+	 * The names of the sheets, in workbook order
+	 */
+	private final List<String> sheetNames = new ArrayList<String>();
+
+	/**
+	 * The package parts holding the XML of each sheet, in workbook order
+	 */
+	private final List<PackagePart> sheetParts = new ArrayList<PackagePart>();
+
+	/**
+	 * Opens the input workbook file for reading
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public ExcelWorkbookReader(File file) throws IOException {
+		workbookPackage = StreamingExcelFileLineReader.openPackage(file);
+		try {
+			sharedStrings = StreamingExcelFileLineReader.getSharedStrings(workbookPackage);
+			SheetIterator sheets = (SheetIterator) new XSSFReader(workbookPackage).getSheetsData();
+			while (sheets.hasNext()) {
+				sheets.next().close();
+				sheetNames.add(sheets.getSheetName());
+				sheetParts.add(sheets.getSheetPart());
+			}
+		} catch (OpenXML4JException e) {
+			workbookPackage.revert();
+			throw new IOException(e);
+		} catch (IOException | RuntimeException e) {
+			workbookPackage.revert();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the names of the sheets of the workbook, in workbook order
+	 */
+	public List<String> getSheetNames() {
+		return Collections.unmodifiableList(sheetNames);
+	}
+
+	/**
+	 * @param sheetName
+	 * @param skipLinePrefix
+	 * @return a reader that returns the lines of the specified sheet
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the workbook does not contain a sheet with the specified name
+	 */
+	public LineReader<SheetLine> openSheet(String sheetName, String skipLinePrefix) throws IOException {
+		int sheetIndex = getSheetIndex(sheetName);
+		InputStream sheetStream = sheetParts.get(sheetIndex).getInputStream();
+		/* the sheet stream is closed by the reader, including if it cannot be initialized */
+		StreamingExcelFileLineReader reader = new StreamingExcelFileLineReader(null, sharedStrings, sheetStream,
+				skipLinePrefix);
+		return new SheetLineReader(reader, sheetName, sheetIndex);
+	}
+
+	/**
+	 * Returns the lines of the specified sheets as a single sequence, in the order the sheets are
+	 * listed. The sheets are decoded concurrently ahead of the lines being read.
+	 * 
+	 * @param sheetNames
+	 *            the sheets to read, e.g. {@link #getSheetNames()}
+	 * @param skipLinePrefix
+	 * @param executor
+	 *            used to decode the sheets in the background; the sheets are submitted in order so
+	 *            an executor that runs tasks in submission order needs only a single thread. If
+	 *            null, each sheet is decoded by a dedicated daemon thread.
+	 * @return a reader that returns the lines of the sheets
+	 * @throws IOException
+	 */
+	public LineReader<SheetLine> openSheets(List<String> sheetNames, String skipLinePrefix, ExecutorService executor)
+			throws IOException {
+		List<LineReader<SheetLine>> readers = new ArrayList<LineReader<SheetLine>>();
+		try {
+			for (String sheetName : sheetNames) {
+				readers.add(new ReadAheadLineReader<SheetLine>(openSheet(sheetName, skipLinePrefix),
+						ReadAheadLineReader.DEFAULT_BATCH_SIZE, ReadAheadLineReader.DEFAULT_QUEUE_CAPACITY, executor));
+			}
+		} catch (IOException | RuntimeException e) {
+			for (LineReader<SheetLine> reader : readers) {
+				reader.close();
+			}
+			throw e;
+		}
+		return new ConcatenatedLineReader(readers);
+	}
+
+	/**
+	 * Processes the specified sheets concurrently using the input executor
+	 * 
+	 * @param sheetNames
+	 *            the sheets to process, e.g. {@link #getSheetNames()}
+	 * @param skipLinePrefix
+	 * @param executor
+	 * @param processor
+	 * @return the results of processing each sheet, in the order the sheets are listed
+	 * @throws IOException
+	 */
+	public <R> List<R> processSheets(List<String> sheetNames, final String skipLinePrefix, ExecutorService executor,
+			final SheetProcessor<R> processor) throws IOException {
+		List<Callable<R>> tasks = new ArrayList<Callable<R>>();
+		for (final String sheetName : sheetNames) {
+			/* fail fast if a sheet does not exist */
+			getSheetIndex(sheetName);
+			tasks.add(new Callable<R>() {
+				@Override
+				public R call() throws IOException {
+					LineReader<SheetLine> reader = openSheet(sheetName, skipLinePrefix);
+					try {
+						return processor.process(sheetName, reader);
+					} finally {
+						reader.close();
+					}
+				}
+			});
+		}
+		return ConcurrencyUtil.invokeAll(executor, tasks);
+	}
+
+	/**
+	 * @param sheetName
+	 * @return the position of the specified sheet within the workbook
+	 */
+	private int getSheetIndex(String sheetName) {
+		int sheetIndex = sheetNames.indexOf(sheetName);
+		if (sheetIndex == -1) {
+			throw new IllegalArgumentException(String.format(
+					"The workbook does not contain a sheet named '%s'. Sheets: %s", sheetName, sheetNames));
+		}
+		return sheetIndex;
+	}
+
+	/**
+	 * Closes the workbook. Readers of its sheets should be closed first.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		/* the package was opened for reading; revert closes it without saving */
+		workbookPackage.revert();
+	}
+
+	/**
+	 * Adapts the lines of a {@link StreamingExcelFileLineReader} to {@link SheetLine} instances
+	 */
+	private static class SheetLineReader extends LineReader<SheetLine> {
+
+		private final StreamingExcelFileLineReader reader;
+		private final String sheetName;
+		private final int sheetIndex;
+
+		public SheetLineReader(StreamingExcelFileLineReader reader, String sheetName, int sheetIndex) {
+			/* offsets are computed by the wrapped reader */
+			super(null, 0, 0, OffsetTracking.NONE);
+			this.reader = reader;
+			this.sheetName = sheetName;
+			this.sheetIndex = sheetIndex;
+		}
+
+		@Override
+		protected SheetLine getNextLine() throws IOException {
+			Line line = reader.readLine();
+			return (line == null) ? null : new SheetLine(line, sheetName, sheetIndex);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the lines of a sequence of readers, one reader after another
+	 */
+	private static class ConcatenatedLineReader extends LineReader<SheetLine> {
+
+		private final List<LineReader<SheetLine>> readers;
+		private int readerIndex = 0;
+
+		public ConcatenatedLineReader(List<LineReader<SheetLine>> readers) {
+			/* offsets are computed by the wrapped readers */
+			super(null, 0, 0, OffsetTracking.NONE);
+			this.readers = readers;
+		}
+
+		@Override
+		protected SheetLine getNextLine() throws IOException {
+			while (readerIndex < readers.size()) {
+				SheetLine line = readers.get(readerIndex).readLine();
+				if (line != null)
+					return line;
+				readers.get(readerIndex++).close();
+			}
+			return null;
+		}
+
+		@Override
+		public void close() throws IOException {
+			IOException exception = null;
+			for (LineReader<SheetLine> reader : readers) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					exception = e;
+				}
+			}
+			if (exception != null)
+				throw exception;
+		}
+	}
+
+}
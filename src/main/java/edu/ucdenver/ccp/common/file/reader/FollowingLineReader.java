@@ -0,0 +1,432 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A {@link LineReader} that follows a file as it grows, in the manner of <code>tail -F</code>.
+ * Only complete lines, i.e. lines followed by a line terminator, are returned; a partially written
+ * final line is held back until it is terminated. When the end of the file is reached,
+ * {@link #readLine()} waits, polling the file for new content, until another line is available
+ * or the reader is closed. {@link #pollLine()} returns immediately instead.
+ * <p>
+ * If the file is truncated, reading restarts from its beginning. If the file is replaced, e.g. by
+ * log rotation, the remaining content of the original file is read and reading continues from the
+ * beginning of the new file. Line numbers and offsets restart from zero in both cases.
+ * <p>
+ * The position of the next line to be returned is available from {@link #checkpoint()}, so that
+ * a follower can be restarted without re-reading the lines it has already consumed.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class FollowingLineReader extends LineReader<Line> {
+
+	private static final Logger logger = Logger.getLogger(FollowingLineReader.class);
+
+	/**
+	 * The default interval between checks for new content once the end of the file is reached
+	 */
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * The initial number of bytes read from the file at once. The segment grows if a single line
+	 * does not fit.
+	 */
+	private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * The checkpoint referring to the start of a file
+	 */
+	private static final LineCheckpoint START = new LineCheckpoint(LinePosition.START, false);
+
+	/**
+	 * The file being followed
+	 */
+	private final File file;
+
+	/**
+	 * The character encoding of the file
+	 */
+	private final CharacterEncoding encoding;
+
+	/**
+	 * The time to wait between checks for new content
+	 */
+	private final long pollIntervalMillis;
+
+	/**
+	 * Guards the channel and the decoded lines, so that {@link #close()} can be called by another
+	 * thread while a line is being read
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The channel of the file currently being read; null until the file exists
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Identifies the file currently being read; used to detect that the file has been replaced
+	 */
+	private Object fileKey;
+
+	/**
+	 * The position following the last line that has been decoded
+	 */
+	private LineCheckpoint checkpoint;
+
+	/**
+	 * Holds the bytes of the segment of the file being decoded
+	 */
+	private byte[] segment = new byte[INITIAL_SEGMENT_SIZE];
+
+	/**
+	 * Lines that have been decoded but not yet returned
+	 */
+	private final Deque<Line> lines = new ArrayDeque<Line>();
+
+	/**
+	 * Set once this reader has been closed
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Initializes a new <code>FollowingLineReader</code> that follows the input file from its
+	 * beginning
+	 * 
+	 * @param file
+	 *            the file to follow; it need not exist yet
+	 * @param encoding
+	 * @param skipLinePrefix
+	 */
+	public FollowingLineReader(File file, CharacterEncoding encoding, String skipLinePrefix) {
+		this(file, encoding, skipLinePrefix, START, DEFAULT_POLL_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Initializes a new <code>FollowingLineReader</code>
+	 * 
+	 * @param file
+	 *            the file to follow; it need not exist yet
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param checkpoint
+	 *            the position from which to start following the file, e.g. as returned by
+	 *            {@link #checkpoint()} before a previous follower was closed
+	 * @param pollIntervalMillis
+	 *            the time to wait between checks for new content once the end of the file has
+	 *            been reached
+	 */
+	public FollowingLineReader(File file, CharacterEncoding encoding, String skipLinePrefix,
+			LineCheckpoint checkpoint, long pollIntervalMillis) {
+		/* offsets are computed by the readers that decode each segment */
+		super(skipLinePrefix, 0, 0, OffsetTracking.NONE);
+		if (file.getName().endsWith(".gz")) {
+			throw new IllegalArgumentException(String.format("Cannot follow a compressed file: %s",
+					file.getAbsolutePath()));
+		}
+		this.file = file;
+		this.encoding = encoding;
+		this.checkpoint = checkpoint;
+		this.pollIntervalMillis = pollIntervalMillis;
+	}
+
+	/**
+	 * Waits until the next complete line is available
+	 * 
+	 * @return the next line, or null if this reader has been closed
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@Override
+	protected Line getNextLine() throws IOException {
+		while (!closed) {
+			Line line = pollLine();
+			if (line != null)
+				return line;
+			try {
+				Thread.sleep(pollIntervalMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(String.format("Interrupted while following file: %s",
+						file.getAbsolutePath()));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the next complete line if one is currently available, null otherwise
+	 * @throws IOException
+	 */
+	public Line pollLine() throws IOException {
+		return pollLine(false);
+	}
+
+	/**
+	 * @param includeUnterminatedLine
+	 *            if true and no complete line is available, any unterminated text at the end of
+	 *            the file is returned as a line; this is useful once the file is known to be
+	 *            complete
+	 * @return the next line if one is currently available, null otherwise
+	 * @throws IOException
+	 */
+	public Line pollLine(boolean includeUnterminatedLine) throws IOException {
+		synchronized (lock) {
+			if (closed)
+				return null;
+			if (lines.isEmpty()) {
+				readAvailableLines();
+				if (lines.isEmpty() && includeUnterminatedLine && channel != null)
+					readSegment(true);
+			}
+			return lines.poll();
+		}
+	}
+
+	/**
+	 * @return a checkpoint referring to the position of the next line to be returned
+	 */
+	public LineCheckpoint checkpoint() {
+		synchronized (lock) {
+			Line next = lines.peek();
+			if (next == null)
+				return checkpoint;
+			return new LineCheckpoint(new LinePosition(next.getLineNumber(), next.getCharacterOffset(),
+					next.getCodePointOffset(), next.getByteOffset()), false);
+		}
+	}
+
+	/**
+	 * Decodes the complete lines that have been appended to the file since it was last read. If
+	 * there are none, checks whether the file has been truncated or replaced.
+	 * 
+	 * @throws IOException
+	 */
+	private void readAvailableLines() throws IOException {
+		if (channel == null && !openFile())
+			return;
+		readCompleteLines();
+		if (!lines.isEmpty())
+			return;
+		if (channel.size() < checkpoint.getPosition().getByteOffset()) {
+			logger.info(String.format("File truncated; reading from the beginning: %s", file.getAbsolutePath()));
+			checkpoint = START;
+			readCompleteLines();
+			return;
+		}
+		Object currentFileKey = getFileKey();
+		if (fileKey != null && currentFileKey != null && !fileKey.equals(currentFileKey)) {
+			logger.info(String.format("File replaced; reading the new file from the beginning: %s",
+					file.getAbsolutePath()));
+			/* the original file will not grow any further so its final line is complete */
+			readSegment(true);
+			closeChannel();
+			checkpoint = START;
+			if (lines.isEmpty() && openFile())
+				readCompleteLines();
+		}
+	}
+
+	/**
+	 * Decodes segments of the file until at least one line is available or no complete lines
+	 * remain; a segment may contain only lines that are skipped
+	 * 
+	 * @throws IOException
+	 */
+	private void readCompleteLines() throws IOException {
+		while (lines.isEmpty() && readSegment(false)) {
+			/* continue with the next segment */
+		}
+	}
+
+	/**
+	 * Opens the file if it exists
+	 * 
+	 * @return true if the file was opened, false if it does not exist
+	 * @throws IOException
+	 */
+	private boolean openFile() throws IOException {
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		fileKey = getFileKey();
+		if (channel.size() < checkpoint.getPosition().getByteOffset()) {
+			logger.info(String.format("File is shorter than the checkpoint position; reading from the beginning: %s",
+					file.getAbsolutePath()));
+			checkpoint = START;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the key that identifies the file currently found at the followed path, or null if
+	 *         there is no such file or the file system does not provide keys
+	 * @throws IOException
+	 */
+	private Object getFileKey() throws IOException {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the bytes that follow the checkpoint up to and including the last line terminator and
+	 * decodes the lines they contain
+	 * 
+	 * @param includeUnterminatedLine
+	 *            if true, bytes that follow the last line terminator are decoded as a final line
+	 * @return true if any bytes were decoded, false if no complete line was available
+	 * @throws IOException
+	 */
+	private boolean readSegment(boolean includeUnterminatedLine) throws IOException {
+		long start = checkpoint.getPosition().getByteOffset();
+		long available = channel.size() - start;
+		if (available <= 0)
+			return false;
+		int segmentLength;
+		while (true) {
+			int read = read(start, (int) Math.min(available, segment.length));
+			segmentLength = lastLineTerminatorEnd(read);
+			if (includeUnterminatedLine && read == available)
+				segmentLength = read;
+			if (segmentLength > 0)
+				break;
+			if (read < available && read == segment.length) {
+				/* no line terminator was found; the line is longer than the segment */
+				segment = Arrays.copyOf(segment, segment.length * 2);
+			} else {
+				return false;
+			}
+		}
+		StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(segment, 0, segmentLength), encoding,
+				skipLinePrefix, checkpoint);
+		try {
+			for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(line);
+			}
+			checkpoint = reader.checkpoint();
+		} finally {
+			reader.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Reads bytes from the file into the segment buffer
+	 * 
+	 * @param position
+	 *            the file position of the first byte to read
+	 * @param length
+	 *            the number of bytes to read
+	 * @return the number of bytes read
+	 * @throws IOException
+	 */
+	private int read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(segment, 0, length);
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read == -1)
+				break;
+		}
+		return buffer.position();
+	}
+
+	/**
+	 * Line terminator characters are single bytes in all supported encodings and never occur
+	 * within the encoding of other characters, so the segment can be searched at the byte level.
+	 * 
+	 * @param length
+	 *            the number of valid bytes in the segment
+	 * @return the number of bytes in the segment up to and including the last line terminator, or
+	 *         0 if there is none
+	 */
+	private int lastLineTerminatorEnd(int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (segment[i] == '\n' || segment[i] == '\r')
+				return i + 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Closes the channel of the file currently being read
+	 * 
+	 * @throws IOException
+	 */
+	private void closeChannel() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+			fileKey = null;
+		}
+	}
+
+	/**
+	 * Stops following the file. This method may be called by another thread; a thread waiting in
+	 * {@link #readLine()} returns null once it next checks for new content. If that thread is
+	 * currently reading from the file, the channel is closed once it has finished.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		synchronized (lock) {
+			closeChannel();
+		}
+	}
+
+}
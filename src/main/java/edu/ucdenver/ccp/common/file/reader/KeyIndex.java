@@ -0,0 +1,555 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.string.DelimitedLineParser;
+
+/**
+ * A persistent index over one key column of a delimited file that returns the line(s) containing
+ * a given key without loading the file into memory. The index is an open-addressing hash table
+ * stored in a sidecar file next to the indexed file; each slot holds the hash of a key together
+ * with the byte offset and line number of a line containing it. A lookup hashes the key, probes
+ * the table and reads only the matching lines from the indexed file, so sparse lookups against
+ * very large files cost a few reads each rather than a full load of the file.<br>
+ * Like {@link LineIndex}, the index is built once and rebuilt automatically if the indexed file
+ * (based on its length and last modified time) or the indexing parameters change. An index built
+ * from a file that was modified too recently for its modification time to be trusted (see
+ * {@link FileUtil#getSettledLastModifiedNanos(File)}) is rebuilt the next time it is opened.<br>
+ * Note: compressed (.gz) files cannot be indexed as they do not support random access.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class KeyIndex implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(KeyIndex.class);
+
+	/**
+	 * The suffix of key index files
+	 */
+	public static final String FILE_SUFFIX = ".keyidx";
+
+	/**
+	 * Identifies a key index file
+	 */
+	private static final int MAGIC_NUMBER = 0x4b494458;
+
+	/**
+	 * The version of the index file format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of bytes used by a single slot of the hash table (key hash, byte offset + 1 and
+	 * line number stored as longs); a byte offset of zero marks an empty slot
+	 */
+	private static final int SLOT_LENGTH = 3 * 8;
+
+	/**
+	 * The number of slots in each memory-mapped region of the hash table, chosen so that each
+	 * region stays well below the 2GB limit of a single mapping
+	 */
+	private static final int SLOTS_PER_REGION = 1 << 25;
+
+	/**
+	 * The initial number of bytes read from the indexed file when looking up a line; doubled until
+	 * the line fits
+	 */
+	private static final int LINE_BUFFER_SIZE = 512;
+
+	/**
+	 * The indexed file
+	 */
+	private final File file;
+
+	/**
+	 * The character encoding of the indexed file
+	 */
+	private final CharacterEncoding encoding;
+
+	/**
+	 * Extracts the key column from lines of the indexed file
+	 */
+	private final DelimitedLineParser parser;
+
+	private final int keyColumnIndex;
+
+	/**
+	 * The number of lines in the index
+	 */
+	private final long entryCount;
+
+	/**
+	 * The number of slots in the hash table; a power of two
+	 */
+	private final long slotCount;
+
+	/**
+	 * The hash table, mapped in regions of {@link #SLOTS_PER_REGION} slots
+	 */
+	private final MappedByteBuffer[] regions;
+
+	/**
+	 * Reads lines of the indexed file using positional reads; open until the index is closed
+	 */
+	private final FileChannel channel;
+
+	private KeyIndex(File file, CharacterEncoding encoding, String delimiter, int keyColumnIndex, File indexFile)
+			throws IOException {
+		this.file = file;
+		this.encoding = encoding;
+		this.parser = new DelimitedLineParser(delimiter);
+		this.keyColumnIndex = keyColumnIndex;
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			Header header = Header.read(raf);
+			this.entryCount = header.entryCount;
+			this.slotCount = header.slotCount;
+			this.regions = mapRegions(raf.getChannel(), FileChannel.MapMode.READ_ONLY, raf.getFilePointer(),
+					slotCount);
+		} finally {
+			raf.close();
+		}
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Opens the key index for the specified column of the input file, building (or rebuilding)
+	 * the index file if it does not exist or is out of date
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param delimiter
+	 *            the regular expression delimiting the columns of the file
+	 * @param commentIndicator
+	 *            lines starting with this prefix are not indexed, may be null
+	 * @param keyColumnIndex
+	 *            the zero-based index of the key column
+	 * @return the {@link KeyIndex} for the specified column of the input file
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the input file is compressed or the delimiter is null or empty
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a line of the file does not contain the key column
+	 */
+	public static KeyIndex open(File file, CharacterEncoding encoding, String delimiter, String commentIndicator,
+			int keyColumnIndex) throws IOException {
+		if (delimiter == null || delimiter.isEmpty()) {
+			throw new IllegalArgumentException("A non-empty delimiter is required to index a column of file: "
+					+ file.getAbsolutePath());
+		}
+		File indexFile = getIndexFile(file, keyColumnIndex);
+		Header header = new Header(file.length(), FileUtil.getLastModifiedNanos(file), encoding.name(), delimiter,
+				commentIndicator, keyColumnIndex, 0, 0);
+		if (!isIndexCurrent(indexFile, header)) {
+			return build(file, encoding, header, indexFile);
+		}
+		return new KeyIndex(file, encoding, delimiter, keyColumnIndex, indexFile);
+	}
+
+	/**
+	 * @param file
+	 * @param keyColumnIndex
+	 * @return a reference to the sidecar index file for the specified column of the input file
+	 */
+	public static File getIndexFile(File file, int keyColumnIndex) {
+		return new File(file.getAbsolutePath() + ".col" + keyColumnIndex + FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the number of lines in the index
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Returns the lines of the indexed file whose key column equals the input key, in file order.
+	 * The returned lines carry their line number and byte offset; character and code point offsets
+	 * are not known without reading the file from the start and are reported as -1.
+	 * 
+	 * @param key
+	 * @return the matching lines, or an empty list if the key does not occur in the file
+	 * @throws IOException
+	 */
+	public List<Line> lookup(String key) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		long hash = hash(key);
+		int[] columnBounds = new int[2];
+		for (long slot = hash & (slotCount - 1);; slot = (slot + 1) & (slotCount - 1)) {
+			MappedByteBuffer region = regions[(int) (slot / SLOTS_PER_REGION)];
+			int position = (int) (slot % SLOTS_PER_REGION) * SLOT_LENGTH;
+			long byteOffset = region.getLong(position + 8) - 1;
+			if (byteOffset < 0) {
+				break;
+			}
+			if (region.getLong(position) == hash) {
+				Line line = readLine(byteOffset, region.getLong(position + 16));
+				parser.locateColumn(line.getText(), keyColumnIndex, columnBounds);
+				/* guard against hash collisions */
+				if (key.length() == columnBounds[1] - columnBounds[0]
+						&& line.getText().startsWith(key, columnBounds[0])) {
+					lines.add(line);
+				}
+			}
+		}
+		Collections.sort(lines, new Comparator<Line>() {
+			@Override
+			public int compare(Line line1, Line line2) {
+				return Long.compare(line1.getLineNumber(), line2.getLineNumber());
+			}
+		});
+		return lines;
+	}
+
+	/**
+	 * Reads the line starting at the specified byte offset of the indexed file. Line terminators
+	 * are located in the raw bytes, which is safe as all supported encodings are ASCII-compatible;
+	 * as with {@link StreamLineReader}, an unterminated final line is treated as LF-terminated.
+	 * 
+	 * @param byteOffset
+	 * @param lineNumber
+	 * @return the line starting at the specified byte offset of the indexed file
+	 * @throws IOException
+	 */
+	private Line readLine(long byteOffset, long lineNumber) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(LINE_BUFFER_SIZE);
+		boolean endOfFile = false;
+		int scan = 0;
+		LineTerminator lineTerminator;
+		while (true) {
+			int limit = buffer.position();
+			while (scan < limit && buffer.get(scan) != '\n' && buffer.get(scan) != '\r') {
+				scan++;
+			}
+			if (scan < limit) {
+				if (buffer.get(scan) == '\n') {
+					lineTerminator = LineTerminator.LF;
+					break;
+				}
+				/* a carriage return needs the following byte to distinguish CR from CRLF */
+				if (scan + 1 < limit || endOfFile) {
+					lineTerminator = (scan + 1 < limit && buffer.get(scan + 1) == '\n') ? LineTerminator.CRLF
+							: LineTerminator.CR;
+					break;
+				}
+			} else if (endOfFile) {
+				if (scan == 0) {
+					throw new EOFException(String.format(
+							"Key index is out of date. No line at byte offset %d in file: %s", byteOffset,
+							file.getAbsolutePath()));
+				}
+				lineTerminator = LineTerminator.LF;
+				break;
+			}
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			endOfFile = channel.read(buffer, byteOffset + buffer.position()) < 0;
+		}
+		String text = encoding.getDecoder().decode(ByteBuffer.wrap(buffer.array(), 0, scan)).toString();
+		return new Line(text, lineTerminator, -1, -1, lineNumber, byteOffset);
+	}
+
+	/**
+	 * Reads the input file from start to finish, writing the key hash and position of each line
+	 * to a temporary file, and then inserts the entries into a hash table sized for them. The table
+	 * is written to a uniquely named temporary file that then atomically replaces the index file,
+	 * so concurrent builders never share a temporary file.
+	 * 
+	 * @return the index mapped from the newly built index file
+	 */
+	private static KeyIndex build(File file, CharacterEncoding encoding, Header header, File indexFile)
+			throws IOException {
+		if (file.getName().endsWith(".gz")) {
+			throw new IllegalArgumentException(String.format("Cannot build a key index for a compressed file: %s",
+					file.getAbsolutePath()));
+		}
+		FileUtil.validateFile(file);
+		logger.info(String.format("Building key index for column %d of file: %s", header.keyColumnIndex,
+				file.getAbsolutePath()));
+		long lastModified = FileUtil.getSettledLastModifiedNanos(file);
+		File directory = indexFile.getAbsoluteFile().getParentFile();
+		File entriesFile = File.createTempFile(indexFile.getName(), ".entries.tmp", directory);
+		File tempFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+		try {
+			long entryCount = writeEntries(file, encoding, header, entriesFile);
+			long slotCount = 16;
+			while (slotCount < 2 * entryCount) {
+				slotCount <<= 1;
+			}
+			header = new Header(header.length, lastModified, header.encoding, header.delimiter,
+					header.commentIndicator, header.keyColumnIndex, entryCount, slotCount);
+			writeTable(header, entriesFile, tempFile);
+			/*
+			 * the index is mapped before the move so that it is read from this file even if another
+			 * builder replaces the index file
+			 */
+			KeyIndex index = new KeyIndex(file, encoding, header.delimiter, header.keyColumnIndex, tempFile);
+			try {
+				Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				index.close();
+				throw e;
+			}
+			return index;
+		} finally {
+			Files.deleteIfExists(entriesFile.toPath());
+			Files.deleteIfExists(tempFile.toPath());
+		}
+	}
+
+	/**
+	 * @return the number of entries written
+	 */
+	private static long writeEntries(File file, CharacterEncoding encoding, Header header, File entriesFile)
+			throws IOException {
+		DelimitedLineParser parser = new DelimitedLineParser(header.delimiter);
+		int[] columnBounds = new int[2];
+		long entryCount = 0;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(entriesFile)));
+		StreamLineReader reader = new StreamLineReader(file, encoding, header.commentIndicator);
+		try {
+			for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+				String text = line.getText();
+				parser.locateColumn(text, header.keyColumnIndex, columnBounds);
+				out.writeLong(hash(text, columnBounds[0], columnBounds[1]));
+				out.writeLong(line.getByteOffset());
+				out.writeLong(line.getLineNumber());
+				entryCount++;
+			}
+		} finally {
+			reader.close();
+			out.close();
+		}
+		return entryCount;
+	}
+
+	private static void writeTable(Header header, File entriesFile, File tableFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tableFile)));
+		try {
+			header.write(out);
+		} finally {
+			out.close();
+		}
+		long tableOffset = tableFile.length();
+		RandomAccessFile raf = new RandomAccessFile(tableFile, "rw");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entriesFile)));
+		try {
+			raf.setLength(tableOffset + header.slotCount * SLOT_LENGTH);
+			MappedByteBuffer[] regions = mapRegions(raf.getChannel(), FileChannel.MapMode.READ_WRITE, tableOffset,
+					header.slotCount);
+			for (long i = 0; i < header.entryCount; i++) {
+				long hash = in.readLong();
+				long byteOffset = in.readLong();
+				long lineNumber = in.readLong();
+				for (long slot = hash & (header.slotCount - 1);; slot = (slot + 1) & (header.slotCount - 1)) {
+					MappedByteBuffer region = regions[(int) (slot / SLOTS_PER_REGION)];
+					int position = (int) (slot % SLOTS_PER_REGION) * SLOT_LENGTH;
+					if (region.getLong(position + 8) == 0) {
+						region.putLong(position, hash);
+						region.putLong(position + 8, byteOffset + 1);
+						region.putLong(position + 16, lineNumber);
+						break;
+					}
+				}
+			}
+			for (MappedByteBuffer region : regions) {
+				region.force();
+			}
+		} finally {
+			in.close();
+			raf.close();
+		}
+	}
+
+	private static MappedByteBuffer[] mapRegions(FileChannel channel, FileChannel.MapMode mode, long tableOffset,
+			long slotCount) throws IOException {
+		int regionCount = (int) ((slotCount + SLOTS_PER_REGION - 1) / SLOTS_PER_REGION);
+		MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+		for (int i = 0; i < regionCount; i++) {
+			long firstSlot = (long) i * SLOTS_PER_REGION;
+			long regionSlots = Math.min(SLOTS_PER_REGION, slotCount - firstSlot);
+			regions[i] = channel.map(mode, tableOffset + firstSlot * SLOT_LENGTH, regionSlots * SLOT_LENGTH);
+		}
+		return regions;
+	}
+
+	private static boolean isIndexCurrent(File indexFile, Header expectedHeader) throws IOException {
+		if (!indexFile.exists()) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			Header header = Header.read(raf);
+			return header.matches(expectedHeader)
+					&& raf.length() == raf.getFilePointer() + header.slotCount * SLOT_LENGTH;
+		} catch (EOFException e) {
+			return false;
+		} catch (IOException e) {
+			logger.warn("Rebuilding unreadable key index: " + indexFile.getAbsolutePath(), e);
+			return false;
+		} finally {
+			raf.close();
+		}
+	}
+
+	static long hash(String key) {
+		return hash(key, 0, key.length());
+	}
+
+	/**
+	 * @return a 64-bit hash (FNV-1a followed by a final avalanche step) of the specified region
+	 *         of the input String; stable across JVMs so that it can be persisted
+	 */
+	static long hash(String text, int start, int end) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		/* the mapped regions are released when garbage collected */
+		channel.close();
+	}
+
+	/**
+	 * The header of a key index file
+	 */
+	private static class Header {
+		private final long length;
+		private final long lastModified;
+		private final String encoding;
+		private final String delimiter;
+		private final String commentIndicator;
+		private final int keyColumnIndex;
+		private final long entryCount;
+		private final long slotCount;
+
+		private Header(long length, long lastModified, String encoding, String delimiter, String commentIndicator,
+				int keyColumnIndex, long entryCount, long slotCount) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.encoding = encoding;
+			this.delimiter = delimiter;
+			this.commentIndicator = commentIndicator;
+			this.keyColumnIndex = keyColumnIndex;
+			this.entryCount = entryCount;
+			this.slotCount = slotCount;
+		}
+
+		/**
+		 * @return true if the indexed file and indexing parameters of this header match those of
+		 *         the input header
+		 */
+		private boolean matches(Header other) {
+			return length == other.length && lastModified == other.lastModified && encoding.equals(other.encoding)
+					&& delimiter.equals(other.delimiter)
+					&& (commentIndicator == null ? other.commentIndicator == null : commentIndicator
+							.equals(other.commentIndicator)) && keyColumnIndex == other.keyColumnIndex;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			out.writeLong(length);
+			out.writeLong(lastModified);
+			out.writeUTF(encoding);
+			out.writeUTF(delimiter);
+			out.writeBoolean(commentIndicator != null);
+			out.writeUTF(commentIndicator == null ? "" : commentIndicator);
+			out.writeInt(keyColumnIndex);
+			out.writeLong(entryCount);
+			out.writeLong(slotCount);
+		}
+
+		private static Header read(RandomAccessFile raf) throws IOException {
+			if (raf.readInt() != MAGIC_NUMBER || raf.readInt() != VERSION) {
+				throw new IOException("Not a key index file of version " + VERSION);
+			}
+			long length = raf.readLong();
+			long lastModified = raf.readLong();
+			String encoding = raf.readUTF();
+			String delimiter = raf.readUTF();
+			boolean hasCommentIndicator = raf.readBoolean();
+			String commentIndicator = raf.readUTF();
+			return new Header(length, lastModified, encoding, delimiter, hasCommentIndicator ? commentIndicator
+					: null, raf.readInt(), raf.readLong(), raf.readLong());
+		}
+	}
+
+}
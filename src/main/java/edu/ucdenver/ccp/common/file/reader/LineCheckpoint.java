@@ -0,0 +1,197 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Captures the exact position of a {@link StreamLineReader} so that reading can later be resumed
+ * from that position, e.g. after a long-running job fails, without rescanning the input from the
+ * start. A checkpoint records the position of the next line to be read along with whether the
+ * last line read was terminated by a carriage return at the end of the available input; in that
+ * case a line feed that is appended later completes a CRLF terminator rather than an empty line.
+ * 
+ * @see StreamLineReader#checkpoint()
+ * @see StreamLineReader#resume(File, edu.ucdenver.ccp.common.file.CharacterEncoding, String,
+ *      LineCheckpoint)
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineCheckpoint {
+
+	private static final String LINE_NUMBER_PROPERTY = "lineNumber";
+	private static final String CHARACTER_OFFSET_PROPERTY = "characterOffset";
+	private static final String CODE_POINT_OFFSET_PROPERTY = "codePointOffset";
+	private static final String BYTE_OFFSET_PROPERTY = "byteOffset";
+	private static final String PENDING_CARRIAGE_RETURN_PROPERTY = "pendingCarriageReturn";
+
+	/**
+	 * The position of the next line to be read
+	 */
+	private final LinePosition position;
+
+	/**
+	 * True if the last line read was terminated by a carriage return that was the last character
+	 * available
+	 */
+	private final boolean pendingCarriageReturn;
+
+	/**
+	 * @param position
+	 *            the position of the next line to be read
+	 * @param pendingCarriageReturn
+	 *            true if the last line read was terminated by a carriage return that was the last
+	 *            character available
+	 */
+	public LineCheckpoint(LinePosition position, boolean pendingCarriageReturn) {
+		this.position = position;
+		this.pendingCarriageReturn = pendingCarriageReturn;
+	}
+
+	/**
+	 * @return the position of the next line to be read
+	 */
+	public LinePosition getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return true if a line feed at the checkpoint position completes the terminator of the last
+	 *         line read
+	 */
+	public boolean hasPendingCarriageReturn() {
+		return pendingCarriageReturn;
+	}
+
+	/**
+	 * Writes this checkpoint to the specified file. The checkpoint is first written to a temporary
+	 * file which then replaces the checkpoint file, so a failure while saving never leaves a
+	 * partially written checkpoint behind.
+	 * 
+	 * @param checkpointFile
+	 * @throws IOException
+	 */
+	public void save(File checkpointFile) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(LINE_NUMBER_PROPERTY, Long.toString(position.getLineNumber()));
+		properties.setProperty(CHARACTER_OFFSET_PROPERTY, Long.toString(position.getCharacterOffset()));
+		properties.setProperty(CODE_POINT_OFFSET_PROPERTY, Long.toString(position.getCodePointOffset()));
+		properties.setProperty(BYTE_OFFSET_PROPERTY, Long.toString(position.getByteOffset()));
+		properties.setProperty(PENDING_CARRIAGE_RETURN_PROPERTY, Boolean.toString(pendingCarriageReturn));
+		File tempFile = new File(checkpointFile.getAbsolutePath() + ".tmp");
+		OutputStream out = new FileOutputStream(tempFile);
+		try {
+			properties.store(out, "line reader checkpoint");
+		} finally {
+			out.close();
+		}
+		Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param checkpointFile
+	 * @return the checkpoint stored in the specified file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file does not contain a valid checkpoint
+	 */
+	public static LineCheckpoint load(File checkpointFile) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(checkpointFile);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		LinePosition position = new LinePosition(getLong(properties, LINE_NUMBER_PROPERTY, checkpointFile),
+				getLong(properties, CHARACTER_OFFSET_PROPERTY, checkpointFile), getLong(properties,
+						CODE_POINT_OFFSET_PROPERTY, checkpointFile), getLong(properties, BYTE_OFFSET_PROPERTY,
+						checkpointFile));
+		return new LineCheckpoint(position, Boolean.parseBoolean(properties
+				.getProperty(PENDING_CARRIAGE_RETURN_PROPERTY)));
+	}
+
+	/**
+	 * @param properties
+	 * @param key
+	 * @param checkpointFile
+	 * @return the value of the specified property parsed as a long
+	 */
+	private static long getLong(Properties properties, String key, File checkpointFile) {
+		String value = properties.getProperty(key);
+		if (value == null) {
+			throw new IllegalArgumentException(String.format("Invalid checkpoint file. Missing property '%s': %s",
+					key, checkpointFile.getAbsolutePath()));
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid checkpoint file. Property '%s' is not a number (%s): %s", key, value,
+					checkpointFile.getAbsolutePath()), e);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof LineCheckpoint))
+			return false;
+		LineCheckpoint other = (LineCheckpoint) obj;
+		return pendingCarriageReturn == other.pendingCarriageReturn && position.equals(other.position);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * position.hashCode() + (pendingCarriageReturn ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s PendingCR:%b", position, pendingCarriageReturn);
+	}
+
+}
@@ -0,0 +1,91 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Describes a contiguous range of bytes within a file that begins at the start of a line and ends
+ * immediately after a line terminator (or at the end of the file). The start position records the
+ * line number and offsets of the first line in the chunk relative to the start of the file.
+ * 
+ * @author bill
+ * 
+ */
+public class LineChunk {
+
+	/**
+	 * The position of the first line in the chunk
+	 */
+	private final LinePosition startPosition;
+
+	/**
+	 * The file position one past the last byte in the chunk
+	 */
+	private final long endByteOffset;
+
+	/**
+	 * @param startPosition
+	 * @param endByteOffset
+	 */
+	public LineChunk(LinePosition startPosition, long endByteOffset) {
+		this.startPosition = startPosition;
+		this.endByteOffset = endByteOffset;
+	}
+
+	/**
+	 * @return the position of the first line in the chunk
+	 */
+	public LinePosition getStartPosition() {
+		return startPosition;
+	}
+
+	/**
+	 * @return the file position one past the last byte in the chunk
+	 */
+	public long getEndByteOffset() {
+		return endByteOffset;
+	}
+
+	/**
+	 * @return the number of bytes in the chunk
+	 */
+	public long getByteLength() {
+		return endByteOffset - startPosition.getByteOffset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s - ByteOffset:%d", startPosition, endByteOffset);
+	}
+
+}
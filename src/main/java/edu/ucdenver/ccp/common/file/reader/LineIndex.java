@@ -0,0 +1,369 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileUtil;
+
+/**
+ * A persistent index of the start position (character, code point and byte offsets) of every line
+ * in a file. The index is stored in a sidecar file next to the indexed file (the file name with
+ * {@link #FILE_SUFFIX} appended) and is built once per file; it is rebuilt automatically if the
+ * indexed file changes (based on its length and last modified time). An index built from a file
+ * that was modified too recently for its modification time to be trusted (see
+ * {@link FileUtil#getSettledLastModifiedNanos(File)}) is rebuilt the next time it is opened.<br>
+ * Once built, the position of line N is looked up in constant time, and a {@link StreamLineReader}
+ * can be opened at line N without re-reading the file from the start. The line containing a given
+ * byte offset is found using a binary search over the index.<br>
+ * Note: compressed (.gz) files cannot be indexed as they do not support random access.
+ * 
+ * @author bill
+ * 
+ */
+public class LineIndex implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(LineIndex.class);
+
+	/**
+	 * The suffix appended to the name of the indexed file to create the name of the index file
+	 */
+	public static final String FILE_SUFFIX = ".lineidx";
+
+	/**
+	 * Identifies a line index file
+	 */
+	private static final int MAGIC_NUMBER = 0x4c494458;
+
+	/**
+	 * The version of the index file format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of bytes used to store the offsets of a single line (byte, character and code
+	 * point offsets stored as longs)
+	 */
+	private static final int RECORD_LENGTH = 3 * 8;
+
+	/**
+	 * The indexed file
+	 */
+	private final File file;
+
+	/**
+	 * The character encoding of the indexed file
+	 */
+	private final CharacterEncoding encoding;
+
+	/**
+	 * Provides access to the index file
+	 */
+	private final RandomAccessFile indexRaf;
+
+	/**
+	 * The number of bytes preceding the first line record in the index file
+	 */
+	private final long headerLength;
+
+	/**
+	 * The number of lines in the indexed file
+	 */
+	private final long lineCount;
+
+	/**
+	 * @param file
+	 *            the indexed file
+	 * @param encoding
+	 *            the encoding of the indexed file
+	 * @param indexFile
+	 *            a valid index file for the indexed file
+	 * @throws IOException
+	 */
+	private LineIndex(File file, CharacterEncoding encoding, File indexFile) throws IOException {
+		this.file = file;
+		this.encoding = encoding;
+		this.indexRaf = new RandomAccessFile(indexFile, "r");
+		skipHeader(indexRaf);
+		this.headerLength = indexRaf.getFilePointer();
+		this.lineCount = (indexRaf.length() - headerLength) / RECORD_LENGTH;
+	}
+
+	/**
+	 * Opens the line index for the input file, building (or rebuilding) the index file if it does
+	 * not exist or is out of date
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @return the {@link LineIndex} for the input file
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the input file is compressed
+	 */
+	public static LineIndex open(File file, CharacterEncoding encoding) throws IOException {
+		File indexFile = getIndexFile(file);
+		if (!isIndexCurrent(file, encoding, indexFile)) {
+			build(file, encoding, indexFile);
+		}
+		return new LineIndex(file, encoding, indexFile);
+	}
+
+	/**
+	 * @param file
+	 * @return a reference to the sidecar index file for the input file
+	 */
+	public static File getIndexFile(File file) {
+		return new File(file.getAbsolutePath() + FILE_SUFFIX);
+	}
+
+	/**
+	 * Reads the input file from start to finish and writes the position of each line to a uniquely
+	 * named temporary file that then atomically replaces the index file, so that concurrent
+	 * builders never share a temporary file
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param indexFile
+	 * @throws IOException
+	 */
+	private static void build(File file, CharacterEncoding encoding, File indexFile) throws IOException {
+		if (file.getName().endsWith(".gz")) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot build a line index for a compressed file: %s", file.getAbsolutePath()));
+		}
+		FileUtil.validateFile(file);
+		logger.info(String.format("Building line index for file: %s", file.getAbsolutePath()));
+		long length = file.length();
+		long lastModified = FileUtil.getSettledLastModifiedNanos(file);
+		File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+		boolean built = false;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		StreamLineReader reader = new StreamLineReader(new FileInputStream(file), encoding, null);
+		try {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			out.writeLong(length);
+			out.writeLong(lastModified);
+			out.writeUTF(encoding.name());
+			for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+				out.writeLong(line.getByteOffset());
+				out.writeLong(line.getCharacterOffset());
+				out.writeLong(line.getCodePointOffset());
+			}
+			out.close();
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			built = true;
+		} finally {
+			reader.close();
+			if (!built) {
+				out.close();
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+	}
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param indexFile
+	 * @return true if the index file exists and was built from the current version of the input
+	 *         file using the input encoding, false otherwise
+	 * @throws IOException
+	 */
+	private static boolean isIndexCurrent(File file, CharacterEncoding encoding, File indexFile) throws IOException {
+		if (!indexFile.exists()) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			return raf.readInt() == MAGIC_NUMBER && raf.readInt() == VERSION && raf.readLong() == file.length()
+					&& raf.readLong() == FileUtil.getLastModifiedNanos(file)
+					&& raf.readUTF().equals(encoding.name());
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads past the header of an index file, leaving the file pointer at the first line record
+	 * 
+	 * @param raf
+	 * @throws IOException
+	 */
+	private static void skipHeader(RandomAccessFile raf) throws IOException {
+		raf.readInt();
+		raf.readInt();
+		raf.readLong();
+		raf.readLong();
+		raf.readUTF();
+	}
+
+	/**
+	 * @return the number of lines in the indexed file
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @param lineNumber
+	 *            zero-based line number
+	 * @return the position of the start of the specified line
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the line number does not exist in the indexed file
+	 */
+	public LinePosition getPosition(long lineNumber) throws IOException {
+		if (lineNumber < 0 || lineNumber >= lineCount) {
+			throw new IllegalArgumentException(String.format(
+					"Line number %d does not exist. There are %d lines in file: %s", lineNumber, lineCount,
+					file.getAbsolutePath()));
+		}
+		ByteBuffer record = readRecord(lineNumber);
+		return new LinePosition(lineNumber, record.getLong(8), record.getLong(16), record.getLong(0));
+	}
+
+	/**
+	 * @param byteOffset
+	 * @return the position of the start of the line that contains the specified byte offset
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the byte offset is negative or the indexed file is empty
+	 */
+	public LinePosition getPositionOfByteOffset(long byteOffset) throws IOException {
+		if (byteOffset < 0 || lineCount == 0) {
+			throw new IllegalArgumentException(String.format("Byte offset %d does not exist in file: %s", byteOffset,
+					file.getAbsolutePath()));
+		}
+		/* find the last line whose byte offset is <= the input byte offset */
+		long low = 0;
+		long high = lineCount - 1;
+		while (low < high) {
+			long mid = (low + high + 1) >>> 1;
+			if (readRecord(mid).getLong(0) <= byteOffset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return getPosition(low);
+	}
+
+	/**
+	 * Opens a {@link StreamLineReader} whose first line is the specified line of the indexed file.
+	 * The offsets and line numbers of the lines returned are relative to the start of the file.
+	 * 
+	 * @param lineNumber
+	 *            zero-based line number
+	 * @param skipLinePrefix
+	 * @return a {@link StreamLineReader} positioned at the start of the specified line
+	 * @throws IOException
+	 */
+	public StreamLineReader openReader(long lineNumber, String skipLinePrefix) throws IOException {
+		return openReader(getPosition(lineNumber), skipLinePrefix);
+	}
+
+	/**
+	 * Opens a {@link StreamLineReader} whose first line is the line containing the specified byte
+	 * offset of the indexed file
+	 * 
+	 * @param byteOffset
+	 * @param skipLinePrefix
+	 * @return a {@link StreamLineReader} positioned at the start of the line containing the byte
+	 *         offset
+	 * @throws IOException
+	 */
+	public StreamLineReader openReaderAtByteOffset(long byteOffset, String skipLinePrefix) throws IOException {
+		return openReader(getPositionOfByteOffset(byteOffset), skipLinePrefix);
+	}
+
+	/**
+	 * @param position
+	 * @param skipLinePrefix
+	 * @return a {@link StreamLineReader} over the indexed file starting at the input position
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	private StreamLineReader openReader(LinePosition position, String skipLinePrefix) throws FileNotFoundException,
+			IOException {
+		FileInputStream fis = new FileInputStream(file);
+		fis.getChannel().position(position.getByteOffset());
+		return new StreamLineReader(fis, encoding, skipLinePrefix, position);
+	}
+
+	/**
+	 * @param lineNumber
+	 * @return the index record for the specified line
+	 * @throws IOException
+	 */
+	private ByteBuffer readRecord(long lineNumber) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+		FileChannel channel = indexRaf.getChannel();
+		long position = headerLength + lineNumber * RECORD_LENGTH;
+		while (record.hasRemaining()) {
+			if (channel.read(record, position + record.position()) < 0) {
+				throw new EOFException(String.format("Line index file is truncated: %s", getIndexFile(file)));
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		indexRaf.close();
+	}
+
+}
@@ -36,6 +36,10 @@ package edu.ucdenver.ccp.common.file.reader;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 
@@ -134,4 +138,23 @@ public abstract class LineIterator<T extends Line> implements Iterator<T> {
 		}
 	}
 
+	/**
+	 * Returns a sequential <code>Stream</code> over the remaining lines of this iterator. Closing
+	 * the stream closes the underlying {@link LineReader}. For files, see
+	 * {@link StreamLineIterator#lines(java.io.File, CharacterEncoding, String)} which returns a
+	 * stream that can be efficiently processed in parallel.
+	 * 
+	 * @return a stream over the remaining lines
+	 */
+	public Stream<T> stream() {
+		Stream<T> stream = StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+		return stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
 }
@@ -0,0 +1,140 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Immutable description of the position of the start of a line within a file or stream: the line
+ * number along with the character, code point and byte offsets of the first character of the line.
+ * A {@link LinePosition} can be used to initialize a {@link StreamLineReader} that starts reading
+ * part way through a file.
+ * 
+ * @author bill
+ * 
+ */
+public class LinePosition {
+
+	/**
+	 * The position of the very first line of a file or stream
+	 */
+	public static final LinePosition START = new LinePosition(0, 0, 0, 0);
+
+	/**
+	 * The zero-based line number
+	 */
+	private final long lineNumber;
+
+	/**
+	 * The number of characters that appear before the line
+	 */
+	private final long characterOffset;
+
+	/**
+	 * The number of Unicode code points that appear before the line
+	 */
+	private final long codePointOffset;
+
+	/**
+	 * The number of bytes that appear before the line
+	 */
+	private final long byteOffset;
+
+	/**
+	 * @param lineNumber
+	 * @param characterOffset
+	 * @param codePointOffset
+	 * @param byteOffset
+	 */
+	public LinePosition(long lineNumber, long characterOffset, long codePointOffset, long byteOffset) {
+		this.lineNumber = lineNumber;
+		this.characterOffset = characterOffset;
+		this.codePointOffset = codePointOffset;
+		this.byteOffset = byteOffset;
+	}
+
+	/**
+	 * @return the zero-based line number
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the number of characters that appear before the line
+	 */
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+	/**
+	 * @return the number of Unicode code points that appear before the line
+	 */
+	public long getCodePointOffset() {
+		return codePointOffset;
+	}
+
+	/**
+	 * @return the number of bytes that appear before the line
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof LinePosition))
+			return false;
+		LinePosition other = (LinePosition) obj;
+		return lineNumber == other.lineNumber && characterOffset == other.characterOffset
+				&& codePointOffset == other.codePointOffset && byteOffset == other.byteOffset;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 17;
+		result = 31 * result + (int) (lineNumber ^ (lineNumber >>> 32));
+		result = 31 * result + (int) (characterOffset ^ (characterOffset >>> 32));
+		result = 31 * result + (int) (codePointOffset ^ (codePointOffset >>> 32));
+		result = 31 * result + (int) (byteOffset ^ (byteOffset >>> 32));
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(Line:%d Offset:%d CodePointOffset:%d ByteOffset:%d)", lineNumber, characterOffset,
+				codePointOffset, byteOffset);
+	}
+
+}
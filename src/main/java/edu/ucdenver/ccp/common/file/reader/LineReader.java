@@ -36,6 +36,8 @@ package edu.ucdenver.ccp.common.file.reader;
 import java.io.Closeable;
 import java.io.IOException;
 
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
 /**
  * Abstract class for reading a collection of {@link Line} objects.
  * 
@@ -64,6 +66,11 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 */
 	private long cumulativeCodePointOffset;
 
+	/**
+	 * The offsets that are computed for each line
+	 */
+	protected final OffsetTracking offsetTracking;
+
 	/**
 	 * Constructor for the abstract LineReader
 	 * 
@@ -72,8 +79,44 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 *            by the LineReader)
 	 */
 	public LineReader(String skipLinePrefix) {
-		this.cumulativeCharacterOffset = 0;
-		this.cumulativeCodePointOffset = 0;
+		this(skipLinePrefix, 0, 0);
+	}
+
+	/**
+	 * Constructor for a LineReader that does not start at the beginning of the collection of lines,
+	 * e.g. a reader that starts part way through a file
+	 * 
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param characterOffset
+	 *            the number of characters that appear before the first line to be read
+	 * @param codePointOffset
+	 *            the number of code points that appear before the first line to be read
+	 */
+	protected LineReader(String skipLinePrefix, long characterOffset, long codePointOffset) {
+		this(skipLinePrefix, characterOffset, codePointOffset, OffsetTracking.BYTE);
+	}
+
+	/**
+	 * Constructor for a LineReader that only computes the line offsets specified by
+	 * <code>offsetTracking</code>. Offsets that are not tracked are reported as -1.
+	 * 
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param characterOffset
+	 *            the number of characters that appear before the first line to be read
+	 * @param codePointOffset
+	 *            the number of code points that appear before the first line to be read
+	 * @param offsetTracking
+	 *            the offsets to compute for each line
+	 */
+	protected LineReader(String skipLinePrefix, long characterOffset, long codePointOffset,
+			OffsetTracking offsetTracking) {
+		this.offsetTracking = offsetTracking;
+		this.cumulativeCharacterOffset = characterOffset;
+		this.cumulativeCodePointOffset = codePointOffset;
 		this.skipLinePrefix = skipLinePrefix;
 	}
 
@@ -86,24 +129,48 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 */
 	public final T readLine() throws IOException {
 		T line = getNextLine();
-		updateCharacterOffset(line);
+		if (line != null) {
+			updateCharacterOffset(line.getText(), line.getLineTerminator());
+		}
 		return line;
 	}
 
 	/**
 	 * Updates the character offset by adding the number of characters in the current line to the
-	 * cumulative count plus the length of the line terminator used
+	 * cumulative count plus the length of the line terminator used. Subclasses must also call this
+	 * method for lines that are skipped so that the offsets of subsequent lines remain relative to
+	 * the start of the collection.
 	 * 
-	 * @param line
-	 *            the line whose characters must be counted and added to the cumulative character
-	 *            offset count (plus the length of the line terminator used)
+	 * @param text
+	 *            the line text whose characters must be counted and added to the cumulative
+	 *            character offset count
+	 * @param lineTerminator
+	 *            the line terminator used at the end of the line
 	 */
-	private void updateCharacterOffset(Line line) {
-		if (line != null) {
-			cumulativeCharacterOffset += (line.getText().toCharArray().length + line.getLineTerminator().length());
-			cumulativeCodePointOffset += (line.getText().codePointCount(0, line.getText().length()) + line
-					.getLineTerminator().terminator().codePointCount(0, line.getLineTerminator().terminator().length()));
+	protected void updateCharacterOffset(String text, LineTerminator lineTerminator) {
+		if (!offsetTracking.tracksCharacterOffsets())
+			return;
+		long codePointCount = 0;
+		if (offsetTracking.tracksCodePointOffsets()) {
+			/* line terminators consist of one code point per character */
+			codePointCount = text.codePointCount(0, text.length()) + lineTerminator.length();
 		}
+		advanceOffsets(text.length() + lineTerminator.length(), codePointCount);
+	}
+
+	/**
+	 * Adds the input counts to the cumulative character and code point offsets. Subclasses that
+	 * count the characters of a line without materializing it as a <code>String</code> use this
+	 * method in place of {@link #updateCharacterOffset(String, LineTerminator)}.
+	 * 
+	 * @param characterCount
+	 *            the number of characters in the line, including the line terminator
+	 * @param codePointCount
+	 *            the number of code points in the line, including the line terminator
+	 */
+	protected final void advanceOffsets(long characterCount, long codePointCount) {
+		cumulativeCharacterOffset += characterCount;
+		cumulativeCodePointOffset += codePointCount;
 	}
 
 	/**
@@ -122,24 +189,50 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 * @return
 	 */
 	protected boolean skipLine(String line) {
+		return skipLine((CharSequence) line);
+	}
+
+	/**
+	 * Checks whether a line should be skipped without copying its characters. Leading and trailing
+	 * characters up to and including the space character are ignored, as is done by
+	 * {@link String#trim()}.
+	 * 
+	 * @param line
+	 * @return true if the trimmed line starts with the skip line prefix, false otherwise
+	 */
+	protected boolean skipLine(CharSequence line) {
 		if (skipLinePrefix == null)
 			return false;
-		return line.trim().startsWith(skipLinePrefix);
+		int start = 0;
+		int end = line.length();
+		while (start < end && line.charAt(start) <= ' ')
+			start++;
+		while (end > start && line.charAt(end - 1) <= ' ')
+			end--;
+		int prefixLength = skipLinePrefix.length();
+		if (end - start < prefixLength)
+			return false;
+		for (int i = 0; i < prefixLength; i++) {
+			if (line.charAt(start + i) != skipLinePrefix.charAt(i))
+				return false;
+		}
+		return true;
 	}
 
 	/**
 	 * @return the cumulative character offset up to the current point in the collection of lines
-	 *         being read
+	 *         being read, or -1 if character offsets are not tracked
 	 */
 	protected long getCharacterOffset() {
-		return cumulativeCharacterOffset;
+		return offsetTracking.tracksCharacterOffsets() ? cumulativeCharacterOffset : -1;
 	}
 
 	/**
-	 * @return the cumulative code point offset up to the current line
+	 * @return the cumulative code point offset up to the current line, or -1 if code point offsets
+	 *         are not tracked
 	 */
 	protected long getCodePointOffset() {
-		return cumulativeCodePointOffset;
+		return offsetTracking.tracksCodePointOffsets() ? cumulativeCodePointOffset : -1;
 	}
 
 }
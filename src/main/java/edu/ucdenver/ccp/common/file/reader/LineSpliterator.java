@@ -0,0 +1,261 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A <code>Spliterator</code> over the lines of a file that splits by byte range, allowing the lines
+ * of a single file to be processed by a parallel <code>Stream</code>. The first call to
+ * {@link #trySplit()} divides the file into {@link LineChunk}s (see
+ * {@link ParallelLineProcessor#splitIntoChunks(File, CharacterEncoding, int, java.util.concurrent.ExecutorService)}
+ * ) and subsequent splits divide the remaining chunks in half. Each {@link Line} carries its
+ * correct global line number and offsets. If the spliterator is never split (i.e. the stream is
+ * sequential), the file is simply read from start to finish. Compressed (.gz) files cannot be
+ * split and are always read from start to finish.<br>
+ * {@link #estimateSize()} returns the number of bytes remaining, which is an upper bound on the
+ * number of lines remaining.<br>
+ * The spliterator, and all spliterators split from it, share the set of open readers;
+ * {@link #close()} closes any readers that have not been read to completion (e.g. when a stream
+ * operation short-circuits).
+ * 
+ * @author bill
+ * 
+ */
+public class LineSpliterator implements Spliterator<Line>, Closeable {
+
+	private final File file;
+
+	private final CharacterEncoding encoding;
+
+	private final String skipLinePrefix;
+
+	/**
+	 * The readers that have been opened, but not yet closed, by this spliterator and any
+	 * spliterators split from it
+	 */
+	private final Set<LineReader<Line>> openReaders;
+
+	/**
+	 * The chunks of the file; null until the file has been split
+	 */
+	private List<LineChunk> chunks;
+
+	/**
+	 * The index of the next chunk to be read by this spliterator
+	 */
+	private int chunkIndex;
+
+	/**
+	 * One past the index of the last chunk to be read by this spliterator. Before the file has been
+	 * split, the entire file is treated as a single chunk.
+	 */
+	private int chunkEnd;
+
+	/**
+	 * The reader for the chunk currently being read
+	 */
+	private LineReader<Line> reader;
+
+	/**
+	 * Set to true once this spliterator has started to return lines, after which it can no longer
+	 * be split
+	 */
+	private boolean started = false;
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 */
+	public LineSpliterator(File file, CharacterEncoding encoding, String skipLinePrefix) {
+		this.file = file;
+		this.encoding = encoding;
+		this.skipLinePrefix = skipLinePrefix;
+		this.openReaders = Collections.newSetFromMap(new ConcurrentHashMap<LineReader<Line>, Boolean>());
+		this.chunks = null;
+		this.chunkIndex = 0;
+		this.chunkEnd = 1;
+	}
+
+	/**
+	 * Creates a spliterator over a range of the chunks of the parent spliterator
+	 * 
+	 * @param parent
+	 * @param chunkIndex
+	 * @param chunkEnd
+	 */
+	private LineSpliterator(LineSpliterator parent, int chunkIndex, int chunkEnd) {
+		this.file = parent.file;
+		this.encoding = parent.encoding;
+		this.skipLinePrefix = parent.skipLinePrefix;
+		this.openReaders = parent.openReaders;
+		this.chunks = parent.chunks;
+		this.chunkIndex = chunkIndex;
+		this.chunkEnd = chunkEnd;
+	}
+
+	/**
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super Line> action) {
+		try {
+			while (true) {
+				if (reader == null && !openNextReader()) {
+					return false;
+				}
+				Line line = reader.readLine();
+				if (line != null) {
+					action.accept(line);
+					return true;
+				}
+				closeReader();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Opens a reader for the next chunk
+	 * 
+	 * @return true if a reader was opened, false if there are no chunks remaining
+	 * @throws IOException
+	 */
+	private boolean openNextReader() throws IOException {
+		started = true;
+		if (chunkIndex >= chunkEnd) {
+			return false;
+		}
+		if (chunks == null) {
+			reader = new StreamLineReader(file, encoding, skipLinePrefix);
+		} else {
+			reader = ParallelLineProcessor.openReader(file, encoding, skipLinePrefix, chunks.get(chunkIndex));
+		}
+		chunkIndex++;
+		openReaders.add(reader);
+		return true;
+	}
+
+	/**
+	 * Closes the reader for the current chunk
+	 * 
+	 * @throws IOException
+	 */
+	private void closeReader() throws IOException {
+		openReaders.remove(reader);
+		reader.close();
+		reader = null;
+	}
+
+	/**
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<Line> trySplit() {
+		/* compressed files cannot be split into byte ranges so they are read sequentially */
+		if (started || file.getName().endsWith(".gz")) {
+			return null;
+		}
+		if (chunks == null) {
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			try {
+				chunks = ParallelLineProcessor.splitIntoChunks(file, encoding, pool.getParallelism()
+						* ParallelLineProcessor.CHUNKS_PER_THREAD, pool);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			chunkIndex = 0;
+			chunkEnd = chunks.size();
+		}
+		if (chunkEnd - chunkIndex < 2) {
+			return null;
+		}
+		int mid = (chunkIndex + chunkEnd) >>> 1;
+		LineSpliterator prefix = new LineSpliterator(this, chunkIndex, mid);
+		chunkIndex = mid;
+		return prefix;
+	}
+
+	/**
+	 * @return the number of bytes remaining to be read by this spliterator (an upper bound on the
+	 *         number of lines remaining)
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize() {
+		if (chunks == null) {
+			return (chunkIndex < chunkEnd) ? file.length() : 0;
+		}
+		if (chunkIndex >= chunkEnd) {
+			return 0;
+		}
+		return chunks.get(chunkEnd - 1).getEndByteOffset() - chunks.get(chunkIndex).getStartPosition().getByteOffset();
+	}
+
+	/**
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Closes any readers opened by this spliterator, or any spliterator split from it, that have not
+	 * yet been closed
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		for (LineReader<Line> openReader : openReaders) {
+			openReader.close();
+		}
+		openReaders.clear();
+	}
+
+}
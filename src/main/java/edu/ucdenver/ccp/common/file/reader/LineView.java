@@ -0,0 +1,221 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * A mutable, reusable view of a single line held in the character buffer of a
+ * {@link StreamLineReader}. The view is returned by {@link StreamLineReader#readLineView()} and
+ * is overwritten each time that method is called, so it must not be retained once the next line
+ * has been requested. Use {@link #toLine()} to obtain an immutable copy of a line.
+ * <p>
+ * Inspecting a line through this view, e.g. using {@link #charAt(int)} and
+ * {@link #indexOf(char, int)} to locate column boundaries, does not allocate any objects.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineView implements CharSequence {
+
+	/**
+	 * The buffer that holds the characters of the line
+	 */
+	private char[] chars;
+
+	/**
+	 * The index in the buffer of the first character of the line
+	 */
+	private int start;
+
+	/**
+	 * The number of characters in the line, excluding the line terminator
+	 */
+	private int length;
+
+	/**
+	 * The terminator that indicated the end of the line
+	 */
+	private LineTerminator lineTerminator;
+
+	/**
+	 * The line number (relative to the specific collection from where the line was read)
+	 */
+	private long lineNumber;
+
+	/**
+	 * The number of characters that appear before the line
+	 */
+	private long characterOffset;
+
+	/**
+	 * The number of code points that appear before the line
+	 */
+	private long codePointOffset;
+
+	/**
+	 * The number of bytes that appear before the line
+	 */
+	private long byteOffset;
+
+	/**
+	 * Package-private constructor; views are only created by the readers that populate them
+	 */
+	LineView() {
+		/* populated by set() */
+	}
+
+	/**
+	 * Points this view at a new line
+	 * 
+	 * @param chars
+	 * @param start
+	 * @param length
+	 * @param lineTerminator
+	 * @param lineNumber
+	 * @param characterOffset
+	 * @param codePointOffset
+	 * @param byteOffset
+	 */
+	void set(char[] chars, int start, int length, LineTerminator lineTerminator, long lineNumber,
+			long characterOffset, long codePointOffset, long byteOffset) {
+		this.chars = chars;
+		this.start = start;
+		this.length = length;
+		this.lineTerminator = lineTerminator;
+		this.lineNumber = lineNumber;
+		this.characterOffset = characterOffset;
+		this.codePointOffset = codePointOffset;
+		this.byteOffset = byteOffset;
+	}
+
+	/**
+	 * @return the number of characters in the line, excluding the line terminator
+	 * @see java.lang.CharSequence#length()
+	 */
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @see java.lang.CharSequence#charAt(int)
+	 */
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range for line of length " + length);
+		return chars[start + index];
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the input character at or after
+	 * <code>fromIndex</code>
+	 * 
+	 * @param c
+	 * @param fromIndex
+	 * @return the index of the character within the line, or -1 if it does not occur
+	 */
+	public int indexOf(char c, int fromIndex) {
+		int end = start + length;
+		for (int i = start + Math.max(fromIndex, 0); i < end; i++) {
+			if (chars[i] == c)
+				return i - start;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return a new <code>String</code> containing the specified characters of the line
+	 * @see java.lang.CharSequence#subSequence(int, int)
+	 */
+	@Override
+	public CharSequence subSequence(int beginIndex, int endIndex) {
+		if (beginIndex < 0 || endIndex > length || beginIndex > endIndex)
+			throw new IndexOutOfBoundsException("Invalid range [" + beginIndex + ", " + endIndex
+					+ ") for line of length " + length);
+		return new String(chars, start + beginIndex, endIndex - beginIndex);
+	}
+
+	/**
+	 * @return the line terminator found at the end of the line
+	 */
+	public LineTerminator getLineTerminator() {
+		return lineTerminator;
+	}
+
+	/**
+	 * @return the line number for the line
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the number of characters that appear before the line
+	 */
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+	/**
+	 * @return the number of code points that appear before the line
+	 */
+	public long getCodePointOffset() {
+		return codePointOffset;
+	}
+
+	/**
+	 * @return the number of bytes that appear before the line
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	/**
+	 * @return an immutable {@link Line} holding a copy of the line currently viewed
+	 */
+	public Line toLine() {
+		return new Line(toString(), lineTerminator, characterOffset, codePointOffset, lineNumber, byteOffset);
+	}
+
+	/**
+	 * @return the text of the line, excluding the line terminator
+	 */
+	@Override
+	public String toString() {
+		return new String(chars, start, length);
+	}
+
+}
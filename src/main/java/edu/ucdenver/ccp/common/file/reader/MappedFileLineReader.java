@@ -0,0 +1,88 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A {@link LineReader} that reads a file through memory-mapped windows (see
+ * {@link java.nio.channels.FileChannel#map}) rather than through a
+ * <code>FileInputStream</code>. Bytes are decoded directly from the mapped pages, so repeated reads
+ * of the same large file are served from the operating system page cache without first being
+ * copied into an intermediate byte buffer. Files larger than 2GB are supported by remapping the
+ * window as the file is read.<br>
+ * The lines returned are identical to those returned by a {@link StreamLineReader}, including the
+ * character, code point and byte offsets.
+ * 
+ * @author bill
+ * 
+ */
+public class MappedFileLineReader extends StreamLineReader {
+
+	/**
+	 * The default number of bytes mapped at once
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 128 * 1024 * 1024;
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public MappedFileLineReader(File file, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		this(file, encoding, skipLinePrefix, LinePosition.START, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param startPosition
+	 *            the position in the file at which to start reading, e.g. a position obtained from
+	 *            a {@link LineIndex}
+	 * @param windowSize
+	 *            the maximum number of bytes to map at once (at least 16)
+	 * @throws IOException
+	 */
+	public MappedFileLineReader(File file, CharacterEncoding encoding, String skipLinePrefix,
+			LinePosition startPosition, int windowSize) throws IOException {
+		super(new MappedFileReader(file, encoding, startPosition.getByteOffset(), windowSize), encoding,
+				skipLinePrefix, startPosition);
+	}
+
+}
@@ -0,0 +1,214 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A <code>Reader</code> that decodes characters directly from memory-mapped windows of a file. Only
+ * one window is mapped at a time; when the decoder reaches the end of a window, the next window is
+ * mapped starting at the first byte that has not yet been decoded (so multi-byte characters that
+ * straddle a window boundary are decoded correctly). This allows files larger than 2GB to be read.
+ * 
+ * @author bill
+ * 
+ */
+class MappedFileReader extends Reader {
+
+	/**
+	 * The smallest window size permitted. A window must be able to hold at least one complete
+	 * multi-byte character.
+	 */
+	static final int MINIMUM_WINDOW_SIZE = 16;
+
+	private final RandomAccessFile raf;
+
+	private final FileChannel channel;
+
+	/**
+	 * The size of the file, as observed when it was opened
+	 */
+	private final long fileSize;
+
+	private final int windowSize;
+
+	private final CharsetDecoder decoder;
+
+	/**
+	 * The currently mapped window
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * The file position of the first byte in the current window
+	 */
+	private long windowStart;
+
+	/**
+	 * Set to true once the decoder has been flushed at the end of the file
+	 */
+	private boolean flushed = false;
+
+	/**
+	 * Receives the decoded surrogate pair when a read requests a single character and the next
+	 * character is supplementary
+	 */
+	private final CharBuffer surrogatePair = CharBuffer.allocate(2);
+
+	/**
+	 * True if {@link #leftoverChar} holds the low surrogate of a pair whose high surrogate has
+	 * already been returned
+	 */
+	private boolean haveLeftoverChar = false;
+
+	private char leftoverChar;
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param startByteOffset
+	 *            the file position at which to begin decoding
+	 * @param windowSize
+	 *            the maximum number of bytes to map at once
+	 * @throws IOException
+	 */
+	MappedFileReader(File file, CharacterEncoding encoding, long startByteOffset, int windowSize) throws IOException {
+		if (windowSize < MINIMUM_WINDOW_SIZE) {
+			throw new IllegalArgumentException(String.format("Window size must be at least %d bytes but was %d",
+					MINIMUM_WINDOW_SIZE, windowSize));
+		}
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+		this.decoder = encoding.getDecoder();
+		map(Math.min(startByteOffset, fileSize));
+	}
+
+	/**
+	 * Maps the window beginning at the specified file position
+	 * 
+	 * @param position
+	 * @throws IOException
+	 */
+	private void map(long position) throws IOException {
+		windowStart = position;
+		window = channel.map(MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+	}
+
+	/**
+	 * @return true if the current window extends to the end of the file
+	 */
+	private boolean isLastWindow() {
+		return windowStart + window.limit() >= fileSize;
+	}
+
+	/**
+	 * @see java.io.Reader#read(char[], int, int)
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (haveLeftoverChar) {
+			cbuf[off] = leftoverChar;
+			haveLeftoverChar = false;
+			return 1;
+		}
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while (true) {
+			boolean lastWindow = isLastWindow();
+			CoderResult result = decoder.decode(window, out, lastWindow);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (out.position() > off) {
+				return out.position() - off;
+			}
+			if (result.isOverflow()) {
+				/*
+				 * there is room for one character but the next is a surrogate pair; return the high
+				 * surrogate and hold the low surrogate for the next read
+				 */
+				surrogatePair.clear();
+				result = decoder.decode(window, surrogatePair, lastWindow);
+				if (result.isError()) {
+					result.throwException();
+				}
+				surrogatePair.flip();
+				if (surrogatePair.hasRemaining()) {
+					cbuf[off] = surrogatePair.get();
+					if (surrogatePair.hasRemaining()) {
+						leftoverChar = surrogatePair.get();
+						haveLeftoverChar = true;
+					}
+					return 1;
+				}
+			}
+			if (lastWindow) {
+				if (!flushed) {
+					decoder.flush(out);
+					flushed = true;
+					if (out.position() > off) {
+						return out.position() - off;
+					}
+				}
+				return -1;
+			}
+			/* any bytes left in the window belong to a character that continues in the next window */
+			map(windowStart + window.position());
+		}
+	}
+
+	/**
+	 * @see java.io.Reader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+}
@@ -0,0 +1,83 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Specifies which line offsets a {@link LineReader} computes. Each level includes the offsets
+ * tracked by the levels before it. Offsets that are not tracked are reported as -1. Line numbers
+ * are always tracked.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public enum OffsetTracking {
+	/**
+	 * No offsets are computed
+	 */
+	NONE,
+	/**
+	 * Character offsets are computed
+	 */
+	CHARACTER,
+	/**
+	 * Character and code point offsets are computed
+	 */
+	CODE_POINT,
+	/**
+	 * Character, code point and byte offsets are computed
+	 */
+	BYTE;
+
+	/**
+	 * @return true if character offsets are computed at this level
+	 */
+	public boolean tracksCharacterOffsets() {
+		return compareTo(CHARACTER) >= 0;
+	}
+
+	/**
+	 * @return true if code point offsets are computed at this level
+	 */
+	public boolean tracksCodePointOffsets() {
+		return compareTo(CODE_POINT) >= 0;
+	}
+
+	/**
+	 * @return true if byte offsets are computed at this level
+	 */
+	public boolean tracksByteOffsets() {
+		return compareTo(BYTE) >= 0;
+	}
+
+}
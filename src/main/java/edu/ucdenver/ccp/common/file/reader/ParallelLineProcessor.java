@@ -0,0 +1,363 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.concurrency.ConcurrencyUtil;
+
+/**
+ * Utility for processing the lines of a single file using multiple threads. The file is split into
+ * byte ranges ({@link LineChunk}s) that are aligned to line boundaries and each chunk is read by its
+ * own {@link StreamLineReader}. Before the chunks are read, a quick byte-level pass counts the
+ * lines, characters and code points in each chunk; a prefix sum over those counts gives the start
+ * position of every chunk, so each {@link Line} returned carries its correct global line number and
+ * character, code point and byte offsets.<br>
+ * Line terminators are located by scanning raw bytes, which is safe for all supported
+ * {@link CharacterEncoding}s as CR and LF bytes never occur inside a multi-byte UTF-8 sequence.
+ * Compressed files cannot be split and are not supported.
+ * 
+ * @author bill
+ * 
+ */
+public class ParallelLineProcessor {
+
+	/**
+	 * The size of the buffer used when scanning raw bytes
+	 */
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The default number of chunks created per available thread. More chunks than threads helps
+	 * balance the load when some parts of a file are more expensive to process than others.
+	 */
+	static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private ParallelLineProcessor() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Implementations process the lines of a single {@link LineChunk}. Implementations are called
+	 * concurrently from multiple threads.
+	 * 
+	 * @param <R>
+	 *            the type of the result computed for each chunk
+	 */
+	public static interface ChunkProcessor<R> {
+		/**
+		 * @param reader
+		 *            returns the lines of a single chunk; it is closed once this method returns
+		 * @return the result of processing the chunk
+		 * @throws IOException
+		 */
+		public R process(LineReader<Line> reader) throws IOException;
+	}
+
+	/**
+	 * Processes the chunks of the input file using a dedicated pool with one thread per available
+	 * processor that is shut down once all chunks have been processed. The common
+	 * <code>ForkJoinPool</code> is not used, as the blocking reads would stall every parallel stream
+	 * in the JVM.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param processor
+	 * @return the results of processing each chunk, in file order
+	 * @throws IOException
+	 */
+	public static <R> List<R> processChunks(File file, CharacterEncoding encoding, String skipLinePrefix,
+			ChunkProcessor<R> processor) throws IOException {
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			return processChunks(file, encoding, skipLinePrefix, threadCount * CHUNKS_PER_THREAD, executor,
+					processor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Splits the input file into (at most) the specified number of chunks and processes the chunks
+	 * concurrently using the input executor
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param chunkCount
+	 *            the number of chunks to create; fewer may be created if the file is small or has
+	 *            very long lines
+	 * @param executor
+	 * @param processor
+	 * @return the results of processing each chunk, in file order
+	 * @throws IOException
+	 */
+	public static <R> List<R> processChunks(final File file, final CharacterEncoding encoding,
+			final String skipLinePrefix, int chunkCount, ExecutorService executor, final ChunkProcessor<R> processor)
+			throws IOException {
+		List<Callable<R>> tasks = new ArrayList<Callable<R>>();
+		for (final LineChunk chunk : splitIntoChunks(file, encoding, chunkCount, executor)) {
+			tasks.add(new Callable<R>() {
+				@Override
+				public R call() throws IOException {
+					StreamLineReader reader = openReader(file, encoding, skipLinePrefix, chunk);
+					try {
+						return processor.process(reader);
+					} finally {
+						reader.close();
+					}
+				}
+			});
+		}
+		return ConcurrencyUtil.invokeAll(executor, tasks);
+	}
+
+	/**
+	 * Passes each line of the input file to the input action using a dedicated pool with one thread
+	 * per available processor. The action is called concurrently from multiple threads and lines
+	 * are not passed in file order.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param action
+	 * @throws IOException
+	 */
+	public static void forEachLine(File file, CharacterEncoding encoding, String skipLinePrefix,
+			final Consumer<Line> action) throws IOException {
+		processChunks(file, encoding, skipLinePrefix, new ChunkProcessor<Void>() {
+			@Override
+			public Void process(LineReader<Line> reader) throws IOException {
+				for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+					action.accept(line);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param chunk
+	 * @return a {@link StreamLineReader} that returns the lines in the input chunk
+	 * @throws IOException
+	 */
+	public static StreamLineReader openReader(File file, CharacterEncoding encoding, String skipLinePrefix,
+			LineChunk chunk) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		fis.getChannel().position(chunk.getStartPosition().getByteOffset());
+		return new StreamLineReader(new BoundedInputStream(fis, chunk.getByteLength()), encoding, skipLinePrefix,
+				chunk.getStartPosition());
+	}
+
+	/**
+	 * Splits the input file into (at most) the specified number of chunks of roughly equal size.
+	 * Chunk boundaries are moved forward to the start of the next line. The line, character and
+	 * code point counts needed to compute the start position of each chunk are computed
+	 * concurrently using the input executor.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param chunkCount
+	 * @param executor
+	 * @return the chunks, in file order
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the file is compressed or the chunk count is less than one
+	 */
+	public static List<LineChunk> splitIntoChunks(File file, CharacterEncoding encoding, int chunkCount,
+			ExecutorService executor) throws IOException {
+		if (file.getName().endsWith(".gz")) {
+			throw new IllegalArgumentException(String.format("Cannot split a compressed file into chunks: %s",
+					file.getAbsolutePath()));
+		}
+		if (chunkCount < 1) {
+			throw new IllegalArgumentException(String.format("Chunk count must be at least 1 but was %d", chunkCount));
+		}
+		FileUtil.validateFile(file);
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			long fileSize = channel.size();
+			final List<Long> boundaries = new ArrayList<Long>();
+			boundaries.add(0L);
+			for (int i = 1; i < chunkCount; i++) {
+				long lineStart = findLineStart(channel, fileSize * i / chunkCount, fileSize);
+				if (lineStart > boundaries.get(boundaries.size() - 1) && lineStart < fileSize) {
+					boundaries.add(lineStart);
+				}
+			}
+			boundaries.add(fileSize);
+
+			/* the counts for the final chunk are not needed to compute any start position */
+			final boolean utf8 = (encoding == CharacterEncoding.UTF_8);
+			List<Callable<long[]>> countTasks = new ArrayList<Callable<long[]>>();
+			for (int i = 0; i < boundaries.size() - 2; i++) {
+				final long start = boundaries.get(i);
+				final long end = boundaries.get(i + 1);
+				countTasks.add(new Callable<long[]>() {
+					@Override
+					public long[] call() throws IOException {
+						return countLinesAndCharacters(channel, start, end, utf8);
+					}
+				});
+			}
+			List<long[]> counts = ConcurrencyUtil.invokeAll(executor, countTasks);
+
+			List<LineChunk> chunks = new ArrayList<LineChunk>();
+			LinePosition position = LinePosition.START;
+			for (int i = 0; i < boundaries.size() - 1; i++) {
+				chunks.add(new LineChunk(position, boundaries.get(i + 1)));
+				if (i < counts.size()) {
+					long[] count = counts.get(i);
+					position = new LinePosition(position.getLineNumber() + count[0], position.getCharacterOffset()
+							+ count[1], position.getCodePointOffset() + count[2], boundaries.get(i + 1));
+				}
+			}
+			return chunks;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @param channel
+	 * @param target
+	 * @param fileSize
+	 * @return the file position of the first line that starts at or after the target position
+	 * @throws IOException
+	 */
+	private static long findLineStart(FileChannel channel, long target, long fileSize) throws IOException {
+		if (target == 0) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		byte[] bytes = buffer.array();
+		/* start with the byte preceding the target; if it is a terminator the target is a line start */
+		long position = target - 1;
+		boolean previousWasCarriageReturn = false;
+		while (position < fileSize) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = bytes[i];
+				if (previousWasCarriageReturn) {
+					return (b == '\n') ? position + i + 1 : position + i;
+				}
+				if (b == '\n') {
+					return position + i + 1;
+				}
+				previousWasCarriageReturn = (b == '\r');
+			}
+			position += read;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Counts the lines, characters and code points in the specified byte range without decoding
+	 * the bytes. Line terminators count as characters, consistent with {@link LineReader}.
+	 * 
+	 * @param channel
+	 * @param start
+	 * @param end
+	 * @param utf8
+	 *            true if the bytes are UTF-8 encoded; otherwise each byte is a single character
+	 * @return an array containing the line count, character count and code point count
+	 * @throws IOException
+	 */
+	private static long[] countLinesAndCharacters(FileChannel channel, long start, long end, boolean utf8)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		byte[] bytes = buffer.array();
+		long lineCount = 0;
+		long characterCount = 0;
+		long codePointCount = 0;
+		boolean previousWasCarriageReturn = false;
+		long position = start;
+		while (position < end) {
+			buffer.clear();
+			buffer.limit((int) Math.min(SCAN_BUFFER_SIZE, end - position));
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = bytes[i];
+				if (b == '\r' || (b == '\n' && !previousWasCarriageReturn)) {
+					lineCount++;
+				}
+				previousWasCarriageReturn = (b == '\r');
+				if (utf8 && (b & 0xC0) != 0x80) {
+					codePointCount++;
+					/* four-byte sequences decode to a surrogate pair */
+					characterCount += ((b & 0xF8) == 0xF0) ? 2 : 1;
+				}
+			}
+			position += read;
+		}
+		if (!utf8) {
+			characterCount = end - start;
+			codePointCount = end - start;
+		}
+		return new long[] { lineCount, characterCount, codePointCount };
+	}
+
+}
@@ -0,0 +1,304 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A {@link LineReader} decorator that reads lines from another {@link LineReader} on a
+ * background thread. The background thread reads, decompresses and decodes batches of lines into a
+ * bounded queue; the thread that calls {@link #readLine()} only removes finished lines from that
+ * queue. The application logic that processes each line therefore overlaps with the I/O and
+ * decoding of the lines that follow it.
+ * <p>
+ * The lines returned are exactly those returned by the wrapped reader, including their line
+ * numbers and offsets. An exception thrown by the wrapped reader is rethrown by
+ * {@link #readLine()} once the lines read before the failure have been consumed. Closing this
+ * reader stops the background thread and closes the wrapped reader.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ * @param <T>
+ */
+public class ReadAheadLineReader<T extends Line> extends LineReader<T> {
+
+	/**
+	 * The default number of lines transferred from the background thread in a single batch
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/**
+	 * The default number of batches that may be read ahead of the consumer
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	/**
+	 * Placed on the queue by the background thread once the wrapped reader has been exhausted (or
+	 * has failed)
+	 */
+	private static final List<Line> END_OF_INPUT = Collections.emptyList();
+
+	/**
+	 * The reader that is read on the background thread
+	 */
+	private final LineReader<T> lineReader;
+
+	/**
+	 * The batches of lines that have been read but not yet consumed
+	 */
+	private final BlockingQueue<List<? extends Line>> queue;
+
+	/**
+	 * The maximum number of lines in a batch
+	 */
+	private final int batchSize;
+
+	/**
+	 * Guards {@link #closed} and {@link #started}
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Set once this reader has been closed
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Set once the background task has started reading
+	 */
+	private boolean started = false;
+
+	/**
+	 * Counted down when the background task stops reading from the wrapped reader
+	 */
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	/**
+	 * The background task
+	 */
+	private final Future<?> future;
+
+	/**
+	 * Stores the exception thrown by the wrapped reader, if any
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * The batch currently being consumed
+	 */
+	private List<? extends Line> batch = Collections.emptyList();
+
+	/**
+	 * The index in {@link #batch} of the next line to return
+	 */
+	private int batchIndex = 0;
+
+	/**
+	 * Set once the end of input marker has been taken from the queue
+	 */
+	private boolean exhausted = false;
+
+	/**
+	 * Initializes a new <code>ReadAheadLineReader</code> that reads from the input reader on a
+	 * dedicated daemon thread using the default batch size and queue capacity
+	 * 
+	 * @param lineReader
+	 */
+	public ReadAheadLineReader(LineReader<T> lineReader) {
+		this(lineReader, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY, null);
+	}
+
+	/**
+	 * Initializes a new <code>ReadAheadLineReader</code>
+	 * 
+	 * @param lineReader
+	 *            the reader to read from in the background; lines are skipped by this reader
+	 * @param batchSize
+	 *            the maximum number of lines transferred from the background thread at once
+	 * @param queueCapacity
+	 *            the maximum number of batches that may be read ahead of the consumer
+	 * @param executor
+	 *            the executor used to run the background task; if null, a dedicated daemon thread
+	 *            is started
+	 */
+	public ReadAheadLineReader(LineReader<T> lineReader, int batchSize, int queueCapacity, ExecutorService executor) {
+		/* offsets are computed by the wrapped reader */
+		super(null, 0, 0, OffsetTracking.NONE);
+		if (batchSize < 1 || queueCapacity < 1)
+			throw new IllegalArgumentException("Batch size and queue capacity must be positive. Batch size: "
+					+ batchSize + " Queue capacity: " + queueCapacity);
+		this.lineReader = lineReader;
+		this.batchSize = batchSize;
+		this.queue = new ArrayBlockingQueue<List<? extends Line>>(queueCapacity);
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				readAhead();
+			}
+		};
+		if (executor == null) {
+			FutureTask<Void> futureTask = new FutureTask<Void>(task, null);
+			Thread thread = new Thread(futureTask, "ReadAheadLineReader");
+			thread.setDaemon(true);
+			thread.start();
+			this.future = futureTask;
+		} else {
+			this.future = executor.submit(task);
+		}
+	}
+
+	/**
+	 * Reads batches of lines from the wrapped reader and places them on the queue until the
+	 * wrapped reader is exhausted, fails, or this reader is closed
+	 */
+	private void readAhead() {
+		synchronized (lock) {
+			if (closed) {
+				finished.countDown();
+				return;
+			}
+			started = true;
+		}
+		List<T> lines = new ArrayList<T>(batchSize);
+		try {
+			T line;
+			while (!closed && (line = lineReader.readLine()) != null) {
+				lines.add(line);
+				if (lines.size() == batchSize) {
+					queue.put(lines);
+					lines = new ArrayList<T>(batchSize);
+				}
+			}
+		} catch (InterruptedException e) {
+			/* the reader has been closed */
+			finished.countDown();
+			return;
+		} catch (Throwable t) {
+			failure = t;
+		}
+		finished.countDown();
+		try {
+			/* the lines read before the end of input (or a failure) are returned before it is signaled */
+			if (!lines.isEmpty() && !closed)
+				queue.put(lines);
+			if (!closed)
+				queue.put(END_OF_INPUT);
+		} catch (InterruptedException e) {
+			/* the reader has been closed */
+		}
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected T getNextLine() throws IOException {
+		if (closed)
+			return null;
+		if (batchIndex < batch.size())
+			return (T) batch.get(batchIndex++);
+		if (exhausted)
+			return null;
+		try {
+			batch = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the next line to be read.");
+		}
+		if (batch == END_OF_INPUT) {
+			exhausted = true;
+			rethrowFailure();
+			return null;
+		}
+		batchIndex = 1;
+		return (T) batch.get(0);
+	}
+
+	/**
+	 * Rethrows the exception thrown by the wrapped reader, if there was one
+	 * 
+	 * @throws IOException
+	 */
+	private void rethrowFailure() throws IOException {
+		Throwable t = failure;
+		if (t == null)
+			return;
+		if (t instanceof IOException)
+			throw (IOException) t;
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new IOException(t);
+	}
+
+	/**
+	 * Stops the background thread, waiting for it to stop reading, and closes the wrapped reader
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		boolean waitForTask;
+		synchronized (lock) {
+			if (closed)
+				return;
+			closed = true;
+			waitForTask = started;
+		}
+		future.cancel(true);
+		queue.clear();
+		if (waitForTask) {
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the read-ahead thread to stop.");
+			}
+		}
+		lineReader.close();
+	}
+
+}
@@ -0,0 +1,93 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * A {@link Line} read from a sheet of a workbook that records the sheet it was read from. The line
+ * number and offsets are relative to the sheet.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class SheetLine extends Line {
+
+	/**
+	 * The name of the sheet the line was read from
+	 */
+	private final String sheetName;
+
+	/**
+	 * The zero-based position of the sheet within the workbook
+	 */
+	private final int sheetIndex;
+
+	/**
+	 * @param line
+	 *            the line read from the sheet
+	 * @param sheetName
+	 *            the name of the sheet the line was read from
+	 * @param sheetIndex
+	 *            the zero-based position of the sheet within the workbook
+	 */
+	public SheetLine(Line line, String sheetName, int sheetIndex) {
+		super(line.getText(), line.getLineTerminator(), line.getCharacterOffset(), line.getCodePointOffset(), line
+				.getLineNumber(), line.getByteOffset());
+		this.sheetName = sheetName;
+		this.sheetIndex = sheetIndex;
+	}
+
+	/**
+	 * @return the name of the sheet the line was read from
+	 */
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	/**
+	 * @return the zero-based position of the sheet within the workbook
+	 */
+	public int getSheetIndex() {
+		return sheetIndex;
+	}
+
+	/**
+	 * Returns a string representation of this line including the sheet name and line number
+	 */
+	@Override
+	public String toString() {
+		return String.format("(Sheet:%s Line:%d Offset:%d) %s", sheetName, getLineNumber(), getCharacterOffset(),
+				getText());
+	}
+
+}
@@ -37,6 +37,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.log4j.Logger;
 
@@ -87,6 +89,32 @@ public class StreamLineIterator extends LineIterator<Line> {
 		this(inputFile, encoding, null);
 	}
 
+	/**
+	 * Returns a <code>Stream</code> over the lines of the input file. The stream is backed by a
+	 * {@link LineSpliterator} so if it is made parallel the file is split into byte ranges that
+	 * are read concurrently; each {@link Line} carries its correct global line number and offsets.
+	 * The stream should be closed when no longer needed (e.g. using try-with-resources) to ensure
+	 * all underlying readers are closed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @return a stream over the lines of the input file
+	 */
+	public static Stream<Line> lines(File inputFile, CharacterEncoding encoding, String skipLinePrefix) {
+		final LineSpliterator spliterator = new LineSpliterator(inputFile, encoding, skipLinePrefix);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					spliterator.close();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+	}
+
 	/**
 	 * Initializes a new <code>StreamLineReader</code> to be used by the
 	 * <code>StreamLineIterator</code>
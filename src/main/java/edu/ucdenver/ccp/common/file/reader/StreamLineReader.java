@@ -33,17 +33,21 @@ package edu.ucdenver.ccp.common.file.reader;
  * #L%
  */
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileReaderUtil;
 import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
 
 /**
- * This class reads lines from an input stream
+ * This class reads lines from an input stream. Characters are read from the underlying stream in
+ * large blocks into a <code>char[]</code> buffer which is then scanned for line terminators; the
+ * text of each line is sliced directly out of that buffer.
  * 
  * @author bill
  * 
@@ -51,15 +55,75 @@ import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
 public class StreamLineReader extends LineReader<Line> {
 
 	/**
-	 * A BufferedReader is used to read the lines from the input <code>InputStream</code>
+	 * The initial size of the character buffer. The buffer grows if a single line does not fit.
 	 */
-	private final BufferedReader reader;
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The reader used to read characters from the input <code>InputStream</code>
+	 */
+	private final Reader reader;
+
+	/**
+	 * Holds the characters read from the reader that have not yet been returned as part of a line
+	 */
+	private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+
+	/**
+	 * The index of the next unread character in the buffer
+	 */
+	private int position = 0;
+
+	/**
+	 * The index one past the last valid character in the buffer
+	 */
+	private int limit = 0;
+
+	/**
+	 * Set to true once the underlying reader has signaled the end of the stream
+	 */
+	private boolean endOfStream = false;
+
+	/**
+	 * The reusable view of the most recently scanned line
+	 */
+	private final LineView view = new LineView();
+
+	/**
+	 * True if code points are counted while scanning for line terminators
+	 */
+	private final boolean countCodePoints;
+
+	/**
+	 * True if byte offsets are computed
+	 */
+	private final boolean trackBytes;
+
+	/**
+	 * The number of code points in the most recently scanned line, excluding the line terminator
+	 */
+	private int viewCodePointCount;
+
+	/**
+	 * True if the most recently scanned line was terminated by a carriage return that was the last
+	 * character of the stream. If more characters become available and the first is a line feed,
+	 * it completes a CRLF terminator and is not treated as an empty line.
+	 */
+	private boolean pendingCarriageReturn = false;
+
+	/**
+	 * The character encoding of the input; used to compute byte offsets
+	 */
+	private final CharacterEncoding encoding;
 
 	/**
 	 * Used to store the line number
 	 */
 	private long lineNumber = 0;
 
+	/**
+	 * The number of bytes (in the configured encoding) that appear before the next line to be read
+	 */
 	private long byteOffset = 0;
 
 	/**
@@ -71,13 +135,105 @@ public class StreamLineReader extends LineReader<Line> {
 	 * @param skipLinePrefix
 	 */
 	public StreamLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix) {
-		super(skipLinePrefix);
-		lineNumber = 0;
-		byteOffset = 0;
-		reader = FileReaderUtil.initBufferedReader(inputStream, encoding);
+		this(inputStream, encoding, skipLinePrefix, LinePosition.START);
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from an <code>InputStream</code> that
+	 * does not start at the beginning of a file, e.g. a <code>FileInputStream</code> whose channel
+	 * has been positioned at the start of a line. The line numbers and offsets of the lines
+	 * returned by this reader are relative to the input <code>startPosition</code>.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param startPosition
+	 *            the position of the first line available from the input stream
+	 */
+	public StreamLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix,
+			LinePosition startPosition) {
+		this(inputStream, encoding, skipLinePrefix, startPosition, OffsetTracking.BYTE);
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> that only computes the line offsets
+	 * specified by <code>offsetTracking</code>
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param startPosition
+	 *            the position of the first line available from the input stream
+	 * @param offsetTracking
+	 *            the offsets to compute for each line; offsets that are not tracked are reported
+	 *            as -1
+	 */
+	public StreamLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix,
+			LinePosition startPosition, OffsetTracking offsetTracking) {
+		this(FileReaderUtil.initBufferedReader(inputStream, encoding), encoding, skipLinePrefix, startPosition,
+				offsetTracking);
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from an <code>InputStream</code> that
+	 * has been positioned at the byte offset of the input checkpoint
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param checkpoint
+	 *            the checkpoint from which reading resumes
+	 */
+	public StreamLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix,
+			LineCheckpoint checkpoint) {
+		this(inputStream, encoding, skipLinePrefix, checkpoint.getPosition());
+		this.pendingCarriageReturn = checkpoint.hasPendingCarriageReturn();
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from a <code>Reader</code> that
+	 * decodes characters using the input encoding. Subclasses use this constructor to supply
+	 * alternative sources of characters.
+	 * 
+	 * @param reader
+	 * @param encoding
+	 *            the encoding used by the reader to decode characters; used to compute byte offsets
+	 * @param skipLinePrefix
+	 * @param startPosition
+	 *            the position of the first line available from the reader
+	 */
+	protected StreamLineReader(Reader reader, CharacterEncoding encoding, String skipLinePrefix,
+			LinePosition startPosition) {
+		this(reader, encoding, skipLinePrefix, startPosition, OffsetTracking.BYTE);
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from a <code>Reader</code> that
+	 * decodes characters using the input encoding, computing only the line offsets specified by
+	 * <code>offsetTracking</code>
+	 * 
+	 * @param reader
+	 * @param encoding
+	 *            the encoding used by the reader to decode characters; used to compute byte offsets
+	 * @param skipLinePrefix
+	 * @param startPosition
+	 *            the position of the first line available from the reader
+	 * @param offsetTracking
+	 *            the offsets to compute for each line
+	 */
+	protected StreamLineReader(Reader reader, CharacterEncoding encoding, String skipLinePrefix,
+			LinePosition startPosition, OffsetTracking offsetTracking) {
+		super(skipLinePrefix, startPosition.getCharacterOffset(), startPosition.getCodePointOffset(), offsetTracking);
+		this.countCodePoints = offsetTracking.tracksCodePointOffsets();
+		this.trackBytes = offsetTracking.tracksByteOffsets();
+		this.encoding = encoding;
+		this.lineNumber = startPosition.getLineNumber();
+		this.byteOffset = startPosition.getByteOffset();
+		this.reader = reader;
 	}
 
 	/**
+	 * Note: if the input file is gzipped, byte offsets are relative to the uncompressed content
 	 * 
 	 * @param inputFile
 	 * @param encoding
@@ -85,10 +241,24 @@ public class StreamLineReader extends LineReader<Line> {
 	 * @throws IOException
 	 */
 	public StreamLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
-		super(skipLinePrefix);
-		lineNumber = 0;
-		byteOffset = 0;
-		reader = FileReaderUtil.initBufferedReader(inputFile, encoding);
+		this(inputFile, encoding, skipLinePrefix, OffsetTracking.BYTE);
+	}
+
+	/**
+	 * Note: if the input file is gzipped, byte offsets are relative to the uncompressed content
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param offsetTracking
+	 *            the offsets to compute for each line; offsets that are not tracked are reported
+	 *            as -1
+	 * @throws IOException
+	 */
+	public StreamLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix,
+			OffsetTracking offsetTracking) throws IOException {
+		this(FileReaderUtil.initBufferedReader(inputFile, encoding), encoding, skipLinePrefix, LinePosition.START,
+				offsetTracking);
 	}
 
 	
@@ -96,48 +266,244 @@ public class StreamLineReader extends LineReader<Line> {
 		this(inputFile, encoding, null);
 	}
 	
+	/**
+	 * Opens a reader that continues reading the input file from the specified checkpoint. The
+	 * file is not rescanned; reading starts at the byte offset of the checkpoint.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param checkpoint
+	 *            a checkpoint previously captured by {@link #checkpoint()} while reading the file
+	 * @return a reader positioned at the checkpoint
+	 * @throws IOException
+	 */
+	public static StreamLineReader resume(File inputFile, CharacterEncoding encoding, String skipLinePrefix,
+			LineCheckpoint checkpoint) throws IOException {
+		if (inputFile.getName().endsWith(".gz")) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot resume reading a compressed file from a checkpoint: %s", inputFile.getAbsolutePath()));
+		}
+		FileInputStream fis = new FileInputStream(inputFile);
+		try {
+			fis.getChannel().position(checkpoint.getPosition().getByteOffset());
+		} catch (IOException e) {
+			fis.close();
+			throw e;
+		}
+		return new StreamLineReader(fis, encoding, skipLinePrefix, checkpoint);
+	}
+
+	/**
+	 * Captures the position of this reader. Reading can later be continued from the returned
+	 * checkpoint, which can be persisted using {@link LineCheckpoint#save(File)}, by calling
+	 * {@link #resume(File, CharacterEncoding, String, LineCheckpoint)}.
+	 * 
+	 * @return a checkpoint referring to the position of the next line to be read
+	 * @throws IllegalStateException
+	 *             if this reader does not track byte offsets
+	 */
+	public LineCheckpoint checkpoint() {
+		if (!trackBytes) {
+			throw new IllegalStateException(
+					"Checkpoints require byte offsets to be tracked. Offset tracking: " + offsetTracking);
+		}
+		return new LineCheckpoint(new LinePosition(lineNumber, getCharacterOffset(), getCodePointOffset(),
+				byteOffset), pendingCarriageReturn);
+	}
+
 	/**
 	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#readLine()
 	 */
 	@Override
 	protected Line getNextLine() throws IOException {
-		LineTerminator lineTerminator = null;
-		StringBuffer buffer = new StringBuffer();
-		int c = -1;
-		boolean eol = false;
-		while (!eol) {
-			switch (c = reader.read()) {
-			case -1:
-			case '\n':
-				eol = true;
-				lineTerminator = LineTerminator.LF;
-				break;
-			case '\r':
-				eol = true;
-				lineTerminator = LineTerminator.CR;
-				reader.mark(1);
-				if ((reader.read()) != '\n')
-					reader.reset();
-				else
-					lineTerminator = LineTerminator.CRLF;
-				break;
-			default:
-				buffer.append((char) c);
-				break;
+		if (!scanNextLine())
+			return null;
+		return view.toLine();
+	}
+
+	/**
+	 * Reads the next line without copying it out of the read buffer. The returned
+	 * {@link LineView} is reused: it is overwritten by the next call to this method (or to
+	 * {@link #readLine()}) and its characters are only valid until then. Consumers that only
+	 * inspect or tokenize lines can use this method to avoid allocating objects for each line.
+	 * 
+	 * @return a view of the next line, or null if there are no more lines
+	 * @throws IOException
+	 *             if there's an error while reading the next line
+	 */
+	public LineView readLineView() throws IOException {
+		if (!scanNextLine())
+			return null;
+		advanceViewOffsets();
+		return view;
+	}
+
+	/**
+	 * Locates the next line that is not to be skipped and points {@link #view} at it. The
+	 * character and code point offsets of the line are not added to the cumulative counts.
+	 * 
+	 * @return true if a line was found, false if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	private boolean scanNextLine() throws IOException {
+		if (pendingCarriageReturn && !consumePendingLineFeed())
+			return false;
+		while (true) {
+			int lineStart = position;
+			int scan = position;
+			int lineEnd;
+			LineTerminator lineTerminator;
+			int surrogatePairCount = 0;
+			while (true) {
+				if (countCodePoints) {
+					/* a low surrogate that follows a high surrogate completes a single code point */
+					char c;
+					while (scan < limit && (c = buffer[scan]) != '\n' && c != '\r') {
+						if (Character.isLowSurrogate(c) && scan > lineStart && Character.isHighSurrogate(buffer[scan - 1]))
+							surrogatePairCount++;
+						scan++;
+					}
+				} else {
+					while (scan < limit && buffer[scan] != '\n' && buffer[scan] != '\r') {
+						scan++;
+					}
+				}
+				if (scan < limit) {
+					if (buffer[scan] == '\n') {
+						lineEnd = scan;
+						lineTerminator = LineTerminator.LF;
+						position = scan + 1;
+						break;
+					}
+					/* a carriage return; the next character decides between CR and CRLF */
+					if (scan + 1 < limit) {
+						lineEnd = scan;
+						if (buffer[scan + 1] == '\n') {
+							lineTerminator = LineTerminator.CRLF;
+							position = scan + 2;
+						} else {
+							lineTerminator = LineTerminator.CR;
+							position = scan + 1;
+						}
+						break;
+					}
+					if (endOfStream) {
+						lineEnd = scan;
+						lineTerminator = LineTerminator.CR;
+						position = scan + 1;
+						pendingCarriageReturn = true;
+						break;
+					}
+				} else if (endOfStream) {
+					if (scan == lineStart) {
+						position = scan;
+						return false;
+					}
+					/* the final line of the stream is not terminated; it is treated as LF-terminated */
+					lineEnd = scan;
+					lineTerminator = LineTerminator.LF;
+					position = scan;
+					break;
+				}
+				int shift = fill(lineStart);
+				lineStart -= shift;
+				scan -= shift;
+			}
+
+			int lineLength = lineEnd - lineStart;
+			viewCodePointCount = lineLength - surrogatePairCount;
+			view.set(buffer, lineStart, lineLength, lineTerminator, lineNumber++, getCharacterOffset(),
+					getCodePointOffset(), trackBytes ? byteOffset : -1);
+			if (trackBytes) {
+				/* terminator characters are single bytes; an unterminated final line contributes none */
+				byteOffset += encoding.getEncodedLength(buffer, lineStart, lineLength) + (position - lineEnd);
+			}
+
+			if (!skipLine(view)) {
+				return true;
 			}
+			advanceViewOffsets();
 		}
+	}
 
-		if ((c == -1) && (buffer.length() == 0)) {
-			return null;
+	/**
+	 * Called before scanning for the next line when the previous line was terminated by a carriage
+	 * return at the end of the stream. If the next character is a line feed, it completes that
+	 * terminator and is consumed.
+	 * 
+	 * @return false if no further characters are available, true otherwise
+	 * @throws IOException
+	 */
+	private boolean consumePendingLineFeed() throws IOException {
+		while (position == limit && !endOfStream) {
+			fill(position);
 		}
-		String lineText = buffer.toString();
-		byteOffset = byteOffset + lineText.getBytes().length;
+		if (position == limit)
+			return false;
+		pendingCarriageReturn = false;
+		if (buffer[position] == '\n') {
+			position++;
+			if (trackBytes)
+				byteOffset++;
+			if (offsetTracking.tracksCharacterOffsets())
+				advanceOffsets(1, 1);
+		}
+		return true;
+	}
 
-		if (skipLine(lineText)) {
-			lineNumber++;
-			return readLine();
+	/**
+	 * Adds the characters and code points of the line currently held by {@link #view}, including
+	 * its line terminator, to the cumulative offsets
+	 */
+	private void advanceViewOffsets() {
+		if (!offsetTracking.tracksCharacterOffsets())
+			return;
+		int terminatorLength = view.getLineTerminator().length();
+		/* line terminators consist of one code point per character */
+		advanceOffsets(view.length() + terminatorLength, viewCodePointCount + terminatorLength);
+	}
+
+	/**
+	 * The characters and code points of the line were counted while it was scanned, so they are
+	 * not counted again here
+	 * 
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#updateCharacterOffset(java.lang.String,
+	 *      edu.ucdenver.ccp.common.file.reader.Line.LineTerminator)
+	 */
+	@Override
+	protected void updateCharacterOffset(String text, LineTerminator lineTerminator) {
+		advanceViewOffsets();
+	}
+
+	/**
+	 * Reads the next block of characters into the buffer. Characters before <code>keepFrom</code>
+	 * have already been consumed and are discarded by shifting the remaining content to the start
+	 * of the buffer. If the remaining content already fills the buffer, the buffer is enlarged.
+	 * 
+	 * @param keepFrom
+	 *            the index of the first character in the buffer that must be retained
+	 * @return the number of positions the retained content was shifted towards the start of the
+	 *         buffer
+	 * @throws IOException
+	 *             if an error occurs while reading from the underlying reader
+	 */
+	private int fill(int keepFrom) throws IOException {
+		int retained = limit - keepFrom;
+		if (keepFrom > 0) {
+			System.arraycopy(buffer, keepFrom, buffer, 0, retained);
+		} else if (retained == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		position -= keepFrom;
+		limit = retained;
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read == -1) {
+			endOfStream = true;
+		} else {
+			limit += read;
 		}
-		return new Line(lineText, lineTerminator, getCharacterOffset(), getCodePointOffset(), lineNumber++, byteOffset);
+		return keepFrom;
 	}
 
 	/**
@@ -0,0 +1,492 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * Reads lines from the first sheet of an Excel (.xlsx) file without loading the workbook into
+ * memory. Rows are parsed one at a time from the XML of the sheet, so memory use does not depend
+ * on the size of the sheet. Lines are produced as by {@link ExcelFileLineReader}: the first row is
+ * a header that determines the number of columns and is not returned; each subsequent row is
+ * returned as its tab-separated cell values.
+ * <p>
+ * The line number of each line is the (one-based) Excel row number. Rows that are absent from the
+ * sheet, e.g. empty rows between populated rows, are returned as lines with empty cells. The
+ * character, code point and byte offsets refer to the tab-separated text of the sheet, with each
+ * line terminated by a carriage return and encoded as UTF-8. Numeric cells are returned as stored
+ * in the sheet, i.e. without applying the cell format.
+ * 
+ * @author Center for Computational Pharmacology; ccpsupport@ucdenver.edu
+ * 
+ */
+public class StreamingExcelFileLineReader extends LineReader<Line> {
+
+	private static final String CELL_DELIMITER = "\t";
+
+	/**
+	 * The package holding the workbook; null if the package is managed by the caller
+	 */
+	private final OPCPackage workbookPackage;
+
+	/**
+	 * The stream of the sheet XML
+	 */
+	private final InputStream sheetStream;
+
+	/**
+	 * Parses the sheet XML
+	 */
+	private final XMLStreamReader xml;
+
+	/**
+	 * The strings shared by all sheets of the workbook
+	 */
+	private final ReadOnlySharedStringsTable sharedStrings;
+
+	/**
+	 * The number of columns, as defined by the header row
+	 */
+	private final int columnCount;
+
+	/**
+	 * The text of a line whose cells are all empty
+	 */
+	private final String emptyLineText;
+
+	/**
+	 * Holds the cell values of the most recently parsed row
+	 */
+	private final String[] cellValues;
+
+	/**
+	 * Used to join the cell values of a row
+	 */
+	private final StringBuilder lineText = new StringBuilder();
+
+	/**
+	 * The Excel row number of the next line to be returned
+	 */
+	private long nextRowNumber = 2;
+
+	/**
+	 * The Excel row number of the most recently parsed row, or -1 once all rows have been parsed
+	 */
+	private long parsedRowNumber;
+
+	/**
+	 * The number of UTF-8 bytes of the tab-separated text that appear before the next line
+	 */
+	private long byteOffset = 0;
+
+	/**
+	 * Initializes a new <code>StreamingExcelFileLineReader</code> to read the first sheet of the
+	 * input file. The file is accessed directly so that no part of it is held in memory.
+	 * 
+	 * @param file
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public StreamingExcelFileLineReader(File file, String skipLinePrefix) throws IOException {
+		this(openFirstSheet(openPackage(file)), skipLinePrefix);
+	}
+
+	/**
+	 * Initializes a new <code>StreamingExcelFileLineReader</code> to read the first sheet of the
+	 * workbook provided by the input stream. Note: the compressed entries of the workbook are held
+	 * in memory when reading from a stream; use
+	 * {@link #StreamingExcelFileLineReader(File, String)} for large workbooks.
+	 * 
+	 * @param inputStream
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public StreamingExcelFileLineReader(InputStream inputStream, String skipLinePrefix) throws IOException {
+		this(openFirstSheet(openPackage(inputStream)), skipLinePrefix);
+	}
+
+	/**
+	 * @param firstSheet
+	 *            the first sheet of a package that is closed when this reader is closed
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	private StreamingExcelFileLineReader(FirstSheet firstSheet, String skipLinePrefix) throws IOException {
+		this(firstSheet.workbookPackage, firstSheet.sharedStrings, firstSheet.sheetStream, skipLinePrefix);
+	}
+
+	/**
+	 * Initializes a new <code>StreamingExcelFileLineReader</code> to read the input sheet XML. If
+	 * initialization fails, the sheet stream, and the package unless null, are closed.
+	 * 
+	 * @param workbookPackage
+	 *            the package containing the sheet; closed when this reader is closed unless null
+	 * @param sharedStrings
+	 *            the strings shared by the sheets of the workbook
+	 * @param sheetStream
+	 *            the XML of the sheet to read
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	StreamingExcelFileLineReader(OPCPackage workbookPackage, ReadOnlySharedStringsTable sharedStrings,
+			InputStream sheetStream, String skipLinePrefix) throws IOException {
+		super(skipLinePrefix);
+		this.workbookPackage = workbookPackage;
+		this.sharedStrings = sharedStrings;
+		this.sheetStream = sheetStream;
+		boolean initialized = false;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			xml = factory.createXMLStreamReader(sheetStream);
+			/* use the header row to define the number of columns */
+			if (nextRow() != 1) {
+				throw new IllegalArgumentException(
+						"The first row of the sheet is empty. It is required as a header that defines the number of columns.");
+			}
+			parsedRowNumber = 1;
+			columnCount = parseRow(null);
+			cellValues = new String[columnCount];
+			emptyLineText = joinCellValues();
+			parsedRowNumber = nextRow();
+			if (parsedRowNumber != -1)
+				parseRow(cellValues);
+			initialized = true;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (!initialized) {
+				sheetStream.close();
+				if (workbookPackage != null)
+					workbookPackage.revert();
+			}
+		}
+	}
+
+	/**
+	 * The shared strings and first sheet of a workbook package
+	 */
+	private static class FirstSheet {
+		private final OPCPackage workbookPackage;
+		private final ReadOnlySharedStringsTable sharedStrings;
+		private final InputStream sheetStream;
+
+		private FirstSheet(OPCPackage workbookPackage, ReadOnlySharedStringsTable sharedStrings,
+				InputStream sheetStream) {
+			this.workbookPackage = workbookPackage;
+			this.sharedStrings = sharedStrings;
+			this.sheetStream = sheetStream;
+		}
+	}
+
+	/**
+	 * @param workbookPackage
+	 * @return the shared strings and first sheet of the input package; the package is closed if
+	 *         they cannot be read
+	 * @throws IOException
+	 */
+	private static FirstSheet openFirstSheet(OPCPackage workbookPackage) throws IOException {
+		try {
+			return new FirstSheet(workbookPackage, getSharedStrings(workbookPackage), getFirstSheet(workbookPackage));
+		} catch (IOException | RuntimeException e) {
+			workbookPackage.revert();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file
+	 * @return the package of the input workbook file, opened for reading
+	 * @throws IOException
+	 */
+	static OPCPackage openPackage(File file) throws IOException {
+		try {
+			return OPCPackage.open(file, PackageAccess.READ);
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @param inputStream
+	 * @return the package of the workbook provided by the input stream
+	 * @throws IOException
+	 */
+	private static OPCPackage openPackage(InputStream inputStream) throws IOException {
+		try {
+			return OPCPackage.open(inputStream);
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @param workbookPackage
+	 * @return the shared strings table of the workbook
+	 * @throws IOException
+	 */
+	static ReadOnlySharedStringsTable getSharedStrings(OPCPackage workbookPackage) throws IOException {
+		try {
+			return new ReadOnlySharedStringsTable(workbookPackage);
+		} catch (SAXException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @param workbookPackage
+	 * @return the XML of the first sheet of the workbook
+	 * @throws IOException
+	 */
+	private static InputStream getFirstSheet(OPCPackage workbookPackage) throws IOException {
+		try {
+			Iterator<InputStream> sheets = new XSSFReader(workbookPackage).getSheetsData();
+			if (!sheets.hasNext())
+				throw new IllegalArgumentException("The workbook does not contain any sheets.");
+			return sheets.next();
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@Override
+	protected Line getNextLine() throws IOException {
+		try {
+			while (parsedRowNumber != -1) {
+				String text;
+				long rowNumber = nextRowNumber++;
+				if (rowNumber < parsedRowNumber) {
+					/* the row is absent from the sheet */
+					text = emptyLineText;
+				} else {
+					text = joinCellValues();
+					parsedRowNumber = nextRow();
+					if (parsedRowNumber != -1)
+						parseRow(cellValues);
+				}
+				long lineByteOffset = byteOffset;
+				char[] chars = text.toCharArray();
+				byteOffset += CharacterEncoding.UTF_8.getEncodedLength(chars, 0, chars.length)
+						+ LineTerminator.CR.length();
+				if (skipLine(text)) {
+					updateCharacterOffset(text, LineTerminator.CR);
+					continue;
+				}
+				return new Line(text, LineTerminator.CR, getCharacterOffset(), getCodePointOffset(), rowNumber,
+						lineByteOffset);
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return the cell values of the most recently parsed row separated by tabs
+	 */
+	private String joinCellValues() {
+		lineText.setLength(0);
+		for (int col = 0; col < columnCount; col++) {
+			if (col > 0)
+				lineText.append(CELL_DELIMITER);
+			if (cellValues[col] != null)
+				lineText.append(cellValues[col]);
+		}
+		return lineText.toString();
+	}
+
+	/**
+	 * Advances the parser to the start of the next row
+	 * 
+	 * @return the Excel row number of the row, or -1 if there are no more rows
+	 * @throws XMLStreamException
+	 */
+	private long nextRow() throws XMLStreamException {
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+				String rowNumber = xml.getAttributeValue(null, "r");
+				/* the row number attribute is optional; rows without it follow the previous row */
+				return (rowNumber == null) ? Math.max(parsedRowNumber + 1, 1) : Long.parseLong(rowNumber);
+			}
+			if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(xml.getLocalName()))
+				return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses the cells of the row whose start element has just been read
+	 * 
+	 * @param values
+	 *            populated with the cell values of the row; cells beyond the length of the array
+	 *            are ignored. If null, the values are not stored.
+	 * @return one more than the largest column index of the cells in the row
+	 * @throws XMLStreamException
+	 */
+	private int parseRow(String[] values) throws XMLStreamException {
+		if (values != null)
+			Arrays.fill(values, null);
+		int nextColumn = 0;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+				String reference = xml.getAttributeValue(null, "r");
+				int column = (reference == null) ? nextColumn : getColumnIndex(reference);
+				String value = parseCellValue(xml.getAttributeValue(null, "t"));
+				if (values != null && column < values.length)
+					values[column] = value;
+				nextColumn = column + 1;
+			} else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+				break;
+			}
+		}
+		return nextColumn;
+	}
+
+	/**
+	 * Parses the value of the cell whose start element has just been read
+	 * 
+	 * @param type
+	 *            the value of the cell type attribute
+	 * @return the cell value, or null if the cell has no value
+	 * @throws XMLStreamException
+	 */
+	private String parseCellValue(String type) throws XMLStreamException {
+		String value = null;
+		StringBuilder inlineText = null;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if ("v".equals(name)) {
+					value = xml.getElementText();
+				} else if ("t".equals(name)) {
+					if (inlineText == null)
+						inlineText = new StringBuilder();
+					inlineText.append(xml.getElementText());
+				} else if ("f".equals(name)) {
+					xml.getElementText();
+				} else if ("rPh".equals(name)) {
+					skipElement();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName())) {
+				break;
+			}
+		}
+		if ("inlineStr".equals(type))
+			return (inlineText == null) ? null : inlineText.toString();
+		if (value == null)
+			return null;
+		if ("s".equals(type))
+			return sharedStrings.getEntryAt(Integer.parseInt(value.trim()));
+		if ("b".equals(type))
+			return "1".equals(value.trim()) ? "TRUE" : "FALSE";
+		return value;
+	}
+
+	/**
+	 * Skips the element whose start element has just been read, including its content
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	/**
+	 * @param reference
+	 *            a cell reference, e.g. AB12
+	 * @return the zero-based column index of the cell reference
+	 */
+	static int getColumnIndex(String reference) {
+		int column = 0;
+		for (int i = 0; i < reference.length(); i++) {
+			char c = reference.charAt(i);
+			if (c < 'A' || c > 'Z')
+				break;
+			column = column * 26 + (c - 'A' + 1);
+		}
+		return column - 1;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			sheetStream.close();
+			if (workbookPackage != null) {
+				/* the package was opened for reading; revert closes it without saving */
+				workbookPackage.revert();
+			}
+		}
+	}
+
+}
@@ -38,6 +38,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
@@ -46,6 +50,7 @@ import org.apache.log4j.Logger;
 import edu.ucdenver.ccp.common.calendar.CalendarUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileUtil;
+import edu.ucdenver.ccp.common.file.reader.FollowingLineReader;
 import edu.ucdenver.ccp.common.file.reader.Line;
 import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
 
@@ -62,6 +67,17 @@ public class SgeJobMonitor {
 
 	private final long MONITOR_FREQUENCY_IN_MINUTES = 2;
 
+	/**
+	 * Follows each log file so that each check only reads the content appended since the previous
+	 * check
+	 */
+	private final Map<File, FollowingLineReader> logReaders = new HashMap<File, FollowingLineReader>();
+
+	/**
+	 * The log files in which a failure has been observed
+	 */
+	private final Set<File> failedLogFiles = new LinkedHashSet<File>();
+
 	/**
 	 * @param logDirectory
 	 * @param loadScriptDirectory
@@ -90,17 +106,23 @@ public class SgeJobMonitor {
 		logger.info("Monitoring log directories: " + logDirectories.toString());
 		Collection<File> failureLogs;
 		int activeProcessCount = -1;
-		/*
-		 * keep looping as long as there are remaining active qsub processes, i.e. qstat has output
-		 */
-		while ((activeProcessCount = qsubQueueActiveProcessCount()) > 0) {
-			logger.info("================================================================\nChecking logs ["
-					+ CalendarUtil.getTimeStamp() + "]... Active processes: " + activeProcessCount);
-			failureLogs = checkSgeLogs();
-			logger.info("================================================================");
-			Thread.sleep(MONITOR_FREQUENCY_IN_MINUTES * 60 * 1000);
+		try {
+			/*
+			 * keep looping as long as there are remaining active qsub processes, i.e. qstat has
+			 * output
+			 */
+			while ((activeProcessCount = qsubQueueActiveProcessCount()) > 0) {
+				logger.info("================================================================\nChecking logs ["
+						+ CalendarUtil.getTimeStamp() + "]... Active processes: " + activeProcessCount);
+				checkSgeLogs(false);
+				logger.info("================================================================");
+				Thread.sleep(MONITOR_FREQUENCY_IN_MINUTES * 60 * 1000);
+			}
+			/* the processes have completed so any unterminated final log lines are complete */
+			failureLogs = checkSgeLogs(true);
+		} finally {
+			closeLogReaders();
 		}
-		failureLogs = checkSgeLogs();
 		if (!failureLogs.isEmpty()) {
 			logger.info("SGE PROCESS FAILURE. See log file(s): " + failureLogs.toString());
 			throw new RuntimeException("SGE PROCESS FAILURE. See log file(s): " + failureLogs.toString());
@@ -109,36 +131,46 @@ public class SgeJobMonitor {
 	}
 
 	/**
-	 * @return
+	 * Reads the log content written since the previous check, looking for failures
+	 * 
+	 * @param includeUnterminatedLines
+	 *            if true, text at the end of a log that is not followed by a line terminator is
+	 *            also checked
+	 * @return the log files in which a failure has been observed, in this or a previous check
 	 * @throws IOException
 	 */
-	private Collection<File> checkSgeLogs() throws IOException {
-		Collection<File> failureLogs;
-		failureLogs = new ArrayList<File>();
+	private Collection<File> checkSgeLogs(boolean includeUnterminatedLines) throws IOException {
 		for (File logDirectory : logDirectories) {
 			for (File logFile : logDirectory.listFiles()) {
-				StreamLineIterator lineIter = null;
-				try {
-					lineIter = new StreamLineIterator(logFile, CharacterEncoding.UTF_8); 
-					while (lineIter.hasNext()) {
-						Line line = lineIter.next();
-						if (line.getText().contains("BUILD FAILURE")) {
-							logger.error("SGE process failed. See log file: " + logFile.getAbsolutePath());
-							failureLogs.add(logFile);
-						}
-					}
+				FollowingLineReader logReader = logReaders.get(logFile);
+				if (logReader == null) {
+					logReader = new FollowingLineReader(logFile, CharacterEncoding.UTF_8, null);
+					logReaders.put(logFile, logReader);
 				}
-				finally {
-					if (lineIter != null) {
-						lineIter.close();
+				for (Line line = logReader.pollLine(includeUnterminatedLines); line != null; line = logReader
+						.pollLine(includeUnterminatedLines)) {
+					if (line.getText().contains("BUILD FAILURE") && failedLogFiles.add(logFile)) {
+						logger.error("SGE process failed. See log file: " + logFile.getAbsolutePath());
 					}
 				}
 			}
 		}
-		if (failureLogs.size() == 0) {
+		if (failedLogFiles.isEmpty()) {
 			logger.info("Logs are clean.");
 		}
-		return failureLogs;
+		return new ArrayList<File>(failedLogFiles);
+	}
+
+	/**
+	 * Closes the readers used to follow the log files
+	 * 
+	 * @throws IOException
+	 */
+	private void closeLogReaders() throws IOException {
+		for (FollowingLineReader logReader : logReaders.values()) {
+			logReader.close();
+		}
+		logReaders.clear();
 	}
 
 	/**
@@ -0,0 +1,510 @@
+package edu.ucdenver.ccp.common.string;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits delimited lines into fields using a delimiter, and optionally a field enclosure, that is
+ * compiled once and then reused for every line. When the delimiter (and enclosure) are literal
+ * strings, which is by far the most common case, e.g. a tab, a comma or a quotation mark, lines
+ * are split by direct character comparison without involving the regular expression engine. Other
+ * delimiters fall back to a precompiled {@link Pattern}.
+ * <p>
+ * Delimiters that appear inside a field enclosure are ignored, e.g. with a comma delimiter and a
+ * quotation mark enclosure the line <code>a,"b,c",d</code> yields three fields. An opening
+ * enclosure with no matching closing enclosure later on the line is treated as literal text. This
+ * mirrors the behavior of {@link StringUtil#splitWithFieldEnclosure(String, String, String)}.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DelimitedLineParser {
+
+	/**
+	 * Characters that carry special meaning in a regular expression
+	 */
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	private final String delimiterRegex;
+	private final String fieldEnclosureRegex;
+	private final boolean trimFields;
+	private final boolean removeFieldEnclosures;
+
+	/**
+	 * The literal delimiter, or null if the delimiter is a true regular expression
+	 */
+	private final String delimiter;
+	private final char delimiterChar;
+	private final Pattern delimiterPattern;
+
+	/**
+	 * The literal field enclosure, or null if there is no enclosure or the enclosure is a true
+	 * regular expression
+	 */
+	private final String fieldEnclosure;
+	private final Pattern fieldEnclosurePattern;
+	private final Pattern enclosedFieldPattern;
+	private final Pattern enclosurePrefixPattern;
+	private final Pattern enclosureSuffixPattern;
+
+	/**
+	 * Creates a parser that splits lines on the specified delimiter. Fields are returned as-is,
+	 * i.e. the same as {@link String#split(String, int)} with a negative limit.
+	 * 
+	 * @param delimiterRegex
+	 */
+	public DelimitedLineParser(String delimiterRegex) {
+		this(delimiterRegex, null, false, false);
+	}
+
+	/**
+	 * @param delimiterRegex
+	 *            the regular expression matching the field delimiter
+	 * @param fieldEnclosureRegex
+	 *            the regular expression matching the optional field enclosure, may be null
+	 * @param trimFields
+	 *            if true, leading and trailing whitespace is removed from each field
+	 * @param removeFieldEnclosures
+	 *            if true, enclosures surrounding a field are removed from the returned field
+	 */
+	public DelimitedLineParser(String delimiterRegex, String fieldEnclosureRegex, boolean trimFields,
+			boolean removeFieldEnclosures) {
+		if (delimiterRegex == null || delimiterRegex.isEmpty()) {
+			throw new IllegalArgumentException("A non-empty delimiter is required.");
+		}
+		this.delimiterRegex = delimiterRegex;
+		this.fieldEnclosureRegex = (fieldEnclosureRegex == null || fieldEnclosureRegex.isEmpty()) ? null
+				: fieldEnclosureRegex;
+		this.trimFields = trimFields;
+		this.removeFieldEnclosures = removeFieldEnclosures && this.fieldEnclosureRegex != null;
+
+		this.delimiter = getLiteral(delimiterRegex);
+		this.delimiterChar = (delimiter != null && delimiter.length() == 1) ? delimiter.charAt(0) : 0;
+		this.delimiterPattern = Pattern.compile(delimiterRegex);
+
+		if (this.fieldEnclosureRegex == null) {
+			this.fieldEnclosure = null;
+			this.fieldEnclosurePattern = null;
+			this.enclosedFieldPattern = null;
+			this.enclosurePrefixPattern = null;
+			this.enclosureSuffixPattern = null;
+		} else {
+			this.fieldEnclosure = getLiteral(this.fieldEnclosureRegex);
+			this.fieldEnclosurePattern = Pattern.compile(this.fieldEnclosureRegex);
+			this.enclosedFieldPattern = Pattern.compile(this.fieldEnclosureRegex + ".*?" + this.fieldEnclosureRegex);
+			this.enclosurePrefixPattern = Pattern.compile("^(?:" + this.fieldEnclosureRegex + ")");
+			this.enclosureSuffixPattern = Pattern.compile("(?:" + this.fieldEnclosureRegex + ")$");
+		}
+	}
+
+	/**
+	 * @return the regular expression matching the field delimiter
+	 */
+	public String getDelimiterRegex() {
+		return delimiterRegex;
+	}
+
+	/**
+	 * @return the regular expression matching the field enclosure, or null if there is none
+	 */
+	public String getFieldEnclosureRegex() {
+		return fieldEnclosureRegex;
+	}
+
+	/**
+	 * @return true if the delimiter (and enclosure, if any) were recognized as literal strings and
+	 *         lines are therefore split without the use of regular expressions
+	 */
+	public boolean isLiteral() {
+		return delimiter != null && (fieldEnclosureRegex == null || fieldEnclosure != null);
+	}
+
+	/**
+	 * @param line
+	 * @return true if this parser has a field enclosure and it appears on the input line
+	 */
+	public boolean containsFieldEnclosure(String line) {
+		if (fieldEnclosureRegex == null) {
+			return false;
+		}
+		if (fieldEnclosure != null) {
+			return line.contains(fieldEnclosure);
+		}
+		return fieldEnclosurePattern.matcher(line).find();
+	}
+
+	/**
+	 * Splits the input line into its fields
+	 * 
+	 * @param line
+	 * @return the fields of the line, in order
+	 */
+	public String[] parse(String line) {
+		FieldBounds bounds = split(line, Integer.MAX_VALUE);
+		String[] fields = new String[bounds.count];
+		for (int i = 0; i < bounds.count; i++) {
+			fields[i] = createField(line, bounds, i);
+		}
+		return fields;
+	}
+
+	/**
+	 * Returns only the requested columns of the input line. Scanning stops once the highest
+	 * requested column has been found, and only the requested columns are materialized as
+	 * Strings, so projecting a few columns out of a wide line is much cheaper than
+	 * {@link #parse(String)}.
+	 * 
+	 * @param line
+	 * @param columnIndexes
+	 *            the zero-based indexes of the columns to return; if null or empty, all columns are
+	 *            returned
+	 * @return the requested columns in the order requested
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested column does not exist on the line
+	 */
+	public String[] parseColumns(String line, int... columnIndexes) throws ArrayIndexOutOfBoundsException {
+		if (columnIndexes == null || columnIndexes.length == 0) {
+			return parse(line);
+		}
+		int maxColumnIndex = -1;
+		for (int columnIndex : columnIndexes) {
+			if (columnIndex < 0) {
+				/* the total column count is needed to report the invalid index */
+				maxColumnIndex = Integer.MAX_VALUE - 1;
+				break;
+			}
+			maxColumnIndex = Math.max(maxColumnIndex, columnIndex);
+		}
+		FieldBounds bounds = split(line, maxColumnIndex + 1);
+		String[] columns = new String[columnIndexes.length];
+		for (int i = 0; i < columnIndexes.length; i++) {
+			int columnIndex = columnIndexes[i];
+			if (columnIndex < 0 || columnIndex >= bounds.count) {
+				throw createMissingColumnException(line, columnIndex, bounds.count);
+			}
+			columns[i] = createField(line, bounds, columnIndex);
+		}
+		return columns;
+	}
+
+	/**
+	 * Locates the fields of the input line
+	 * 
+	 * @param line
+	 * @param maxFieldCount
+	 *            scanning stops once this many fields have been located
+	 * @return the start and end index of each field located
+	 */
+	private FieldBounds split(String line, int maxFieldCount) {
+		FieldBounds bounds = new FieldBounds();
+		if (isLiteral()) {
+			splitLiteral(line, maxFieldCount, bounds);
+		} else {
+			splitRegex(line, maxFieldCount, bounds);
+		}
+		return bounds;
+	}
+
+	/**
+	 * Splits the line by direct comparison against the literal delimiter and enclosure
+	 */
+	private void splitLiteral(String line, int maxFieldCount, FieldBounds bounds) {
+		int fieldStart = 0;
+		boolean checkEnclosures = fieldEnclosure != null;
+		int index = 0;
+		int length = line.length();
+		while (true) {
+			int delimiterStart;
+			if (!checkEnclosures) {
+				delimiterStart = (delimiterChar != 0) ? line.indexOf(delimiterChar, index) : line.indexOf(delimiter,
+						index);
+			} else {
+				delimiterStart = -1;
+				while (index < length) {
+					if (line.startsWith(fieldEnclosure, index)) {
+						int closingEnclosure = line.indexOf(fieldEnclosure, index + fieldEnclosure.length());
+						if (closingEnclosure < 0) {
+							/*
+							 * an unmatched enclosure is literal text, and no enclosure that follows it
+							 * can be matched either
+							 */
+							checkEnclosures = false;
+							delimiterStart = (delimiterChar != 0) ? line.indexOf(delimiterChar, index) : line
+									.indexOf(delimiter, index);
+							break;
+						}
+						index = closingEnclosure + fieldEnclosure.length();
+						continue;
+					}
+					if (delimiterChar != 0 ? line.charAt(index) == delimiterChar : line.startsWith(delimiter, index)) {
+						delimiterStart = index;
+						break;
+					}
+					index++;
+				}
+			}
+			if (delimiterStart < 0) {
+				bounds.add(fieldStart, length);
+				return;
+			}
+			bounds.add(fieldStart, delimiterStart);
+			if (bounds.count >= maxFieldCount) {
+				return;
+			}
+			fieldStart = index = delimiterStart + delimiter.length();
+		}
+	}
+
+	/**
+	 * Splits the line using the compiled delimiter pattern, skipping any delimiter matches that
+	 * fall inside an enclosed field. Without an enclosure the result is identical to
+	 * {@link Pattern#split(CharSequence, int)} with a negative limit.
+	 */
+	private void splitRegex(String line, int maxFieldCount, FieldBounds bounds) {
+		int[] enclosedRegions = getEnclosedRegions(line);
+		int regionCount = (enclosedRegions == null) ? 0 : enclosedRegions[0];
+		int region = 0;
+		int fieldStart = 0;
+		Matcher matcher = delimiterPattern.matcher(line);
+		boolean found = matcher.find();
+		while (found) {
+			int delimiterStart = matcher.start();
+			while (region < regionCount && enclosedRegions[2 * region + 2] <= delimiterStart) {
+				region++;
+			}
+			if (region < regionCount && enclosedRegions[2 * region + 1] <= delimiterStart) {
+				found = matcher.find(enclosedRegions[2 * region + 2]);
+				continue;
+			}
+			/* a zero-width match at the beginning never produces an empty leading field */
+			if (!(fieldStart == 0 && delimiterStart == 0 && matcher.end() == 0)) {
+				bounds.add(fieldStart, delimiterStart);
+				if (bounds.count >= maxFieldCount) {
+					return;
+				}
+				fieldStart = matcher.end();
+			}
+			found = matcher.find();
+		}
+		bounds.add(fieldStart, line.length());
+	}
+
+	/**
+	 * @param line
+	 * @return the enclosed regions of the line encoded as an array whose first element is the
+	 *         number of regions followed by the start and end index of each region, or null if the
+	 *         line contains no enclosed regions
+	 */
+	private int[] getEnclosedRegions(String line) {
+		if (fieldEnclosureRegex == null) {
+			return null;
+		}
+		int[] regions = null;
+		int count = 0;
+		if (fieldEnclosure != null) {
+			int start = line.indexOf(fieldEnclosure);
+			while (start >= 0) {
+				int end = line.indexOf(fieldEnclosure, start + fieldEnclosure.length());
+				if (end < 0) {
+					break;
+				}
+				end += fieldEnclosure.length();
+				regions = addRegion(regions, count++, start, end);
+				start = line.indexOf(fieldEnclosure, end);
+			}
+		} else {
+			Matcher matcher = enclosedFieldPattern.matcher(line);
+			while (matcher.find()) {
+				regions = addRegion(regions, count++, matcher.start(), matcher.end());
+			}
+		}
+		if (regions != null) {
+			regions[0] = count;
+		}
+		return regions;
+	}
+
+	private static int[] addRegion(int[] regions, int index, int start, int end) {
+		if (regions == null) {
+			regions = new int[9];
+		} else if (2 * index + 3 > regions.length) {
+			int[] expanded = new int[regions.length * 2 + 1];
+			System.arraycopy(regions, 0, expanded, 0, regions.length);
+			regions = expanded;
+		}
+		regions[2 * index + 1] = start;
+		regions[2 * index + 2] = end;
+		return regions;
+	}
+
+	/**
+	 * @return the field at the specified index, trimmed and stripped of its enclosures if so
+	 *         configured
+	 */
+	private String createField(String line, FieldBounds bounds, int fieldIndex) {
+		int[] fieldBounds = new int[] { bounds.offsets[2 * fieldIndex], bounds.offsets[2 * fieldIndex + 1] };
+		adjustFieldBounds(line, fieldBounds);
+		return line.substring(fieldBounds[0], fieldBounds[1]);
+	}
+
+	/**
+	 * Narrows the input start and end index of a field to exclude surrounding whitespace and field
+	 * enclosures if so configured
+	 */
+	private void adjustFieldBounds(String line, int[] fieldBounds) {
+		int start = fieldBounds[0];
+		int end = fieldBounds[1];
+		if (trimFields) {
+			while (start < end && line.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {
+				end--;
+			}
+		}
+		if (removeFieldEnclosures) {
+			if (fieldEnclosure != null) {
+				int enclosureLength = fieldEnclosure.length();
+				if (end - start >= enclosureLength && line.startsWith(fieldEnclosure, start)
+						&& line.startsWith(fieldEnclosure, end - enclosureLength)) {
+					start += enclosureLength;
+					if (end - start >= enclosureLength && line.startsWith(fieldEnclosure, end - enclosureLength)) {
+						end -= enclosureLength;
+					}
+				}
+			} else {
+				Matcher prefix = enclosurePrefixPattern.matcher(line).region(start, end);
+				if (prefix.find() && enclosureSuffixPattern.matcher(line).region(start, end).find()) {
+					start = prefix.end();
+					Matcher suffix = enclosureSuffixPattern.matcher(line).region(start, end);
+					if (suffix.find()) {
+						end = suffix.start();
+					}
+				}
+			}
+		}
+		fieldBounds[0] = start;
+		fieldBounds[1] = end;
+	}
+
+	/**
+	 * Locates a single column of the input line without creating a String for it, e.g. so that a
+	 * numeric value can be parsed directly from the line. Scanning stops once the column has been
+	 * found. Trimming and enclosure removal are applied to the returned bounds if so configured.
+	 * 
+	 * @param line
+	 * @param columnIndex
+	 * @param columnBounds
+	 *            an array of length two that is populated with the start (inclusive) and end
+	 *            (exclusive) index of the column in the line
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on the line
+	 */
+	public void locateColumn(String line, int columnIndex, int[] columnBounds)
+			throws ArrayIndexOutOfBoundsException {
+		FieldBounds bounds = split(line, columnIndex < 0 ? Integer.MAX_VALUE : columnIndex + 1);
+		if (columnIndex < 0 || columnIndex >= bounds.count) {
+			throw createMissingColumnException(line, columnIndex, bounds.count);
+		}
+		columnBounds[0] = bounds.offsets[2 * columnIndex];
+		columnBounds[1] = bounds.offsets[2 * columnIndex + 1];
+		adjustFieldBounds(line, columnBounds);
+	}
+
+	private static ArrayIndexOutOfBoundsException createMissingColumnException(String line, int columnIndex,
+			int columnCount) {
+		return new ArrayIndexOutOfBoundsException(String.format(
+				"Column index %d does not exist on line. There are only %d columns on line: %s", columnIndex,
+				columnCount, line));
+	}
+
+	/**
+	 * Returns the literal string matched by the input regular expression if it matches exactly one
+	 * fixed string, e.g. <code>\t</code>, <code>,</code>, <code>\|</code> or
+	 * <code>\Q...\E</code>.
+	 * 
+	 * @param regex
+	 * @return the literal string, or null if the regular expression is not a simple literal
+	 */
+	static String getLiteral(String regex) {
+		if (regex.startsWith("\\Q") && regex.endsWith("\\E") && regex.length() >= 4) {
+			String literal = regex.substring(2, regex.length() - 2);
+			return (literal.isEmpty() || literal.contains("\\E")) ? null : literal;
+		}
+		if (regex.length() == 2 && regex.charAt(0) == '\\') {
+			char c = regex.charAt(1);
+			if (c == 't') {
+				return "\t";
+			}
+			return (Character.isLetterOrDigit(c) || c > 0x7F) ? null : Character.toString(c);
+		}
+		for (int i = 0; i < regex.length(); i++) {
+			if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+				return null;
+			}
+		}
+		return regex;
+	}
+
+	/**
+	 * The start and end index of each field located on a line
+	 */
+	private static class FieldBounds {
+		private int[] offsets = new int[16];
+		private int count = 0;
+
+		private void add(int start, int end) {
+			if (2 * count + 2 > offsets.length) {
+				int[] expanded = new int[offsets.length * 2];
+				System.arraycopy(offsets, 0, expanded, 0, offsets.length);
+				offsets = expanded;
+			}
+			offsets[2 * count] = start;
+			offsets[2 * count + 1] = end;
+			count++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DelimitedLineParser [delimiterRegex=" + delimiterRegex + ", fieldEnclosureRegex="
+				+ fieldEnclosureRegex + ", trimFields=" + trimFields + ", removeFieldEnclosures="
+				+ removeFieldEnclosures + "]";
+	}
+
+}
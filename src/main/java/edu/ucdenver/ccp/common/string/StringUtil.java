@@ -46,7 +46,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -316,6 +319,10 @@ public class StringUtil {
 	 * Splits the input string, but ignores any delimiters inside a field. For example, you might be
 	 * splitting a comma-delimited line but have a field indicated by quotation marks that can
 	 * contain a comma. e.g. token 1,token 2,"token, 3 has a comma",token 4
+	 * <p>
+	 * The delimiter and field enclosure are compiled once into a {@link DelimitedLineParser} that
+	 * is cached and reused for subsequent calls with the same arguments. Callers splitting many
+	 * lines with the same delimiter may want to use a {@link DelimitedLineParser} directly.
 	 * 
 	 * @param inputStr
 	 * @param delimiters
@@ -323,25 +330,8 @@ public class StringUtil {
 	 */
 	public static String[] splitWithFieldEnclosure(String inputStr, String delimiterRegex,
 			String optionalFieldEnclosureRegex) {
-		if (optionalFieldEnclosureRegex == null || !containsRegex(inputStr, optionalFieldEnclosureRegex)) {
-			return inputStr.split(delimiterRegex, -1);
-		}
-		String copyOfInputStr = normalizeInputFields(inputStr, delimiterRegex, optionalFieldEnclosureRegex);
-		List<String> tokens = new ArrayList<String>();
-		int previousDelimiterEndIndex = 0;
-		Matcher matcher = Pattern.compile(delimiterRegex).matcher(copyOfInputStr);
-		while (matcher.find()) {
-			int delimiterStartIndex = matcher.start();
-			int delimiterEndIndex = matcher.end();
-			tokens.add(inputStr.substring(previousDelimiterEndIndex, delimiterStartIndex).trim());
-			previousDelimiterEndIndex = delimiterEndIndex;
-		}
-		if (previousDelimiterEndIndex == 0) {
-			tokens.add(inputStr.trim());
-		} else {
-			tokens.add(inputStr.substring(previousDelimiterEndIndex).trim());
-		}
-		return tokens.toArray(new String[tokens.size()]);
+		return splitWithFieldEnclosure(inputStr, delimiterRegex, optionalFieldEnclosureRegex,
+				RemoveFieldEnclosures.FALSE);
 	}
 
 	/**
@@ -359,17 +349,93 @@ public class StringUtil {
 	 */
 	public static String[] splitWithFieldEnclosure(String inputStr, String delimiterRegex,
 			String optionalFieldEnclosureRegex, RemoveFieldEnclosures removeOptionalFieldEnclosure) {
-		String[] tokens = splitWithFieldEnclosure(inputStr, delimiterRegex, optionalFieldEnclosureRegex);
+		return getFieldEnclosureParser(inputStr, delimiterRegex, optionalFieldEnclosureRegex,
+				removeOptionalFieldEnclosure).parse(inputStr);
+	}
+
+	/**
+	 * Splits the input string as described in splitWithFieldEnclosure, but returns only the
+	 * requested columns. The line is scanned no further than the highest requested column.
+	 * 
+	 * @param inputStr
+	 * @param delimiterRegex
+	 * @param optionalFieldEnclosureRegex
+	 * @param removeOptionalFieldEnclosure
+	 * @param columnIndexes
+	 *            the zero-based indexes of the columns to return; if null or empty, all columns are
+	 *            returned
+	 * @return the requested columns in the order requested
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested column does not exist in the input string
+	 */
+	public static String[] splitColumnsWithFieldEnclosure(String inputStr, String delimiterRegex,
+			String optionalFieldEnclosureRegex, RemoveFieldEnclosures removeOptionalFieldEnclosure,
+			int... columnIndexes) throws ArrayIndexOutOfBoundsException {
+		return getFieldEnclosureParser(inputStr, delimiterRegex, optionalFieldEnclosureRegex,
+				removeOptionalFieldEnclosure).parseColumns(inputStr, columnIndexes);
+	}
+
+	/**
+	 * Returns the (cached) {@link DelimitedLineParser} that splits the input string the way
+	 * splitWithFieldEnclosure does. If the field enclosure does not appear in the input string, a
+	 * parser that splits on the delimiter alone without trimming the tokens is returned; otherwise
+	 * the returned parser trims the tokens and ignores delimiters inside enclosed fields.
+	 * 
+	 * @param inputStr
+	 * @param delimiterRegex
+	 * @param optionalFieldEnclosureRegex
+	 * @param removeOptionalFieldEnclosure
+	 * @return
+	 */
+	static DelimitedLineParser getFieldEnclosureParser(String inputStr, String delimiterRegex,
+			String optionalFieldEnclosureRegex, RemoveFieldEnclosures removeOptionalFieldEnclosure) {
+		if (optionalFieldEnclosureRegex == null) {
+			return getDelimitedLineParser(delimiterRegex, null, RemoveFieldEnclosures.FALSE);
+		}
+		DelimitedLineParser parser = getDelimitedLineParser(delimiterRegex, optionalFieldEnclosureRegex,
+				removeOptionalFieldEnclosure);
+		if (!parser.containsFieldEnclosure(inputStr)) {
+			/* fields are only trimmed if the line contains a field enclosure */
+			return getDelimitedLineParser(delimiterRegex, null, RemoveFieldEnclosures.FALSE);
+		}
+		/* retained for compatibility with the original implementation, which masked enclosed fields with zeros */
+		if (delimiterRegex.contains(StringConstants.DIGIT_ZERO))
+			throw new IllegalArgumentException(String.format(
+					"Delimiters containing the character '%s' are not supported when splitting with a field "
+							+ "enclosure. Please use a different delimiter: %s", StringConstants.DIGIT_ZERO,
+					delimiterRegex));
+		return parser;
+	}
 
-		if (removeOptionalFieldEnclosure.equals(RemoveFieldEnclosures.TRUE)) {
-			for (int i = 0; i < tokens.length; i++) {
-				if (StringUtil.startsAndEndsWithRegex(tokens[i], optionalFieldEnclosureRegex)) {
-					tokens[i] = StringUtil.removePrefixRegex(tokens[i], optionalFieldEnclosureRegex);
-					tokens[i] = StringUtil.removeSuffixRegex(tokens[i], optionalFieldEnclosureRegex);
+	/**
+	 * Limits the size of the parser cache in case of callers that construct delimiters dynamically
+	 */
+	private static final int MAX_CACHED_DELIMITED_LINE_PARSERS = 256;
+
+	/**
+	 * Cache of the parsers used by splitWithFieldEnclosure, keyed by delimiter, field enclosure
+	 * and whether enclosures are removed. Lookups are lock-free as the cache is consulted for
+	 * every line split; once full, an arbitrary parser is evicted to make room for a new one.
+	 */
+	private static final Map<String, DelimitedLineParser> DELIMITED_LINE_PARSERS = new ConcurrentHashMap<String, DelimitedLineParser>();
+
+	private static DelimitedLineParser getDelimitedLineParser(String delimiterRegex, String fieldEnclosureRegex,
+			RemoveFieldEnclosures removeFieldEnclosures) {
+		String key = delimiterRegex + '\u0000' + fieldEnclosureRegex + '\u0000' + removeFieldEnclosures;
+		DelimitedLineParser parser = DELIMITED_LINE_PARSERS.get(key);
+		if (parser == null) {
+			parser = new DelimitedLineParser(delimiterRegex, fieldEnclosureRegex, fieldEnclosureRegex != null,
+					removeFieldEnclosures.equals(RemoveFieldEnclosures.TRUE));
+			if (DELIMITED_LINE_PARSERS.size() >= MAX_CACHED_DELIMITED_LINE_PARSERS) {
+				Iterator<String> keyIter = DELIMITED_LINE_PARSERS.keySet().iterator();
+				if (keyIter.hasNext()) {
+					keyIter.next();
+					keyIter.remove();
 				}
 			}
+			DELIMITED_LINE_PARSERS.put(key, parser);
 		}
-		return tokens;
+		return parser;
 	}
 
 	public enum RemoveFieldEnclosures {
@@ -401,34 +467,6 @@ public class StringUtil {
 		return nonEmptyTokens;
 	}
 
-	/**
-	 * Given an inputStr with possible delimiters hidden inside fields, this method returns a String
-	 * where the fields have been normalized (turned into a string of zero's)
-	 * 
-	 * @param inputStr
-	 * @param delimiterRegex
-	 * @param optionalFieldEnclosureCharacter
-	 * @return
-	 */
-	private static String normalizeInputFields(String inputStr, String delimiterRegex,
-			String optionalFieldEnclosureRegex) {
-		String tempReplacementStr = StringConstants.DIGIT_ZERO;
-		if (delimiterRegex.contains(tempReplacementStr))
-			throw new IllegalArgumentException(
-					"Warning. Potential error exists in current use of splitWithFieldDelimiter(). "
-							+ "This method uses the character '%s' internally during a split procedure. The "
-							+ "input delimiter contains the character '%s'. Therefore there is a potential conflict. "
-							+ "Please use a different delimiter. Exiting...");
-		String copyOfInputStr = inputStr;
-		Pattern fieldPattern = Pattern.compile(optionalFieldEnclosureRegex + ".*?" + optionalFieldEnclosureRegex);
-		Matcher matcher = fieldPattern.matcher(inputStr);
-		while (matcher.find()) {
-			copyOfInputStr = copyOfInputStr.replace(matcher.group(),
-					createRepeatingString(StringConstants.DIGIT_ZERO, matcher.group().length()));
-		}
-		return copyOfInputStr;
-	}
-
 	/**
 	 * Returns a sequence of the input string repeated length times.
 	 * 
@@ -33,7 +33,15 @@ package edu.ucdenver.ccp.concurrency;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,4 +68,44 @@ public class ConcurrencyUtil {
 		}
 	}
 
+	/**
+	 * Submits the tasks to the pool and waits for all of them to complete. If a task fails, the
+	 * exception it threw is rethrown in the current thread; an <code>IOException</code> or
+	 * <code>RuntimeException</code> is rethrown as is, anything else is wrapped in a
+	 * <code>RuntimeException</code>.
+	 * 
+	 * @param pool
+	 *            task/thread pool
+	 * @param tasks
+	 * @return the results of the tasks, in the order of the input tasks
+	 * @throws IOException
+	 *             if a task throws an IOException, or if the current thread is interrupted while
+	 *             waiting
+	 */
+	public static <T> List<T> invokeAll(ExecutorService pool, Collection<? extends Callable<T>> tasks)
+			throws IOException {
+		try {
+			List<T> results = new ArrayList<T>(tasks.size());
+			for (Future<T> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // Preserve interrupt status
+			throw new InterruptedIOException("Interrupted while waiting for tasks to complete.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
 }
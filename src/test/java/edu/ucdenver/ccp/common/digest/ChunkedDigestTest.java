@@ -0,0 +1,218 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ChunkedDigestTest extends DefaultTestCase {
+
+	private static final int BLOCK_SIZE = 1000;
+
+	private byte[] createBytes(int length) {
+		byte[] bytes = new byte[length];
+		new Random(5).nextBytes(bytes);
+		return bytes;
+	}
+
+	private File writeFile(String fileName, byte[] bytes) throws IOException {
+		File file = new File(folder.getRoot(), fileName);
+		FileUtils.writeByteArrayToFile(file, bytes);
+		return file;
+	}
+
+	@Test
+	public void testCompute() throws IOException {
+		byte[] bytes = createBytes(10500);
+		ChunkedDigest digest = ChunkedDigest.compute(writeFile("sample.bin", bytes), DigestAlgorithm.SHA_256,
+				BLOCK_SIZE);
+		assertEquals(11, digest.getBlockCount());
+		assertEquals(10500, digest.getLength());
+		assertEquals(DigestUtils.sha256Hex(Arrays.copyOfRange(bytes, 3000, 4000)), digest.getBlockDigest(3));
+		assertEquals(DigestUtils.sha256Hex(Arrays.copyOfRange(bytes, 10000, 10500)), digest.getBlockDigest(10));
+		assertEquals(64, digest.getRootDigest().length());
+
+		/* the single leaf of a small file is prefixed, and the root binds the block size and length */
+		digest = ChunkedDigest.compute(writeFile("small.bin", Arrays.copyOf(bytes, 700)), DigestAlgorithm.MD5,
+				BLOCK_SIZE);
+		assertEquals(1, digest.getBlockCount());
+		assertEquals(DigestUtils.md5Hex(Arrays.copyOf(bytes, 700)), digest.getBlockDigest(0));
+		byte[] leaf = DigestUtils.md5(concat(new byte[] { 0x00 }, DigestUtils.md5(Arrays.copyOf(bytes, 700))));
+		assertEquals(DigestUtils.md5Hex(concat(new byte[] { 0x02 },
+				ByteBuffer.allocate(12).putInt(BLOCK_SIZE).putLong(700).array(), leaf)), digest.getRootDigest());
+		assertFalse(DigestUtils.md5Hex(Arrays.copyOf(bytes, 700)).equals(digest.getRootDigest()));
+
+		digest = ChunkedDigest.compute(writeFile("empty.bin", new byte[0]), DigestAlgorithm.MD5, BLOCK_SIZE);
+		assertEquals(1, digest.getBlockCount());
+		assertEquals(DigestUtils.md5Hex(new byte[0]), digest.getBlockDigest(0));
+	}
+
+	private static byte[] concat(byte[]... arrays) {
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		for (byte[] array : arrays) {
+			buffer.put(array);
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	@Test
+	public void testRootDigestDependsOnBlockSize() throws IOException {
+		/* the same bytes split into blocks of a different size do not share a root */
+		File file = writeFile("small.bin", createBytes(700));
+		String rootDigest = ChunkedDigest.compute(file, DigestAlgorithm.MD5, BLOCK_SIZE).getRootDigest();
+		assertFalse(rootDigest.equals(ChunkedDigest.compute(file, DigestAlgorithm.MD5, 2 * BLOCK_SIZE)
+				.getRootDigest()));
+	}
+
+	@Test
+	public void testRootDigestDependsOnEveryBlock() throws IOException {
+		byte[] bytes = createBytes(5 * BLOCK_SIZE);
+		String rootDigest = ChunkedDigest.compute(writeFile("sample.bin", bytes), DigestAlgorithm.MD5, BLOCK_SIZE)
+				.getRootDigest();
+		for (int block = 0; block < 5; block++) {
+			byte[] modifiedBytes = bytes.clone();
+			modifiedBytes[block * BLOCK_SIZE + 17]++;
+			ChunkedDigest digest = ChunkedDigest.compute(writeFile("modified.bin", modifiedBytes),
+					DigestAlgorithm.MD5, BLOCK_SIZE);
+			assertFalse(rootDigest.equals(digest.getRootDigest()));
+		}
+	}
+
+	@Test
+	public void testVerify() throws IOException {
+		byte[] bytes = createBytes(10500);
+		File file = writeFile("sample.bin", bytes);
+		ChunkedDigest expectedDigest = ChunkedDigest.compute(file, DigestAlgorithm.CRC32C, BLOCK_SIZE);
+		assertTrue(expectedDigest.verify(file).isEmpty());
+
+		bytes[3456]++;
+		bytes[7999]++;
+		writeFile("sample.bin", bytes);
+		assertEquals(CollectionsUtil.createList(3, 7), expectedDigest.verify(file));
+
+		/* an incomplete download reports the partial block and the missing blocks */
+		writeFile("partial.bin", Arrays.copyOf(bytes, 8500));
+		assertEquals(CollectionsUtil.createList(3, 7, 8, 9, 10),
+				expectedDigest.verify(new File(folder.getRoot(), "partial.bin")));
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		File file = writeFile("sample.bin", createBytes(4321));
+		ChunkedDigest digest = ChunkedDigest.compute(file, DigestAlgorithm.SHA_1, BLOCK_SIZE);
+		File digestFile = new File(folder.getRoot(), "sample.bin.merkle");
+		digest.write(digestFile);
+		ChunkedDigest readDigest = ChunkedDigest.read(digestFile);
+		assertEquals(DigestAlgorithm.SHA_1, readDigest.getAlgorithm());
+		assertEquals(BLOCK_SIZE, readDigest.getBlockSize());
+		assertEquals(4321, readDigest.getLength());
+		assertEquals(digest.getRootDigest(), readDigest.getRootDigest());
+		assertTrue(readDigest.verify(file).isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testRead_tamperedBlockDigest() throws IOException {
+		File file = writeFile("sample.bin", createBytes(4321));
+		File digestFile = new File(folder.getRoot(), "sample.bin.merkle");
+		ChunkedDigest.compute(file, DigestAlgorithm.MD5, BLOCK_SIZE).write(digestFile);
+		List<String> lines = FileUtils.readLines(digestFile, "UTF-8");
+		lines.set(6, DigestUtils.md5Hex("tampered"));
+		FileUtils.writeLines(digestFile, "UTF-8", lines);
+		ChunkedDigest.read(digestFile);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRead_tamperedLength() throws IOException {
+		File file = writeFile("sample.bin", createBytes(4321));
+		File digestFile = new File(folder.getRoot(), "sample.bin.merkle");
+		ChunkedDigest.compute(file, DigestAlgorithm.MD5, BLOCK_SIZE).write(digestFile);
+		List<String> lines = FileUtils.readLines(digestFile, "UTF-8");
+		lines.set(3, "length 4322");
+		FileUtils.writeLines(digestFile, "UTF-8", lines);
+		ChunkedDigest.read(digestFile);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRead_previousFormatVersion() throws IOException {
+		File file = writeFile("sample.bin", createBytes(4321));
+		File digestFile = new File(folder.getRoot(), "sample.bin.merkle");
+		ChunkedDigest.compute(file, DigestAlgorithm.MD5, BLOCK_SIZE).write(digestFile);
+		List<String> lines = FileUtils.readLines(digestFile, "UTF-8");
+		lines.set(0, "# chunked digest v1");
+		FileUtils.writeLines(digestFile, "UTF-8", lines);
+		ChunkedDigest.read(digestFile);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetMismatchedBlocks_differentBlockSizes() throws IOException {
+		File file = writeFile("sample.bin", createBytes(4321));
+		ChunkedDigest.compute(file, DigestAlgorithm.MD5, BLOCK_SIZE).getMismatchedBlocks(
+				ChunkedDigest.compute(file, DigestAlgorithm.MD5, 2 * BLOCK_SIZE));
+	}
+
+	@Test
+	public void testChunkedChecksumFile() throws IOException {
+		byte[] bytes = createBytes(10500);
+		File file = writeFile("sample.bin", bytes);
+		File checksumFile = FileComparisonUtil.createChunkedChecksumFile(file, DigestAlgorithm.MD5, BLOCK_SIZE);
+		assertEquals(FileComparisonUtil.getChunkedChecksumFile(file), checksumFile);
+		assertTrue(FileComparisonUtil.fileHasExpectedChunkedChecksum(file));
+
+		bytes[5001]++;
+		writeFile("sample.bin", bytes);
+		assertFalse(FileComparisonUtil.fileHasExpectedChunkedChecksum(file));
+		assertEquals(CollectionsUtil.createList(5), FileComparisonUtil.findCorruptBlocks(file));
+	}
+
+}
@@ -0,0 +1,189 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.FileComparisonUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DigestCacheTest extends DefaultTestCase {
+
+	/**
+	 * Writes the input content to the file and sets its modification time a minute in the past,
+	 * outside the window in which digests are not cached
+	 */
+	private File writeFile(File file, String content) throws IOException {
+		FileUtils.writeStringToFile(file, content, "UTF-8");
+		assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+		return file;
+	}
+
+	@Test
+	public void testGetDigests_unchangedFileIsNotRead() throws IOException {
+		File file = writeFile(folder.newFile("sample.txt"), "original");
+		DigestCache cache = new DigestCache(new File(folder.getRoot(), "digests.cache"));
+		assertEquals(DigestUtils.md5Hex("original"), cache.getDigest(file, DigestAlgorithm.MD5));
+
+		/*
+		 * replace the content without changing the size or modification time; the cached digest is
+		 * returned as the file is not read again
+		 */
+		long lastModified = file.lastModified();
+		writeFile(file, "modified");
+		assertTrue(file.setLastModified(lastModified));
+		assertEquals(DigestUtils.md5Hex("original"), cache.getDigest(file, DigestAlgorithm.MD5));
+
+		/* a digest for a new algorithm is computed from the current content */
+		Map<DigestAlgorithm, String> digests = cache.getDigests(file, DigestAlgorithm.MD5, DigestAlgorithm.SHA_1);
+		assertEquals(DigestUtils.md5Hex("original"), digests.get(DigestAlgorithm.MD5));
+		assertEquals(DigestUtils.shaHex("modified"), digests.get(DigestAlgorithm.SHA_1));
+
+		/* a change in modification time invalidates the cached digests */
+		assertTrue(file.setLastModified(lastModified - 10000));
+		assertEquals(DigestUtils.md5Hex("modified"), cache.getDigest(file, DigestAlgorithm.MD5));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testSave() throws IOException {
+		File file = writeFile(folder.newFile("sample.txt"), "original");
+		File cacheFile = new File(folder.getRoot(), "digests.cache");
+		DigestCache cache = new DigestCache(cacheFile);
+		cache.getDigests(file, DigestAlgorithm.MD5, DigestAlgorithm.CRC32C);
+		cache.save();
+		assertTrue(cacheFile.exists());
+
+		long lastModified = file.lastModified();
+		writeFile(file, "modified");
+		assertTrue(file.setLastModified(lastModified));
+		DigestCache reloadedCache = new DigestCache(cacheFile);
+		assertEquals(1, reloadedCache.size());
+		assertEquals(DigestUtils.md5Hex("original"), reloadedCache.getDigest(file, DigestAlgorithm.MD5));
+	}
+
+	@Test
+	public void testRecentlyModifiedFileIsNotCached() throws IOException {
+		File file = folder.newFile("sample.txt");
+		FileUtils.writeStringToFile(file, "original", "UTF-8");
+		DigestCache cache = new DigestCache(new File(folder.getRoot(), "digests.cache"));
+		assertEquals(DigestUtils.md5Hex("original"), cache.getDigest(file, DigestAlgorithm.MD5));
+		assertEquals(0, cache.size());
+
+		/* a file rewritten within the same timestamp is read again */
+		long lastModified = file.lastModified();
+		FileUtils.writeStringToFile(file, "modified", "UTF-8");
+		assertTrue(file.setLastModified(lastModified));
+		assertEquals(DigestUtils.md5Hex("modified"), cache.getDigest(file, DigestAlgorithm.MD5));
+	}
+
+	@Test
+	public void testSaveRemovesDeletedFiles() throws IOException {
+		File file1 = writeFile(folder.newFile("sample1.txt"), "content 1");
+		File file2 = writeFile(folder.newFile("sample2.txt"), "content 2");
+		File cacheFile = new File(folder.getRoot(), "digests.cache");
+		DigestCache cache = new DigestCache(cacheFile);
+		cache.getDigest(file1, DigestAlgorithm.MD5);
+		cache.getDigest(file2, DigestAlgorithm.MD5);
+		assertTrue(file1.delete());
+		cache.save();
+		assertEquals(1, cache.size());
+		assertEquals(1, new DigestCache(cacheFile).size());
+		/* no temporary files are left behind */
+		assertEquals(2, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testUnreadableCacheFileIsIgnored() throws IOException {
+		File cacheFile = writeFile(folder.newFile("digests.cache"), "not a cache file");
+		DigestCache cache = new DigestCache(cacheFile);
+		assertEquals(0, cache.size());
+		File file = writeFile(folder.newFile("sample.txt"), "original");
+		assertEquals(DigestUtils.md5Hex("original"), cache.getDigest(file, DigestAlgorithm.MD5));
+		cache.save();
+		assertEquals(1, new DigestCache(cacheFile).size());
+	}
+
+	@Test
+	public void testComputeDirectoryDigests() throws IOException {
+		File directory = folder.newFolder("release");
+		File subdirectory = new File(directory, "data");
+		assertTrue(subdirectory.mkdir());
+		for (int i = 0; i < 20; i++) {
+			writeFile(new File((i % 2 == 0) ? directory : subdirectory, "file" + i + ".txt"), "content " + i);
+		}
+		File cacheFile = new File(directory, "digests.cache");
+		DigestCache cache = new DigestCache(cacheFile);
+		Map<File, Map<DigestAlgorithm, String>> fileToDigestsMap = DigestUtil.computeDigests(directory, true, cache,
+				4, DigestAlgorithm.MD5, DigestAlgorithm.SHA_256);
+		assertEquals(20, fileToDigestsMap.size());
+		File file = new File(subdirectory, "file7.txt");
+		assertEquals(DigestUtils.md5Hex("content 7"), fileToDigestsMap.get(file).get(DigestAlgorithm.MD5));
+		assertEquals(DigestUtils.sha256Hex("content 7"), fileToDigestsMap.get(file).get(DigestAlgorithm.SHA_256));
+		assertEquals(20, new DigestCache(cacheFile).size());
+
+		/* the saved cache file is skipped when the directory is digested again */
+		fileToDigestsMap = DigestUtil.computeDigests(directory, false, new DigestCache(cacheFile), 2,
+				DigestAlgorithm.MD5);
+		assertEquals(10, fileToDigestsMap.size());
+		assertFalse(fileToDigestsMap.containsKey(cacheFile));
+	}
+
+	@Test
+	public void testFileHasExpectedMd5Checksum() throws IOException {
+		File file = writeFile(folder.newFile("sample.txt"), "original");
+		FileComparisonUtil.createMd5ChecksumFile(file);
+		DigestCache cache = new DigestCache(new File(folder.getRoot(), "digests.cache"));
+		assertTrue(FileComparisonUtil.fileHasExpectedMd5Checksum(file, cache));
+		assertEquals(1, cache.size());
+
+		writeFile(file, "modified content");
+		assertFalse(FileComparisonUtil.fileHasExpectedMd5Checksum(file, cache));
+	}
+
+}
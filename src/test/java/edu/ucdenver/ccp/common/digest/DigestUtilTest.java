@@ -0,0 +1,118 @@
+package edu.ucdenver.ccp.common.digest;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DigestUtilTest extends DefaultTestCase {
+
+	@Test
+	public void testCrc32cDigest() throws Exception {
+		Crc32cDigest digest = new Crc32cDigest();
+		digest.update("123456789".getBytes("US-ASCII"));
+		assertEquals(0xE3069283L, digest.getValue());
+		assertEquals("e3069283", Hex.encodeHexString(digest.digest()));
+
+		/* the digest resets after it is computed */
+		assertEquals(0L, digest.getValue());
+		digest.update(new byte[32]);
+		assertEquals(0x8A9136AAL, digest.getValue());
+	}
+
+	@Test
+	public void testCrc32cDigest_unalignedUpdates() throws Exception {
+		byte[] bytes = new byte[1000];
+		new Random(7).nextBytes(bytes);
+		Crc32cDigest digest = new Crc32cDigest();
+		digest.update(bytes);
+		long expectedValue = digest.getValue();
+
+		digest.reset();
+		digest.update(bytes, 0, 3);
+		digest.update(bytes[3]);
+		for (int offset = 4; offset < bytes.length; offset += 13) {
+			digest.update(bytes, offset, Math.min(13, bytes.length - offset));
+		}
+		assertEquals(expectedValue, digest.getValue());
+	}
+
+	@Test
+	public void testComputeDigests() throws IOException {
+		/* larger than the read buffer so that several reads are required */
+		byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+		new Random(11).nextBytes(bytes);
+		File file = folder.newFile("sample.bin");
+		FileUtils.writeByteArrayToFile(file, bytes);
+
+		Map<DigestAlgorithm, String> digests = DigestUtil.computeDigests(file, DigestAlgorithm.MD5,
+				DigestAlgorithm.SHA_1, DigestAlgorithm.SHA_256, DigestAlgorithm.CRC32C, DigestAlgorithm.MD5);
+		assertEquals(4, digests.size());
+		assertEquals(DigestUtils.md5Hex(bytes), digests.get(DigestAlgorithm.MD5));
+		assertEquals(DigestUtils.shaHex(bytes), digests.get(DigestAlgorithm.SHA_1));
+		assertEquals(DigestUtils.sha256Hex(bytes), digests.get(DigestAlgorithm.SHA_256));
+		Crc32cDigest crc = new Crc32cDigest();
+		crc.update(bytes);
+		assertEquals(String.format("%08x", crc.getValue()), digests.get(DigestAlgorithm.CRC32C));
+		assertEquals(DigestUtils.md5Hex(bytes), DigestUtil.computeDigest(file, DigestAlgorithm.MD5));
+	}
+
+	@Test
+	public void testComputeDigests_emptyFile() throws IOException {
+		File file = folder.newFile("empty.bin");
+		assertEquals(DigestUtils.md5Hex(new byte[0]), DigestUtil.computeDigest(file, DigestAlgorithm.MD5));
+		assertEquals("00000000", DigestUtil.computeDigest(file, DigestAlgorithm.CRC32C));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testComputeDigests_noAlgorithms() throws IOException {
+		DigestUtil.computeDigests(folder.newFile("empty.bin"));
+	}
+
+}
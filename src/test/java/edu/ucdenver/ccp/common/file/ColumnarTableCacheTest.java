@@ -0,0 +1,175 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.string.RegExPatterns;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ColumnarTableCacheTest extends DefaultTestCase {
+
+	private File inputFile;
+	private File cacheDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		inputFile = folder.newFile("mapping.tsv");
+		cacheDirectory = folder.newFolder("cache");
+		FileWriterUtil.printLines(CollectionsUtil.createList("#id\tgene\tscore", "id1\tGENE_A\t1", "id2\tGENE_B\t2",
+				"id3\tGENE_A\t3"), inputFile, CharacterEncoding.UTF_8);
+		/* outside the window in which cache files are rebuilt on every load */
+		assertTrue(inputFile.setLastModified(System.currentTimeMillis() - 60000));
+	}
+
+	@Test
+	public void testCacheFileIsCreatedAndReused() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory);
+		File cacheFile = cache.getCacheFile(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 1, 0);
+		assertFalse(cacheFile.exists());
+
+		ColumnarTable table = cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 1, 0);
+		assertTrue(cacheFile.exists());
+		assertTrue(table.isReadOnly());
+		assertEquals(3, table.getRowCount());
+		assertArrayEquals(new String[] { "GENE_B", "id2" }, table.getRow(1));
+		long cacheFileModified = cacheFile.lastModified();
+
+		ColumnarTable cachedTable = cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB,
+				"#", 1, 0);
+		assertEquals(cacheFileModified, cacheFile.lastModified());
+		assertEquals(table.getDictionary(), cachedTable.getDictionary());
+		assertArrayEquals(table.getColumnCodes(0), cachedTable.getColumnCodes(0));
+		assertArrayEquals(table.getColumnCodes(1), cachedTable.getColumnCodes(1));
+
+		List<String[]> rows = cache.loadColumns(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 1, 0);
+		List<String[]> expectedRows = FileReaderUtil.loadColumnsFromDelimitedFile(inputFile, CharacterEncoding.UTF_8,
+				RegExPatterns.TAB, "#", 1, 0);
+		assertEquals(expectedRows.size(), rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertArrayEquals(expectedRows.get(i), rows.get(i));
+		}
+	}
+
+	@Test
+	public void testCacheFileIsKeyedByRequest() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory);
+		File cacheFile1 = cache.getCacheFile(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 1);
+		File cacheFile2 = cache.getCacheFile(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 2);
+		assertFalse(cacheFile1.equals(cacheFile2));
+		assertEquals("GENE_A", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 1)
+				.getValue(0, 0));
+		assertEquals("1", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 2)
+				.getValue(0, 0));
+	}
+
+	@Test
+	public void testCacheIsInvalidatedWhenSourceChanges() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(null);
+		assertEquals(3, cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getRowCount());
+		assertEquals(inputFile.getParentFile(),
+				cache.getCacheFile(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0).getParentFile());
+
+		FileWriterUtil.printLines(CollectionsUtil.createList("id9\tGENE_Z\t9"), inputFile, CharacterEncoding.UTF_8);
+		ColumnarTable table = cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0);
+		assertEquals(1, table.getRowCount());
+		assertEquals("id9", table.getValue(0, 0));
+	}
+
+	@Test
+	public void testChecksumDetectsChangeWithSameSizeAndTimestamp() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory, true);
+		assertEquals("id1", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getValue(0, 0));
+		long lastModified = inputFile.lastModified();
+		FileWriterUtil.printLines(CollectionsUtil.createList("#id\tgene\tscore", "idX\tGENE_A\t1", "id2\tGENE_B\t2",
+				"id3\tGENE_A\t3"), inputFile, CharacterEncoding.UTF_8);
+		assertTrue(inputFile.setLastModified(lastModified));
+		assertEquals("idX", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getValue(0, 0));
+	}
+
+	@Test
+	public void testCacheOfRecentlyModifiedFileIsRebuilt() throws Exception {
+		FileWriterUtil.printLines(CollectionsUtil.createList("id1\tGENE_A\t1"), inputFile, CharacterEncoding.UTF_8);
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory);
+		assertEquals("id1", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getValue(0, 0));
+
+		/* a rewrite with the same size and modification time is detected */
+		long lastModified = inputFile.lastModified();
+		FileWriterUtil.printLines(CollectionsUtil.createList("id2\tGENE_A\t1"), inputFile, CharacterEncoding.UTF_8);
+		assertTrue(inputFile.setLastModified(lastModified));
+		assertEquals("id2", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getValue(0, 0));
+		/* no temporary files are left behind */
+		assertEquals(1, cacheDirectory.list().length);
+	}
+
+	@Test
+	public void testCorruptCacheFileIsReplaced() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory);
+		File cacheFile = cache.getCacheFile(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0);
+		FileWriterUtil.printLines(CollectionsUtil.createList("not a cache file"), cacheFile, CharacterEncoding.UTF_8);
+		assertEquals("id3", cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0)
+				.getValue(2, 0));
+	}
+
+	@Test
+	public void testColumnsMappedInRegions() throws Exception {
+		ColumnarTableCache cache = new ColumnarTableCache(cacheDirectory, false, 2);
+		cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0, 1);
+		ColumnarTable table = cache.loadColumnarTable(inputFile, CharacterEncoding.UTF_8, RegExPatterns.TAB, "#", 0,
+				1);
+		assertArrayEquals(new String[] { "id1", "GENE_A" }, table.getRow(0));
+		assertArrayEquals(new String[] { "id2", "GENE_B" }, table.getRow(1));
+		assertArrayEquals(new String[] { "id3", "GENE_A" }, table.getRow(2));
+		int geneACode = table.getDictionaryCode("GENE_A");
+		assertArrayEquals(new int[] { geneACode, table.getDictionaryCode("GENE_B"), geneACode },
+				table.getColumnCodes(1));
+		assertEquals(ColumnarTable.NULL_CODE, table.getDictionaryCode("GENE_C"));
+	}
+
+}
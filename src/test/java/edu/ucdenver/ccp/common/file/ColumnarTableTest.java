@@ -0,0 +1,108 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.string.RegExPatterns;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ColumnarTableTest extends DefaultTestCase {
+
+	@Test
+	public void testDictionaryIsSharedAcrossColumns() {
+		ColumnarTable table = new ColumnarTable(2);
+		table.addRow("a", "b");
+		table.addRow("b", "a");
+		table.addRow("a", null);
+		assertEquals(3, table.getRowCount());
+		assertEquals(2, table.getColumnCount());
+		assertEquals(Arrays.asList("a", "b"), table.getDictionary());
+		assertArrayEquals(new int[] { 0, 1, 0 }, table.getColumnCodes(0));
+		assertArrayEquals(new int[] { 1, 0, ColumnarTable.NULL_CODE }, table.getColumnCodes(1));
+		assertArrayEquals(new String[] { "b", "a" }, table.getRow(1));
+		assertNull(table.getValue(2, 1));
+		assertEquals(1, table.getDictionaryCode("b"));
+		assertEquals(ColumnarTable.NULL_CODE, table.getDictionaryCode("c"));
+	}
+
+	@Test
+	public void testTableGrows() {
+		ColumnarTable table = new ColumnarTable(1);
+		for (int i = 0; i < 5000; i++) {
+			table.addRow(Integer.toString(i % 7));
+		}
+		table.trimToSize();
+		table.addRow("x");
+		assertEquals(5001, table.getRowCount());
+		assertEquals(8, table.getDictionary().size());
+		assertEquals("1", table.getValue(4999, 0));
+		assertEquals("x", table.getValue(5000, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRowWithWrongColumnCount() {
+		new ColumnarTable(2).addRow("a");
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testMissingRow() {
+		ColumnarTable table = new ColumnarTable(1);
+		table.addRow("a");
+		table.getValue(1, 0);
+	}
+
+	@Test
+	public void testLoadColumnarTableFromDelimitedFile() throws Exception {
+		File file = folder.newFile("mapping.txt");
+		FileWriterUtil.printLines(CollectionsUtil.createList("# comment", "id1\tGENE_A\tx", "id2\tGENE_B\ty",
+				"id3\tGENE_A\tz"), file, CharacterEncoding.UTF_8);
+		ColumnarTable table = FileReaderUtil.loadColumnarTableFromDelimitedFile(file, CharacterEncoding.UTF_8,
+				RegExPatterns.TAB, "#", 1, 0);
+		assertEquals(3, table.getRowCount());
+		assertEquals(2, table.getColumnCount());
+		assertArrayEquals(new String[] { "GENE_B", "id2" }, table.getRow(1));
+		assertEquals(table.getCode(0, 0), table.getCode(2, 0));
+		assertEquals(5, table.getDictionary().size());
+	}
+
+}
@@ -49,6 +49,8 @@ import edu.ucdenver.ccp.common.file.FileComparisonUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileComparisonUtil.ColumnOrder;
 import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineTrim;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.ShowWhiteSpace;
 import edu.ucdenver.ccp.common.string.RegExPatterns;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
 
@@ -194,6 +196,52 @@ public class FileComparisonUtilTest extends DefaultTestCase {
 				COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER));
 	}
 	
+	@Test
+	public void testLinesAnyOrder_duplicateLines() throws Exception {
+		List<String> expectedLines = CollectionsUtil.createList("a\tb", "a\tb", "c\td");
+		assertTrue(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("c\td", "a\tb", "a\tb"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, LineTrim.OFF,
+				ShowWhiteSpace.OFF));
+		/* each expected line can only be matched once */
+		assertFalse(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("c\td", "a\tb", "c\td"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, LineTrim.OFF,
+				ShowWhiteSpace.OFF));
+		assertFalse(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("c\td", "a\tb", "c\td"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, LineTrim.OFF,
+				ShowWhiteSpace.OFF));
+	}
+
+	@Test
+	public void testLinesAnyOrder_columnsAnyOrder() throws Exception {
+		List<String> expectedLines = CollectionsUtil.createList("a\tb\tc", "x\t\ty", " d\te ");
+		assertTrue(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("e\td", "y\t\tx", "c\ta\tb"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, LineTrim.ON,
+				ShowWhiteSpace.OFF));
+		/* the number of columns must match */
+		assertFalse(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("e\td", "y\tx", "c\ta\tb"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, LineTrim.ON,
+				ShowWhiteSpace.OFF));
+		/* column values must not run together */
+		assertFalse(FileComparisonUtil.hasExpectedLines(CollectionsUtil.createList("e\td", "y\t\tx", "ca\t\tb"),
+				expectedLines, COLUMN_DELIMITER_REGEX, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, LineTrim.ON,
+				ShowWhiteSpace.OFF));
+	}
+
+	@Test
+	public void testLinesAnyOrder_largeInput() throws Exception {
+		int lineCount = 200000;
+		List<String> expectedLines = new ArrayList<String>(lineCount);
+		List<String> lines = new ArrayList<String>(lineCount);
+		for (int i = 0; i < lineCount; i++) {
+			expectedLines.add("line\t" + i + "\t" + (i % 10));
+			lines.add((lineCount - i - 1) % 10 + "\t" + (lineCount - i - 1) + "\tline");
+		}
+		assertFalse(FileComparisonUtil.hasExpectedLines(lines, expectedLines, COLUMN_DELIMITER_REGEX,
+				LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, LineTrim.OFF, ShowWhiteSpace.OFF));
+		assertTrue(FileComparisonUtil.hasExpectedLines(lines, expectedLines, COLUMN_DELIMITER_REGEX,
+				LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, LineTrim.OFF, ShowWhiteSpace.OFF));
+	}
+
 	@Test
 	public void testMd5Comparison() {
 		FileComparisonUtil.createMd5ChecksumFile(baseFile);
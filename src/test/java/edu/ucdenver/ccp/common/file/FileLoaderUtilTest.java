@@ -37,14 +37,19 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -284,6 +289,119 @@ public class FileLoaderUtilTest extends DefaultTestCase {
 		compareListsOfStringArrays(expectedColumns, extractedColumns);
 	}
 
+	@Test
+	public void testIterateColumnsFromDelimitedFile() throws Exception {
+		List<String[]> expectedColumns = CollectionsUtil.createList(new String[] { "12", "15" }, new String[] {
+				"22", "25" }, new String[] { "32", "35" }, new String[] { "52", "55" }, new String[] { "62", "65" });
+		List<String[]> extractedColumns = new ArrayList<String[]>();
+		DelimitedFileIterator<String[]> columnIter = FileReaderUtil.iterateColumnsFromDelimitedFile(
+				fiveColumnFileWithCommentOnLineFour, CharacterEncoding.US_ASCII, RegExPatterns.TAB, COMMENT_INDICATOR, 1,
+				4);
+		try {
+			while (columnIter.hasNext()) {
+				extractedColumns.add(columnIter.next());
+			}
+		} finally {
+			columnIter.close();
+		}
+		compareListsOfStringArrays(expectedColumns, extractedColumns);
+	}
+
+	@Test
+	public void testStreamColumnFromDelimitedFile() throws Exception {
+		Stream<String> column = FileReaderUtil.streamColumnFromDelimitedFile(fiveColumnFile,
+				CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 2);
+		try {
+			assertEquals(CollectionsUtil.createList("13", "23", "33", "43", "53", "63"),
+					column.collect(Collectors.<String> toList()));
+		} finally {
+			column.close();
+		}
+	}
+
+	@Test
+	public void testStreamLinesFromFile() throws Exception {
+		Stream<String> lines = FileReaderUtil.streamLinesFromFile(fiveColumnFile, CharacterEncoding.US_ASCII, null);
+		try {
+			assertEquals(getFiveColumnLines(), lines.collect(Collectors.<String> toList()));
+		} finally {
+			lines.close();
+		}
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testIterateColumnsReportsMissingColumnWhenReached() throws Exception {
+		DelimitedFileIterator<String> columnIter = FileReaderUtil.iterateColumnFromDelimitedFile(
+				fiveColumnFileWithErrorOnLineThree, CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 4);
+		try {
+			assertEquals("15", columnIter.next());
+			assertEquals("25", columnIter.next());
+			columnIter.next();
+		} finally {
+			columnIter.close();
+		}
+	}
+
+	@Test
+	public void testLoadPrimitiveColumns() throws Exception {
+		assertArrayEquals(new int[] { 13, 23, 33, 43, 53, 63 }, FileReaderUtil.loadIntColumnFromDelimitedFile(
+				fiveColumnFile, CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 2));
+		assertArrayEquals(new long[] { 15, 25, 35, 55, 65 }, FileReaderUtil.loadLongColumnFromDelimitedFile(
+				fiveColumnFileWithCommentOnLineFour, CharacterEncoding.US_ASCII, RegExPatterns.TAB, COMMENT_INDICATOR,
+				4));
+		assertArrayEquals(new double[] { 11, 21, 31, 41, 51, 61 }, FileReaderUtil.loadDoubleColumnFromDelimitedFile(
+				oneColumnFile, CharacterEncoding.US_ASCII, null, null, 0), 0.0);
+	}
+
+	@Test
+	public void testLoadPrimitiveColumnValueRange() throws Exception {
+		File file = folder.newFile("numbers.txt");
+		FileWriterUtil.printLines(CollectionsUtil.createList("a,-9223372036854775808,2147483647,-1.5e3",
+				"b,+9223372036854775807,-2147483648,NaN"), file, CharacterEncoding.US_ASCII);
+		assertArrayEquals(new long[] { Long.MIN_VALUE, Long.MAX_VALUE }, FileReaderUtil
+				.loadLongColumnFromDelimitedFile(file, CharacterEncoding.US_ASCII, ",", null, 1));
+		assertArrayEquals(new int[] { Integer.MAX_VALUE, Integer.MIN_VALUE }, FileReaderUtil
+				.loadIntColumnFromDelimitedFile(file, CharacterEncoding.US_ASCII, ",", null, 2));
+		double[] doubles = FileReaderUtil.loadDoubleColumnFromDelimitedFile(file, CharacterEncoding.US_ASCII, ",",
+				null, 3);
+		assertEquals(-1500.0, doubles[0], 0.0);
+		assertTrue(Double.isNaN(doubles[1]));
+	}
+
+	@Test
+	public void testInvalidPrimitiveValueReportsLineAndColumn() throws Exception {
+		File file = folder.newFile("numbers.txt");
+		FileWriterUtil.printLines(CollectionsUtil.createList("1\t2", "3\t4x", "5\t2147483648"), file,
+				CharacterEncoding.US_ASCII);
+		try {
+			FileReaderUtil.loadIntColumnFromDelimitedFile(file, CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 1);
+			fail("4x is not an int");
+		} catch (NumberFormatException e) {
+			assertEquals("Invalid int value \"4x\" in column 1 on line 2: 3\t4x", e.getMessage());
+		}
+		assertArrayEquals(new long[] { 2, 2147483648L }, FileReaderUtil.loadLongColumnFromDelimitedFile(
+				new ByteArrayInputStream("1\t2\n5\t2147483648".getBytes("US-ASCII")), CharacterEncoding.US_ASCII,
+				RegExPatterns.TAB, null, 1));
+		try {
+			FileReaderUtil.loadIntColumnFromDelimitedFile(new ByteArrayInputStream("5\t2147483648"
+					.getBytes("US-ASCII")), CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 1);
+			fail("2147483648 is not an int");
+		} catch (NumberFormatException e) {
+			assertTrue(e.getMessage().startsWith("Invalid int value \"2147483648\" in column 1 on line 1"));
+		}
+	}
+
+	@Test
+	public void testMissingPrimitiveColumnReportsLine() throws Exception {
+		try {
+			FileReaderUtil.loadLongColumnFromDelimitedFile(new ByteArrayInputStream("1\t2\n3\n5\t6"
+					.getBytes("US-ASCII")), CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 1);
+			fail("Column 1 is missing on the second line");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2: Column index 1 does not exist on line."));
+		}
+	}
+
 	/**
 	 * Asserts that the input lists of String[] arrays are equal
 	 * 
@@ -0,0 +1,257 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.FileComparisonReport.Mismatch;
+import edu.ucdenver.ccp.common.file.FileComparisonReport.MismatchType;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.ColumnOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineOrder;
+import edu.ucdenver.ccp.common.file.FileComparisonUtil.LineTrim;
+import edu.ucdenver.ccp.common.string.RegExPatterns;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * @author Center for Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class StreamingFileComparatorTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private File writeFile(String fileName, List<String> lines) throws IOException {
+		File file = folder.newFile(fileName);
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		return file;
+	}
+
+	private FileComparisonReport compare(File file, File expectedFile, LineOrder lineOrder, ColumnOrder columnOrder,
+			int maxMismatches, long partitionSize) throws IOException {
+		StreamingFileComparator comparator = new StreamingFileComparator(ENCODING, RegExPatterns.TAB, columnOrder,
+				LineTrim.OFF, folder.getRoot(), partitionSize);
+		return comparator.compare(file, expectedFile, lineOrder, maxMismatches);
+	}
+
+	private static void assertMismatch(Mismatch mismatch, MismatchType type, long lineNumber, String line,
+			long expectedLineNumber, String expectedLine) {
+		assertEquals(type, mismatch.getType());
+		assertEquals(lineNumber, mismatch.getLineNumber());
+		assertEquals(line, mismatch.getLine());
+		assertEquals(expectedLineNumber, mismatch.getExpectedLineNumber());
+		assertEquals(expectedLine, mismatch.getExpectedLine());
+	}
+
+	@Test
+	public void testCompareInOrder() throws IOException {
+		File expectedFile = writeFile("expected.utf8", CollectionsUtil.createList("a\tb", "c\td", "e\tf"));
+		File file = writeFile("actual.utf8", CollectionsUtil.createList("a\tb", "d\tc", "e\tf", "g\th"));
+
+		FileComparisonReport report = FileComparisonUtil.compareFiles(file, expectedFile, ENCODING,
+				RegExPatterns.TAB, LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, LineTrim.OFF, 10);
+		assertFalse(report.isMatch());
+		assertFalse(report.isTruncated());
+		assertEquals(4, report.getLineCount());
+		assertEquals(3, report.getExpectedLineCount());
+		assertEquals(2, report.getMismatches().size());
+		assertMismatch(report.getMismatches().get(0), MismatchType.DIFFERENT_LINE, 1, "d\tc", 1, "c\td");
+		assertMismatch(report.getMismatches().get(1), MismatchType.UNEXPECTED_LINE, 3, "g\th", -1, null);
+
+		report = FileComparisonUtil.compareFiles(expectedFile, file, ENCODING, RegExPatterns.TAB,
+				LineOrder.AS_IN_FILE, ColumnOrder.ANY_ORDER, LineTrim.OFF, 10);
+		assertEquals(1, report.getMismatches().size());
+		assertMismatch(report.getMismatches().get(0), MismatchType.MISSING_LINE, -1, null, 3, "g\th");
+
+		report = FileComparisonUtil.compareFiles(expectedFile, expectedFile, ENCODING, RegExPatterns.TAB,
+				LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, LineTrim.OFF, 10);
+		assertTrue(report.isMatch());
+		assertEquals(3, report.getLineCount());
+	}
+
+	@Test
+	public void testCompareInOrder_stopsAfterMaxMismatches() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		List<String> expectedLines = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			lines.add("line " + i);
+			expectedLines.add("line " + (i + 1));
+		}
+		FileComparisonReport report = compare(writeFile("actual.utf8", lines),
+				writeFile("expected.utf8", expectedLines), LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, 3,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertFalse(report.isMatch());
+		assertTrue(report.isTruncated());
+		assertEquals(3, report.getMismatches().size());
+		assertEquals(-1, report.getLineCount());
+		assertMismatch(report.getMismatches().get(2), MismatchType.DIFFERENT_LINE, 2, "line 2", 2, "line 3");
+	}
+
+	@Test
+	public void testCompareInAnyOrder() throws IOException {
+		File expectedFile = writeFile("expected.utf8",
+				CollectionsUtil.createList("a\tb", "c\td", "a\tb", "e\tf", "\u00df\tg"));
+		File file = writeFile("actual.utf8", CollectionsUtil.createList("g\t\u00df", "a\tb", "f\te", "x\ty", "d\tc"));
+
+		FileComparisonReport report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 10,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertFalse(report.isMatch());
+		assertEquals(5, report.getLineCount());
+		assertEquals(5, report.getExpectedLineCount());
+		assertEquals(2, report.getMismatches().size());
+		assertMismatch(report.getMismatches().get(0), MismatchType.UNEXPECTED_LINE, 3, "x\ty", -1, null);
+		assertMismatch(report.getMismatches().get(1), MismatchType.MISSING_LINE, -1, null, 2, "a\tb");
+
+		report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, 10,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertEquals(8, report.getMismatches().size());
+	}
+
+	@Test
+	public void testCompareWithExactlyMaxMismatches() throws IOException {
+		File expectedFile = writeFile("expected.utf8",
+				CollectionsUtil.createList("a\tb", "c\td", "a\tb", "e\tf", "\u00df\tg"));
+		File file = writeFile("actual.utf8", CollectionsUtil.createList("g\t\u00df", "a\tb", "f\te", "x\ty", "d\tc"));
+
+		/* reaching the limit on the last mismatch still completes the comparison */
+		FileComparisonReport report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 2,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertFalse(report.isTruncated());
+		assertEquals(5, report.getLineCount());
+		assertEquals(5, report.getExpectedLineCount());
+		assertEquals(2, report.getMismatches().size());
+
+		report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 1,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertTrue(report.isTruncated());
+		assertEquals(-1, report.getLineCount());
+		assertEquals(1, report.getMismatches().size());
+
+		expectedFile = writeFile("expected2.utf8", CollectionsUtil.createList("a\tb", "c\td", "e\tf"));
+		file = writeFile("actual2.utf8", CollectionsUtil.createList("a\tb", "d\tc", "e\tf", "g\th"));
+		report = compare(file, expectedFile, LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, 2,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+		assertFalse(report.isTruncated());
+		assertEquals(4, report.getLineCount());
+		assertEquals(2, report.getMismatches().size());
+	}
+
+	@Test
+	public void testCompareInAnyOrder_partitioned() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		List<String> expectedLines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			expectedLines.add("line\t" + i + "\t" + (i % 7));
+			lines.add((4999 - i) % 7 + "\tline\t" + (4999 - i));
+		}
+		lines.set(10, "unexpected\tline");
+		File file = writeFile("actual.utf8", lines);
+		File expectedFile = writeFile("expected.utf8", expectedLines);
+
+		/* a small partition size forces the lines to be spilled across many partitions */
+		FileComparisonReport report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 10,
+				1024);
+		assertFalse(report.isTruncated());
+		assertEquals(5000, report.getLineCount());
+		assertEquals(5000, report.getExpectedLineCount());
+		assertEquals(2, report.getMismatches().size());
+		assertMismatch(report.getMismatches().get(0), MismatchType.UNEXPECTED_LINE, 10, "unexpected\tline", -1, null);
+		assertMismatch(report.getMismatches().get(1), MismatchType.MISSING_LINE, -1, null, 4989, "line\t4989\t5");
+		/* only the two input files remain; the spill files have been removed */
+		assertEquals(2, folder.getRoot().listFiles().length);
+
+		report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 2, 1024);
+		assertFalse(report.isTruncated());
+		assertEquals(5000, report.getLineCount());
+		assertEquals(2, report.getMismatches().size());
+
+		report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, 5, 1024);
+		assertTrue(report.isTruncated());
+		assertEquals(5, report.getMismatches().size());
+		assertNull(report.getMismatches().get(0).getExpectedLine());
+
+		lines.set(10, "5\tline\t4989");
+		report = compare(writeFile("actual2.utf8", lines), expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER,
+				10, 1024);
+		assertTrue(report.isMatch());
+	}
+
+	@Test
+	public void testCompareInAnyOrder_repartitioned() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		List<String> expectedLines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			expectedLines.add("line\t" + i);
+			lines.add((4999 - i) + "\tline");
+		}
+		lines.set(10, "unexpected\tline");
+		File file = writeFile("actual.utf8", lines);
+		File expectedFile = writeFile("expected.utf8", expectedLines);
+
+		/*
+		 * more partitions are needed than can be created in one pass, so the
+		 * partitions are partitioned again
+		 */
+		long partitionSize = 64;
+		assertTrue(expectedFile.length() / partitionSize > StreamingFileComparator.MAX_PARTITION_COUNT);
+		FileComparisonReport report = compare(file, expectedFile, LineOrder.ANY_ORDER, ColumnOrder.ANY_ORDER, 10,
+				partitionSize);
+		assertFalse(report.isTruncated());
+		assertEquals(5000, report.getLineCount());
+		assertEquals(5000, report.getExpectedLineCount());
+		assertEquals(2, report.getMismatches().size());
+		assertMismatch(report.getMismatches().get(0), MismatchType.UNEXPECTED_LINE, 10, "unexpected\tline", -1, null);
+		assertMismatch(report.getMismatches().get(1), MismatchType.MISSING_LINE, -1, null, 4989, "line\t4989");
+		assertEquals(2, folder.getRoot().listFiles().length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxMismatches() throws IOException {
+		File file = writeFile("actual.utf8", CollectionsUtil.createList("a"));
+		compare(file, file, LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE, 0,
+				StreamingFileComparator.DEFAULT_PARTITION_SIZE);
+	}
+
+}
@@ -0,0 +1,167 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.MalformedInputException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ByteColumnScannerTest extends DefaultTestCase {
+
+	private static InputStream toStream(String text) throws IOException {
+		return new ByteArrayInputStream(text.getBytes("UTF-8"));
+	}
+
+	private static List<String[]> readRows(ByteColumnScanner scanner) throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		try {
+			for (String[] row = scanner.readRow(); row != null; row = scanner.readRow()) {
+				rows.add(row);
+			}
+		} finally {
+			scanner.close();
+		}
+		return rows;
+	}
+
+	@Test
+	public void testScanRequestedColumns() throws IOException {
+		ByteColumnScanner scanner = new ByteColumnScanner(toStream("a\t\u00df\tc\td\r\n# comment\r\ne\t\ud835\udc9c\tg\th\rx\ty\tz"),
+				CharacterEncoding.UTF_8, '\t', "#", 2, 1);
+		List<String[]> rows = readRows(scanner);
+		assertEquals(3, rows.size());
+		assertArrayEquals(new String[] { "c", "\u00df" }, rows.get(0));
+		assertArrayEquals(new String[] { "g", "\ud835\udc9c" }, rows.get(1));
+		assertArrayEquals(new String[] { "z", "y" }, rows.get(2));
+		assertEquals(3, scanner.getLineNumber());
+	}
+
+	@Test
+	public void testMatchesDelimitedLineParsing() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			lines.add("id" + i + "\t\t" + (i % 13) + "\tval\u00e9" + i + "\t" + (i % 2 == 0 ? "" : "x"));
+		}
+		File file = folder.newFile("wide.utf8");
+		FileWriterUtil.printLines(lines, file, CharacterEncoding.UTF_8);
+		List<String[]> expected = FileReaderUtil.loadColumnsFromDelimitedFile(file, CharacterEncoding.UTF_8, "\t",
+				null, 0, 1, 3, 4);
+		List<String[]> scanned = readRows(FileReaderUtil.scanColumnsFromDelimitedFile(file, CharacterEncoding.UTF_8,
+				'\t', null, 0, 1, 3, 4));
+		assertEquals(expected.size(), scanned.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), scanned.get(i));
+		}
+	}
+
+	@Test
+	public void testLongLinesGrowBuffer() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			sb.append("v").append(i).append(',');
+		}
+		sb.append("last\n#next,line");
+		List<String[]> rows = readRows(new ByteColumnScanner(toStream(sb.toString()), CharacterEncoding.US_ASCII, ',',
+				"#", 100000, 0));
+		assertEquals(1, rows.size());
+		assertArrayEquals(new String[] { "last", "v0" }, rows.get(0));
+	}
+
+	@Test
+	public void testMissingColumn() throws IOException {
+		ByteColumnScanner scanner = new ByteColumnScanner(toStream("a,b,c\nd,e\n"), CharacterEncoding.UTF_8, ',', null,
+				2);
+		assertArrayEquals(new String[] { "c" }, scanner.readRow());
+		try {
+			scanner.readRow();
+			fail("Column 2 does not exist on the second line");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			assertEquals("Column index 2 does not exist on line. There are only 2 columns on line: d,e", e.getMessage());
+		}
+		scanner.close();
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void testMalformedRequestedColumn() throws IOException {
+		ByteColumnScanner scanner = new ByteColumnScanner(new ByteArrayInputStream(new byte[] { 'a', ',', (byte) 0xc3,
+				'\n' }), CharacterEncoding.UTF_8, ',', null, 1);
+		scanner.readRow();
+	}
+
+	@Test
+	public void testMalformedUnrequestedColumnIsNotDecoded() throws IOException {
+		ByteColumnScanner scanner = new ByteColumnScanner(new ByteArrayInputStream(new byte[] { 'a', ',', (byte) 0xc3,
+				'\n' }), CharacterEncoding.UTF_8, ',', null, 0);
+		assertArrayEquals(new String[] { "a" }, scanner.readRow());
+		assertNull(scanner.readRow());
+		scanner.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonAsciiDelimiter() throws IOException {
+		new ByteColumnScanner(toStream(""), CharacterEncoding.UTF_8, '\u00a7', null, 0);
+	}
+
+	@Test
+	public void testStream() throws IOException {
+		assertEquals(CollectionsUtil.createList("b", "d"), FileReaderUtil
+				.scanColumnsFromDelimitedFile(toStream("a|b\nc|d\n"), CharacterEncoding.UTF_8, '|', null, 1).stream()
+				.map(new Function<String[], String>() {
+					@Override
+					public String apply(String[] row) {
+						return row[0];
+					}
+				}).collect(Collectors.<String> toList()));
+	}
+
+}
@@ -0,0 +1,175 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.reader.ExcelWorkbookReader.SheetProcessor;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ExcelWorkbookReaderTest extends DefaultTestCase {
+
+	private static final List<String> SHEET_NAMES = Arrays.asList("first", "second", "third");
+
+	private File workbookFile;
+
+	/**
+	 * Creates a workbook with three sheets; each sheet has a header row followed by one data row
+	 * per sheet position, i.e. the first sheet has one data row, the second two and the third
+	 * three
+	 */
+	@Before
+	public void setUp() throws IOException {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		for (int sheetIndex = 0; sheetIndex < SHEET_NAMES.size(); sheetIndex++) {
+			Sheet sheet = workbook.createSheet(SHEET_NAMES.get(sheetIndex));
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("sheet");
+			header.createCell(1).setCellValue("row");
+			for (int rowIndex = 1; rowIndex <= sheetIndex + 1; rowIndex++) {
+				Row row = sheet.createRow(rowIndex);
+				row.createCell(0).setCellValue(SHEET_NAMES.get(sheetIndex));
+				row.createCell(1).setCellValue("r" + rowIndex);
+			}
+		}
+		workbookFile = new File(folder.getRoot(), "workbook.xlsx");
+		OutputStream out = new FileOutputStream(workbookFile);
+		try {
+			workbook.write(out);
+		} finally {
+			out.close();
+			workbook.close();
+		}
+	}
+
+	@Test
+	public void testGetSheetNames() throws IOException {
+		ExcelWorkbookReader workbookReader = new ExcelWorkbookReader(workbookFile);
+		assertEquals(SHEET_NAMES, workbookReader.getSheetNames());
+		workbookReader.close();
+	}
+
+	@Test
+	public void testOpenSheet() throws IOException {
+		ExcelWorkbookReader workbookReader = new ExcelWorkbookReader(workbookFile);
+		LineReader<SheetLine> reader = workbookReader.openSheet("second", null);
+		assertSheetLine(reader.readLine(), "second", 1, "r1", 2);
+		assertSheetLine(reader.readLine(), "second", 1, "r2", 3);
+		assertNull(reader.readLine());
+		reader.close();
+		workbookReader.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOpenUnknownSheet() throws IOException {
+		ExcelWorkbookReader workbookReader = new ExcelWorkbookReader(workbookFile);
+		try {
+			workbookReader.openSheet("fourth", null);
+		} finally {
+			workbookReader.close();
+		}
+	}
+
+	@Test
+	public void testOpenSheets() throws IOException {
+		assertMergedLines(null);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertMergedLines(executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void assertMergedLines(ExecutorService executor) throws IOException {
+		ExcelWorkbookReader workbookReader = new ExcelWorkbookReader(workbookFile);
+		LineReader<SheetLine> reader = workbookReader.openSheets(Arrays.asList("third", "first"), null, executor);
+		assertSheetLine(reader.readLine(), "third", 2, "r1", 2);
+		assertSheetLine(reader.readLine(), "third", 2, "r2", 3);
+		assertSheetLine(reader.readLine(), "third", 2, "r3", 4);
+		assertSheetLine(reader.readLine(), "first", 0, "r1", 2);
+		assertNull(reader.readLine());
+		reader.close();
+		workbookReader.close();
+	}
+
+	@Test
+	public void testProcessSheets() throws IOException {
+		ExcelWorkbookReader workbookReader = new ExcelWorkbookReader(workbookFile);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Integer> lineCounts = workbookReader.processSheets(workbookReader.getSheetNames(), null, executor,
+					new SheetProcessor<Integer>() {
+						@Override
+						public Integer process(String sheetName, LineReader<SheetLine> reader) throws IOException {
+							int count = 0;
+							for (SheetLine line = reader.readLine(); line != null; line = reader.readLine()) {
+								assertEquals(sheetName, line.getSheetName());
+								count++;
+							}
+							return count;
+						}
+					});
+			assertEquals(Arrays.asList(1, 2, 3), lineCounts);
+		} finally {
+			executor.shutdown();
+			workbookReader.close();
+		}
+	}
+
+	private static void assertSheetLine(SheetLine line, String sheetName, int sheetIndex, String rowValue,
+			long lineNumber) {
+		assertEquals(sheetName, line.getSheetName());
+		assertEquals(sheetIndex, line.getSheetIndex());
+		assertEquals(sheetName + "\t" + rowValue, line.getText());
+		assertEquals(lineNumber, line.getLineNumber());
+	}
+
+}
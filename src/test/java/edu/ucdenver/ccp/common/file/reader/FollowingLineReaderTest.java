@@ -0,0 +1,217 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class FollowingLineReaderTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private static void write(File file, String content, boolean append) throws IOException {
+		OutputStream out = new FileOutputStream(file, append);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@Test
+	public void testPartialLineIsHeldBack() throws IOException {
+		File file = new File(folder.getRoot(), "log.txt");
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, "#");
+		/* the file does not exist yet */
+		assertNull(reader.pollLine());
+		write(file, "line\u00df0\n#skipped\nline", false);
+		assertEquals("line\u00df0", reader.pollLine().getText());
+		assertNull(reader.pollLine());
+		write(file, "1\nline2\n", true);
+		Line line = reader.pollLine();
+		assertEquals("line1", line.getText());
+		assertEquals(2, line.getLineNumber());
+		assertEquals(16, line.getCharacterOffset());
+		assertEquals(17, line.getByteOffset());
+		assertEquals("line2", reader.pollLine().getText());
+		assertNull(reader.pollLine());
+		reader.close();
+	}
+
+	@Test
+	public void testLineFeedAppendedAfterCarriageReturn() throws IOException {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\r", false);
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null);
+		Line line = reader.pollLine();
+		assertEquals("line0", line.getText());
+		assertEquals(LineTerminator.CR, line.getLineTerminator());
+		write(file, "\nline1\n", true);
+		line = reader.pollLine();
+		assertEquals("line1", line.getText());
+		assertEquals(1, line.getLineNumber());
+		assertEquals(7, line.getByteOffset());
+		assertNull(reader.pollLine());
+		reader.close();
+	}
+
+	@Test
+	public void testUnterminatedLine() throws IOException {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\nline1", false);
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null);
+		assertEquals("line0", reader.pollLine(true).getText());
+		assertEquals("line1", reader.pollLine(true).getText());
+		assertNull(reader.pollLine(true));
+		reader.close();
+	}
+
+	@Test
+	public void testTruncation() throws IOException {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\nline1\n", false);
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null);
+		assertEquals("line0", reader.pollLine().getText());
+		assertEquals("line1", reader.pollLine().getText());
+		write(file, "new0\n", false);
+		Line line = reader.pollLine();
+		assertEquals("new0", line.getText());
+		assertEquals(0, line.getLineNumber());
+		assertEquals(0, line.getByteOffset());
+		reader.close();
+	}
+
+	@Test
+	public void testRotation() throws IOException {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\n", false);
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null);
+		assertEquals("line0", reader.pollLine().getText());
+		write(file, "last", true);
+		assertNull(reader.pollLine());
+		assertTrue(file.renameTo(new File(folder.getRoot(), "log.txt.1")));
+		write(file, "new0\n", false);
+		/* the remainder of the rotated file is read before the new file */
+		assertEquals("last", reader.pollLine().getText());
+		Line line = reader.pollLine();
+		assertEquals("new0", line.getText());
+		assertEquals(0, line.getLineNumber());
+		assertNull(reader.pollLine());
+		reader.close();
+	}
+
+	@Test
+	public void testResumeFromCheckpoint() throws IOException {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\nline1\nline2\n", false);
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null);
+		assertEquals("line0", reader.pollLine().getText());
+		LineCheckpoint checkpoint = reader.checkpoint();
+		reader.close();
+		reader = new FollowingLineReader(file, ENCODING, null, checkpoint, 10);
+		Line line = reader.pollLine();
+		assertEquals("line1", line.getText());
+		assertEquals(1, line.getLineNumber());
+		assertEquals("line2", reader.pollLine().getText());
+		assertNull(reader.pollLine());
+		reader.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testReadLineWaitsForNewLines() throws Exception {
+		final File file = folder.newFile("log.txt");
+		FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null, new LineCheckpoint(
+				LinePosition.START, false), 10);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+					write(file, "line0\n", true);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		assertEquals("line0", reader.readLine().getText());
+		writer.join();
+		reader.close();
+		assertNull(reader.readLine());
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseFromAnotherThreadWhileWaiting() throws Exception {
+		File file = folder.newFile("log.txt");
+		write(file, "line0\npartial", false);
+		for (int i = 0; i < 20; i++) {
+			final FollowingLineReader reader = new FollowingLineReader(file, ENCODING, null, new LineCheckpoint(
+					LinePosition.START, false), 1);
+			assertEquals("line0", reader.readLine().getText());
+			final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+			Thread follower = new Thread() {
+				@Override
+				public void run() {
+					try {
+						/* blocks, polling the file, until the reader is closed */
+						results.add(String.valueOf(reader.readLine()));
+					} catch (Throwable t) {
+						results.add(t);
+					}
+				}
+			};
+			follower.start();
+			Thread.sleep(i % 5);
+			reader.close();
+			follower.join();
+			assertEquals(Collections.singletonList("null"), results);
+		}
+	}
+
+}
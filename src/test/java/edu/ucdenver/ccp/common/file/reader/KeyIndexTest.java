@@ -0,0 +1,211 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class KeyIndexTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	/**
+	 * @return a sample mapping file with a comment line, multi-byte characters and a duplicated key
+	 * @throws IOException
+	 */
+	private File populateSampleFile() throws IOException {
+		List<String> lines = CollectionsUtil.createList("# id\tgene", "id1\tGENE_\u00df", "\ud835\udc9c\tGENE_B",
+				"id3\tGENE_C", "id1\tGENE_D");
+		File file = folder.newFile("mapping.utf8");
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		return file;
+	}
+
+	@Test
+	public void testLookup() throws IOException {
+		File file = populateSampleFile();
+		KeyIndex index = KeyIndex.open(file, ENCODING, "\t", "#", 0);
+		try {
+			assertTrue(KeyIndex.getIndexFile(file, 0).exists());
+			assertEquals(4, index.getEntryCount());
+
+			List<Line> lines = index.lookup("id1");
+			assertEquals(2, lines.size());
+			assertEquals("id1\tGENE_\u00df", lines.get(0).getText());
+			assertEquals(1, lines.get(0).getLineNumber());
+			assertEquals(10, lines.get(0).getByteOffset());
+			assertEquals(-1, lines.get(0).getCharacterOffset());
+			assertEquals("id1\tGENE_D", lines.get(1).getText());
+			assertEquals(4, lines.get(1).getLineNumber());
+
+			lines = index.lookup("\ud835\udc9c");
+			assertEquals(1, lines.size());
+			assertEquals("\ud835\udc9c\tGENE_B", lines.get(0).getText());
+			assertEquals(22, lines.get(0).getByteOffset());
+
+			assertTrue(index.lookup("id2").isEmpty());
+			assertTrue(index.lookup("# id").isEmpty());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testLookupOnOtherColumn() throws IOException {
+		File file = populateSampleFile();
+		KeyIndex index = KeyIndex.open(file, ENCODING, "\t", "#", 1);
+		try {
+			assertEquals("id3\tGENE_C", index.lookup("GENE_C").get(0).getText());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenFileChanges() throws IOException {
+		File file = populateSampleFile();
+		KeyIndex.open(file, ENCODING, "\t", "#", 0).close();
+		FileWriterUtil.printLines(CollectionsUtil.createList("id7\tGENE_G"), file, ENCODING);
+		KeyIndex index = KeyIndex.open(file, ENCODING, "\t", "#", 0);
+		try {
+			assertEquals(1, index.getEntryCount());
+			assertEquals(0, index.lookup("id7").get(0).getLineNumber());
+			assertTrue(index.lookup("id1").isEmpty());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testLookupPreservesLineTerminators() throws IOException {
+		File file = folder.newFile("terminators.utf8");
+		FileUtils.writeStringToFile(file, "id1,a\r\nid2,b\rid3,c\nid4,d", ENCODING.getCharacterSetName());
+		KeyIndex index = KeyIndex.open(file, ENCODING, ",", null, 0);
+		try {
+			assertEquals(4, index.getEntryCount());
+			Line line = index.lookup("id1").get(0);
+			assertEquals("id1,a", line.getText());
+			assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+			line = index.lookup("id2").get(0);
+			assertEquals("id2,b", line.getText());
+			assertEquals(LineTerminator.CR, line.getLineTerminator());
+			assertEquals(7, line.getByteOffset());
+			assertEquals(LineTerminator.LF, index.lookup("id3").get(0).getLineTerminator());
+			line = index.lookup("id4").get(0);
+			assertEquals("id4,d", line.getText());
+			assertEquals(3, line.getLineNumber());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testLookupOfLongLine() throws IOException {
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			value.append(i % 10);
+		}
+		File file = folder.newFile("long.utf8");
+		FileWriterUtil.printLines(CollectionsUtil.createList("id1\t" + value, "id2\tshort"), file, ENCODING);
+		KeyIndex index = KeyIndex.open(file, ENCODING, "\t", null, 0);
+		try {
+			assertEquals("id1\t" + value, index.lookup("id1").get(0).getText());
+			assertEquals("id2\tshort", index.lookup("id2").get(0).getText());
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullDelimiterIsRejected() throws IOException {
+		File file = populateSampleFile();
+		KeyIndex.open(file, ENCODING, "\t", "#", 0).close();
+		KeyIndex.open(file, ENCODING, null, "#", 0);
+	}
+
+	@Test
+	public void testIndexOfRecentlyModifiedFileIsRebuilt() throws IOException {
+		File file = populateSampleFile();
+		KeyIndex.open(file, ENCODING, "\t", "#", 0).close();
+		/* a rewrite with the same size and modification time moves id3 to a different line */
+		long lastModified = file.lastModified();
+		FileWriterUtil.printLines(CollectionsUtil.createList("# id\tgene", "id3\tGENE_\u00df", "\ud835\udc9c\tGENE_B",
+				"id1\tGENE_C", "id1\tGENE_D"), file, ENCODING);
+		assertTrue(file.setLastModified(lastModified));
+		KeyIndex index = KeyIndex.open(file, ENCODING, "\t", "#", 0);
+		try {
+			assertEquals(1, index.lookup("id3").get(0).getLineNumber());
+		} finally {
+			index.close();
+		}
+		/* no temporary files are left behind */
+		assertEquals(2, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testManyKeys() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			lines.add("key" + i + "," + i);
+		}
+		File file = folder.newFile("many.utf8");
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		KeyIndex index = KeyIndex.open(file, ENCODING, ",", null, 0);
+		try {
+			for (int i = 0; i < 5000; i += 7) {
+				List<Line> matches = index.lookup("key" + i);
+				assertEquals(1, matches.size());
+				assertEquals(i, matches.get(0).getLineNumber());
+			}
+			assertTrue(index.lookup("key5000").isEmpty());
+		} finally {
+			index.close();
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static edu.ucdenver.ccp.common.file.reader.LineTestUtil.assertLinesEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class LineCheckpointTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private File writeFile(String content, boolean append, File file) throws IOException {
+		OutputStream out = new FileOutputStream(file, append);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		LineCheckpoint checkpoint = new LineCheckpoint(new LinePosition(12, 345, 340, 360), true);
+		File checkpointFile = new File(folder.getRoot(), "checkpoint.properties");
+		checkpoint.save(checkpointFile);
+		/* saving again replaces the existing checkpoint */
+		checkpoint.save(checkpointFile);
+		assertEquals(checkpoint, LineCheckpoint.load(checkpointFile));
+		assertFalse(new File(checkpointFile.getAbsolutePath() + ".tmp").exists());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoadInvalidCheckpoint() throws IOException {
+		File checkpointFile = writeFile("lineNumber=1\n", false, folder.newFile("checkpoint.properties"));
+		LineCheckpoint.load(checkpointFile);
+	}
+
+	@Test
+	public void testResumeFromEveryLine() throws IOException {
+		File file = writeFile("#skip\r\nline\u00df1\rline2\n\n#skip\nline\ud83d\ude003\r\nline4", false,
+				folder.newFile("sample.utf8"));
+		List<Line> expectedLines = readAll(new StreamLineReader(file, ENCODING, "#"));
+		StreamLineReader reader = new StreamLineReader(file, ENCODING, "#");
+		for (int i = 0; i <= expectedLines.size(); i++) {
+			File checkpointFile = new File(folder.getRoot(), "checkpoint" + i);
+			reader.checkpoint().save(checkpointFile);
+			List<Line> resumedLines = readAll(StreamLineReader.resume(file, ENCODING, "#",
+					LineCheckpoint.load(checkpointFile)));
+			assertLinesEqual(expectedLines.subList(i, expectedLines.size()), resumedLines);
+			reader.readLine();
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testResumeAfterPendingCarriageReturn() throws IOException {
+		File file = writeFile("line\u00df0\r", false, folder.newFile("sample.utf8"));
+		StreamLineReader reader = new StreamLineReader(file, ENCODING, null);
+		assertEquals("line\u00df0", reader.readLine().getText());
+		assertNull(reader.readLine());
+		LineCheckpoint checkpoint = reader.checkpoint();
+		reader.close();
+		assertTrue(checkpoint.hasPendingCarriageReturn());
+
+		/* the line feed appended to the file completes the CRLF terminator of the first line */
+		writeFile("\nline1\n", true, file);
+		reader = StreamLineReader.resume(file, ENCODING, null, checkpoint);
+		Line line = reader.readLine();
+		assertEquals("line1", line.getText());
+		assertEquals(1, line.getLineNumber());
+		assertEquals(8, line.getCharacterOffset());
+		assertEquals(8, line.getCodePointOffset());
+		assertEquals(9, line.getByteOffset());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCheckpointRequiresByteOffsets() throws IOException {
+		File file = writeFile("line\n", false, folder.newFile("sample.utf8"));
+		StreamLineReader reader = new StreamLineReader(file, ENCODING, null, OffsetTracking.CODE_POINT);
+		try {
+			reader.checkpoint();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static List<Line> readAll(StreamLineReader reader) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+}
@@ -0,0 +1,182 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class LineIndexTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	/**
+	 * @return a sample file containing lines with multi-byte and astral characters and a mix of
+	 *         line terminators
+	 * @throws IOException
+	 */
+	private File populateSampleFile() throws IOException {
+		List<String> lines = CollectionsUtil.createList("line0", "line\u00df1\r", "\ud835\udc9c line2", "",
+				"# line4", "line5");
+		File file = folder.newFile("sample.utf8");
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		return file;
+	}
+
+	/**
+	 * @param file
+	 * @return all lines in the input file read sequentially from the start of the file
+	 * @throws IOException
+	 */
+	private List<Line> readAllLines(File file) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		StreamLineReader reader = new StreamLineReader(file, ENCODING);
+		for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	@Test
+	public void testIndexMatchesSequentialRead() throws IOException {
+		File file = populateSampleFile();
+		List<Line> lines = readAllLines(file);
+		LineIndex index = LineIndex.open(file, ENCODING);
+		assertTrue(LineIndex.getIndexFile(file).exists());
+		assertEquals(lines.size(), index.getLineCount());
+		for (Line line : lines) {
+			LinePosition position = index.getPosition(line.getLineNumber());
+			assertEquals(line.getLineNumber(), position.getLineNumber());
+			assertEquals(line.getCharacterOffset(), position.getCharacterOffset());
+			assertEquals(line.getCodePointOffset(), position.getCodePointOffset());
+			assertEquals(line.getByteOffset(), position.getByteOffset());
+		}
+		index.close();
+	}
+
+	@Test
+	public void testOpenReaderAtLine() throws IOException {
+		File file = populateSampleFile();
+		List<Line> lines = readAllLines(file);
+		LineIndex index = LineIndex.open(file, ENCODING);
+		StreamLineReader reader = index.openReader(2, "#");
+		Line line = reader.readLine();
+		assertEquals(lines.get(2).getText(), line.getText());
+		assertEquals(2, line.getLineNumber());
+		assertEquals(lines.get(2).getCharacterOffset(), line.getCharacterOffset());
+		assertEquals(lines.get(2).getCodePointOffset(), line.getCodePointOffset());
+		assertEquals(lines.get(2).getByteOffset(), line.getByteOffset());
+		line = reader.readLine();
+		assertEquals("", line.getText());
+		line = reader.readLine();
+		assertEquals("line4 is skipped, so line 5 is next", lines.get(5).getText(), line.getText());
+		assertEquals(lines.get(5).getCharacterOffset(), line.getCharacterOffset());
+		assertEquals(lines.get(5).getByteOffset(), line.getByteOffset());
+		assertNull(reader.readLine());
+		reader.close();
+		index.close();
+	}
+
+	@Test
+	public void testOpenReaderAtByteOffset() throws IOException {
+		File file = populateSampleFile();
+		List<Line> lines = readAllLines(file);
+		LineIndex index = LineIndex.open(file, ENCODING);
+		long byteOffsetInsideLine1 = lines.get(1).getByteOffset() + 5;
+		assertEquals(1, index.getPositionOfByteOffset(byteOffsetInsideLine1).getLineNumber());
+		StreamLineReader reader = index.openReaderAtByteOffset(byteOffsetInsideLine1, null);
+		assertEquals(lines.get(1).getText(), reader.readLine().getText());
+		reader.close();
+		index.close();
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenFileChanges() throws IOException {
+		File file = populateSampleFile();
+		LineIndex index = LineIndex.open(file, ENCODING);
+		assertEquals(6, index.getLineCount());
+		index.close();
+		FileWriterUtil.printLines(CollectionsUtil.createList("a", "b"), file, ENCODING);
+		file.setLastModified(file.lastModified() - 10000);
+		index = LineIndex.open(file, ENCODING);
+		assertEquals(2, index.getLineCount());
+		assertEquals(2, index.getPosition(1).getByteOffset());
+		index.close();
+	}
+
+	@Test
+	public void testIndexOfRecentlyModifiedFileIsRebuilt() throws IOException {
+		File file = populateSampleFile();
+		LineIndex.open(file, ENCODING).close();
+		/* a rewrite with the same size and modification time moves the line boundaries */
+		long lastModified = file.lastModified();
+		FileWriterUtil.printLines(CollectionsUtil.createList("line0line\u00df1", "\ud835\udc9c line2", "", "# l",
+				"line4", "line5"), file, ENCODING);
+		assertTrue(file.setLastModified(lastModified));
+		LineIndex index = LineIndex.open(file, ENCODING);
+		try {
+			assertEquals(6, index.getLineCount());
+			assertEquals(13, index.getPosition(1).getByteOffset());
+		} finally {
+			index.close();
+		}
+		/* no temporary files are left behind */
+		assertEquals(2, folder.getRoot().list().length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLineNumber() throws IOException {
+		File file = populateSampleFile();
+		LineIndex index = LineIndex.open(file, ENCODING);
+		try {
+			index.getPosition(6);
+		} finally {
+			index.close();
+		}
+	}
+
+}
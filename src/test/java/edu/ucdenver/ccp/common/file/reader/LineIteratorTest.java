@@ -42,6 +42,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
@@ -124,6 +126,25 @@ public class LineIteratorTest extends DefaultTestCase {
 		assertFalse(fli.hasNext());
 	}
 
+	/**
+	 * Tests that the stream returned by {@link LineIterator#stream()} returns all lines in order
+	 * 
+	 * @throws IOException
+	 *             if an error occurs while reading the sample file
+	 */
+	@Test
+	public void testStream() throws IOException {
+		File simpleFile = createSimpleSampleFile();
+		StreamLineIterator fli = new StreamLineIterator(simpleFile, CharacterEncoding.UTF_8);
+		Stream<Line> stream = fli.stream();
+		try {
+			assertEquals(CollectionsUtil.createList("line1", "line2", "line3", "line4", "line5"),
+					stream.map(Line::getText).collect(Collectors.<String> toList()));
+		} finally {
+			stream.close();
+		}
+	}
+
 	/**
 	 * Creates a simple sample file to use for testing the LineIterator
 	 * 
@@ -0,0 +1,157 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static edu.ucdenver.ccp.common.file.reader.LineTestUtil.assertLinesEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class LineSpliteratorTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private File populateSampleFile() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			lines.add((i % 10 == 0) ? "#comment " + i : "line\u00df " + i);
+		}
+		File file = folder.newFile("sample.utf8");
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		return file;
+	}
+
+	private List<Line> readSequentially(File file) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		StreamLineReader reader = new StreamLineReader(file, ENCODING, "#");
+		for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	@Test
+	public void testParallelStream() throws IOException {
+		File file = populateSampleFile();
+		List<Line> expectedLines = readSequentially(file);
+		Stream<Line> stream = StreamLineIterator.lines(file, ENCODING, "#");
+		try {
+			assertLinesEqual(expectedLines, stream.parallel().collect(Collectors.<Line> toList()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testParallelStream_compressedFile() throws IOException {
+		File file = populateSampleFile();
+		File gzFile = new File(folder.getRoot(), "sample.utf8.gz");
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(gzFile));
+		try {
+			out.write(FileUtils.readFileToByteArray(file));
+		} finally {
+			out.close();
+		}
+		List<Line> expectedLines = readSequentially(gzFile);
+		assertEquals(4500, expectedLines.size());
+		Stream<Line> stream = StreamLineIterator.lines(gzFile, ENCODING, "#");
+		try {
+			assertLinesEqual(expectedLines, stream.parallel().collect(Collectors.<Line> toList()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testSequentialStream() throws IOException {
+		File file = populateSampleFile();
+		List<Line> expectedLines = readSequentially(file);
+		Stream<Line> stream = StreamLineIterator.lines(file, ENCODING, "#");
+		try {
+			assertLinesEqual(expectedLines, stream.collect(Collectors.<Line> toList()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testShortCircuitingParallelStream() throws IOException {
+		File file = populateSampleFile();
+		Stream<Line> stream = StreamLineIterator.lines(file, ENCODING, "#");
+		try {
+			assertEquals("line\u00df 1", stream.parallel().findFirst().get().getText());
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testSplitting() throws IOException {
+		File file = populateSampleFile();
+		LineSpliterator spliterator = new LineSpliterator(file, ENCODING, null);
+		assertEquals(file.length(), spliterator.estimateSize());
+		Spliterator<Line> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertEquals(file.length(), prefix.estimateSize() + spliterator.estimateSize());
+		final List<Line> lines = new ArrayList<Line>();
+		prefix.forEachRemaining(lines::add);
+		spliterator.forEachRemaining(lines::add);
+		assertEquals(5000, lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals(i, lines.get(i).getLineNumber());
+		}
+		assertNull("cannot split once traversal has started", spliterator.trySplit());
+		spliterator.close();
+	}
+
+}
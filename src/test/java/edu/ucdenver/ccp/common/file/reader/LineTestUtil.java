@@ -0,0 +1,102 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Assertions shared by the line reader tests
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineTestUtil {
+
+	private LineTestUtil() {
+		/* not intended for instantiation */
+	}
+
+	/**
+	 * Asserts that the input lines have the same text, line terminators, line numbers and offsets
+	 * 
+	 * @param expected
+	 * @param line
+	 */
+	public static void assertLineEquals(Line expected, Line line) {
+		assertEquals(expected.getText(), line.getText());
+		assertEquals(expected.getLineTerminator(), line.getLineTerminator());
+		assertEquals(expected.getLineNumber(), line.getLineNumber());
+		assertEquals(expected.getCharacterOffset(), line.getCharacterOffset());
+		assertEquals(expected.getCodePointOffset(), line.getCodePointOffset());
+		assertEquals(expected.getByteOffset(), line.getByteOffset());
+	}
+
+	/**
+	 * Asserts that the input lists contain equal lines (see {@link #assertLineEquals(Line, Line)})
+	 * in the same order
+	 * 
+	 * @param expectedLines
+	 * @param lines
+	 */
+	public static void assertLinesEqual(List<Line> expectedLines, List<Line> lines) {
+		assertEquals(expectedLines.size(), lines.size());
+		for (int i = 0; i < expectedLines.size(); i++) {
+			assertLineEquals(expectedLines.get(i), lines.get(i));
+		}
+	}
+
+	/**
+	 * Asserts that the input readers return equal lines (see {@link #assertLineEquals(Line, Line)})
+	 * in the same order, and then closes both readers
+	 * 
+	 * @param expectedReader
+	 * @param reader
+	 * @throws IOException
+	 */
+	public static void assertLinesEqual(LineReader<Line> expectedReader, LineReader<Line> reader) throws IOException {
+		Line expected;
+		while ((expected = expectedReader.readLine()) != null) {
+			assertLineEquals(expected, reader.readLine());
+		}
+		assertNull(reader.readLine());
+		assertNull(reader.readLine());
+		expectedReader.close();
+		reader.close();
+	}
+
+}
@@ -0,0 +1,132 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static edu.ucdenver.ccp.common.file.reader.LineTestUtil.assertLinesEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.SampleUtf8File;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class MappedFileLineReaderTest extends DefaultTestCase {
+
+	/**
+	 * @param reader
+	 * @return all remaining lines from the input reader; the reader is closed
+	 * @throws IOException
+	 */
+	private List<Line> readAllLines(LineReader<Line> reader) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	/**
+	 * Reads the sample file (which contains many multi-byte characters) using a range of small
+	 * window sizes so that windows are remapped part way through multi-byte characters
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testMatchesStreamLineReaderWithSmallWindows() throws IOException {
+		File sampleFile = copyClasspathResourceToTemporaryFile(SampleUtf8File.class, SampleUtf8File.FILE_NAME);
+		List<Line> expectedLines = readAllLines(new StreamLineReader(sampleFile, SampleUtf8File.ENCODING, "let"));
+		for (int windowSize = MappedFileReader.MINIMUM_WINDOW_SIZE; windowSize < 40; windowSize++) {
+			assertLinesEqual(expectedLines, readAllLines(new MappedFileLineReader(sampleFile, SampleUtf8File.ENCODING,
+					"let", LinePosition.START, windowSize)));
+		}
+		assertLinesEqual(expectedLines, readAllLines(new MappedFileLineReader(sampleFile, SampleUtf8File.ENCODING,
+				"let")));
+	}
+
+	@Test
+	public void testStartAtIndexedLine() throws IOException {
+		File sampleFile = copyClasspathResourceToTemporaryFile(SampleUtf8File.class, SampleUtf8File.FILE_NAME);
+		List<Line> expectedLines = readAllLines(new StreamLineReader(sampleFile, SampleUtf8File.ENCODING));
+		LineIndex index = LineIndex.open(sampleFile, SampleUtf8File.ENCODING);
+		List<Line> lines = readAllLines(new MappedFileLineReader(sampleFile, SampleUtf8File.ENCODING, null,
+				index.getPosition(4), 32));
+		index.close();
+		assertLinesEqual(expectedLines.subList(4, expectedLines.size()), lines);
+	}
+
+	/**
+	 * The first line fills all but one character of the reader's buffer before a surrogate pair,
+	 * so the pair is decoded by a read of a single character; this is checked both in the last
+	 * window of the file and in an earlier window
+	 * 
+	 * @throws IOException
+	 */
+	@Test(timeout = 60000)
+	public void testSurrogatePairAtBufferBoundary() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 65535; i++) {
+			content.append('a');
+		}
+		content.append("\ud835\udc9cbcde\nline#2\n");
+		for (int i = 0; i < 1000; i++) {
+			content.append("more lines " + i + "\n");
+		}
+		File file = folder.newFile("surrogates.utf8");
+		FileUtils.writeStringToFile(file, content.toString(), CharacterEncoding.UTF_8.getCharacterSetName());
+		List<Line> expectedLines = readAllLines(new StreamLineReader(file, CharacterEncoding.UTF_8, null));
+		assertEquals(1002, expectedLines.size());
+		assertEquals(65541, expectedLines.get(0).getText().length());
+		assertLinesEqual(expectedLines, readAllLines(new MappedFileLineReader(file, CharacterEncoding.UTF_8, null)));
+		assertLinesEqual(expectedLines, readAllLines(new MappedFileLineReader(file, CharacterEncoding.UTF_8, null,
+				LinePosition.START, 70000)));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File emptyFile = folder.newFile("empty.utf8");
+		MappedFileLineReader reader = new MappedFileLineReader(emptyFile, SampleUtf8File.ENCODING, null);
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+}
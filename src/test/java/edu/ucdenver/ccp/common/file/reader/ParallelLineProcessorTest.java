@@ -0,0 +1,162 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static edu.ucdenver.ccp.common.file.reader.LineTestUtil.assertLinesEqual;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.reader.ParallelLineProcessor.ChunkProcessor;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ParallelLineProcessorTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	/**
+	 * @return a sample file with multi-byte and astral characters, a mix of line terminators, a
+	 *         comment line and an unterminated final line
+	 * @throws IOException
+	 */
+	private File populateSampleFile() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		String[] terminators = new String[] { "\n", "\r\n", "\r" };
+		for (int i = 0; i < 200; i++) {
+			if (i % 17 == 0) {
+				sb.append("#comment ").append(i);
+			} else if (i % 5 == 0) {
+				sb.append("line\u00df ").append(i).append(" \ud835\udc9c");
+			} else {
+				sb.append("line ").append(i);
+			}
+			sb.append(terminators[i % terminators.length]);
+		}
+		sb.append("last line");
+		File file = folder.newFile("sample.utf8");
+		FileWriterUtil.printLines(Collections.singletonList(sb.toString()), file, ENCODING);
+		return file;
+	}
+
+	private List<Line> readSequentially(File file) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		StreamLineReader reader = new StreamLineReader(file, ENCODING, "#");
+		for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	/**
+	 * Splits the sample file using a range of chunk counts (so chunk boundaries fall at many
+	 * different places) and checks that the concatenated chunks match a sequential read
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testChunksMatchSequentialRead() throws IOException {
+		File file = populateSampleFile();
+		List<Line> expectedLines = readSequentially(file);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int chunkCount = 1; chunkCount < 60; chunkCount++) {
+				List<List<Line>> chunkLines = ParallelLineProcessor.processChunks(file, ENCODING, "#", chunkCount,
+						executor, new ChunkProcessor<List<Line>>() {
+							@Override
+							public List<Line> process(LineReader<Line> reader) throws IOException {
+								List<Line> lines = new ArrayList<Line>();
+								for (Line line = reader.readLine(); line != null; line = reader.readLine()) {
+									lines.add(line);
+								}
+								return lines;
+							}
+						});
+				List<Line> lines = new ArrayList<Line>();
+				for (List<Line> chunk : chunkLines) {
+					lines.addAll(chunk);
+				}
+				assertLinesEqual(expectedLines, lines);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testForEachLine() throws IOException {
+		File file = populateSampleFile();
+		List<Line> expectedLines = readSequentially(file);
+		final List<Line> lines = Collections.synchronizedList(new ArrayList<Line>());
+		ParallelLineProcessor.forEachLine(file, ENCODING, "#", new Consumer<Line>() {
+			@Override
+			public void accept(Line line) {
+				lines.add(line);
+			}
+		});
+		Collections.sort(lines, new Comparator<Line>() {
+			@Override
+			public int compare(Line line1, Line line2) {
+				return Long.compare(line1.getLineNumber(), line2.getLineNumber());
+			}
+		});
+		assertLinesEqual(expectedLines, lines);
+	}
+
+	@Test
+	public void testSplitEmptyFile() throws IOException {
+		File file = folder.newFile("empty.utf8");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			List<LineChunk> chunks = ParallelLineProcessor.splitIntoChunks(file, ENCODING, 8, executor);
+			assertEquals(1, chunks.size());
+			assertEquals(0, chunks.get(0).getByteLength());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static edu.ucdenver.ccp.common.file.reader.LineTestUtil.assertLinesEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class ReadAheadLineReaderTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private File createFile(int lineCount) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < lineCount; i++) {
+			lines.add((i % 10 == 0 ? "#" : "") + "line\u00df" + i);
+		}
+		File file = folder.newFile("sample.utf8");
+		FileWriterUtil.printLines(lines, file, ENCODING);
+		return file;
+	}
+
+	@Test
+	public void testLinesMatchWrappedReader() throws IOException {
+		File file = createFile(1000);
+		StreamLineReader expectedReader = new StreamLineReader(file, ENCODING, "#");
+		/* a small batch size and queue capacity force the background thread to block */
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(new StreamLineReader(file, ENCODING, "#"),
+				7, 2, null);
+		assertLinesEqual(expectedReader, reader);
+	}
+
+	@Test
+	public void testLinesMatchWrappedReaderUsingExecutor() throws IOException {
+		File file = createFile(1000);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			StreamLineReader expectedReader = new StreamLineReader(file, ENCODING, "#");
+			ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(new StreamLineReader(file, ENCODING,
+					"#"), 100, 3, executor);
+			assertLinesEqual(expectedReader, reader);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailureIsRethrownAfterPrecedingLines() throws IOException {
+		final IOException exception = new IOException("failure");
+		LineReader<Line> failingReader = new LineReader<Line>(null) {
+			private int count = 0;
+
+			@Override
+			protected Line getNextLine() throws IOException {
+				if (count == 3)
+					throw exception;
+				return new Line("line" + count, LineTerminator.LF, 0, 0, count++, 0);
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(failingReader, 2, 1, null);
+		assertEquals("line0", reader.readLine().getText());
+		assertEquals("line1", reader.readLine().getText());
+		assertEquals("line2", reader.readLine().getText());
+		try {
+			reader.readLine();
+			fail("The exception thrown by the wrapped reader should have been rethrown.");
+		} catch (IOException e) {
+			assertSame(exception, e);
+		}
+		reader.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseBeforeExhausted() throws IOException {
+		final boolean[] closed = new boolean[1];
+		/* an endless reader; the background thread is blocked on the full queue when closed */
+		LineReader<Line> endlessReader = new LineReader<Line>(null) {
+			private long count = 0;
+
+			@Override
+			protected Line getNextLine() {
+				return new Line("line", LineTerminator.LF, 0, 0, count++, 0);
+			}
+
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(endlessReader, 10, 2, null);
+		assertEquals(0, reader.readLine().getLineNumber());
+		assertEquals(1, reader.readLine().getLineNumber());
+		reader.close();
+		assertTrue(closed[0]);
+		assertNull(reader.readLine());
+	}
+
+}
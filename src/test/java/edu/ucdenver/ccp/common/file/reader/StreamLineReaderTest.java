@@ -35,9 +35,13 @@ package edu.ucdenver.ccp.common.file.reader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -130,15 +134,172 @@ public class StreamLineReaderTest extends DefaultTestCase {
 		assertEquals("Terminator on third line returned should be LF", LineTerminator.LF, line.getLineTerminator());
 	}
 
+	/**
+	 * Tests that byte offsets are computed using the configured encoding, include line terminators,
+	 * and count the lines that were skipped
+	 * 
+	 * @throws IOException
+	 */
+	@Test
 	public void testByteOffset() throws IOException {
 		File sampleFile = populateSampleFile();
 		StreamLineReader flr = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
 		Line line = flr.readLine();
-		assertEquals("Byte offset for first line returned should be eight", 8, line.getByteOffset());
+		assertEquals("Byte offset for first line returned should be seven", 7, line.getByteOffset());
 		line = flr.readLine();
 		assertEquals("Byte offset for second line returned should be 21", 21, line.getByteOffset());
 		line = flr.readLine();
-		assertEquals("Byte offset for second line returned should be 28", 28, line.getByteOffset());
+		assertEquals("Byte offset for third line returned should be 29 (\u00df is two bytes in UTF-8)", 29,
+				line.getByteOffset());
+	}
+
+	/**
+	 * Tests that character offsets include the lines that were skipped
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCharacterOffsetWhenSkippingLines() throws IOException {
+		File sampleFile = populateSampleFile();
+		StreamLineReader flr = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
+		assertEquals(7, flr.readLine().getCharacterOffset());
+		assertEquals(21, flr.readLine().getCharacterOffset());
+		assertEquals(28, flr.readLine().getCharacterOffset());
+	}
+
+	/**
+	 * Tests that a line longer than the internal character buffer is returned intact
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLineLongerThanBuffer() throws IOException {
+		char[] longText = new char[200000];
+		Arrays.fill(longText, 'x');
+		String longLine = new String(longText);
+		String input = "first\n" + longLine + "\r\nlast";
+		StreamLineReader flr = new StreamLineReader(new ByteArrayInputStream(input.getBytes("UTF-8")), ENCODING,
+				null);
+		Line line = flr.readLine();
+		assertEquals("first", line.getText());
+		line = flr.readLine();
+		assertEquals(longLine, line.getText());
+		assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+		assertEquals(6, line.getCharacterOffset());
+		line = flr.readLine();
+		assertEquals("last", line.getText());
+		assertEquals(LineTerminator.LF, line.getLineTerminator());
+		assertEquals(6 + longLine.length() + 2, line.getCharacterOffset());
+		assertNull(flr.readLine());
+		flr.close();
+	}
+
+	/**
+	 * Tests that line terminators are detected correctly when the underlying stream delivers one
+	 * byte at a time, i.e. when a CRLF pair is split across reads
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLineTerminatorsWithTricklingStream() throws IOException {
+		String input = "a\r\nb\rc\n\r\nd\r";
+		InputStream trickle = new ByteArrayInputStream(input.getBytes("UTF-8")) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		};
+		StreamLineReader flr = new StreamLineReader(trickle, ENCODING, null);
+		String[] expectedText = new String[] { "a", "b", "c", "", "d" };
+		LineTerminator[] expectedTerminators = new LineTerminator[] { LineTerminator.CRLF, LineTerminator.CR,
+				LineTerminator.LF, LineTerminator.CRLF, LineTerminator.CR };
+		long[] expectedOffsets = new long[] { 0, 3, 5, 7, 9 };
+		for (int i = 0; i < expectedText.length; i++) {
+			Line line = flr.readLine();
+			assertEquals(expectedText[i], line.getText());
+			assertEquals(expectedTerminators[i], line.getLineTerminator());
+			assertEquals(expectedOffsets[i], line.getCharacterOffset());
+			assertEquals(i, line.getLineNumber());
+		}
+		assertNull(flr.readLine());
+		flr.close();
+	}
+
+	@Test
+	public void testReadLineViewMatchesReadLine() throws IOException {
+		File sampleFile = populateSampleFile();
+		StreamLineReader lineReader = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
+		StreamLineReader viewReader = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
+		LineView firstView = null;
+		Line line;
+		while ((line = lineReader.readLine()) != null) {
+			LineView view = viewReader.readLineView();
+			if (firstView == null)
+				firstView = view;
+			assertSame("the view should be reused", firstView, view);
+			assertEquals(line.getText(), view.toString());
+			assertEquals(line.getLineTerminator(), view.getLineTerminator());
+			assertEquals(line.getLineNumber(), view.getLineNumber());
+			assertEquals(line.getCharacterOffset(), view.getCharacterOffset());
+			assertEquals(line.getCodePointOffset(), view.getCodePointOffset());
+			assertEquals(line.getByteOffset(), view.getByteOffset());
+		}
+		assertNull(viewReader.readLineView());
+		lineReader.close();
+		viewReader.close();
+	}
+
+	@Test
+	public void testLineViewCharSequence() throws IOException {
+		InputStream is = new ByteArrayInputStream("a\tbc\td\n".getBytes("UTF-8"));
+		StreamLineReader reader = new StreamLineReader(is, ENCODING, null);
+		LineView view = reader.readLineView();
+		assertEquals(6, view.length());
+		assertEquals('b', view.charAt(2));
+		assertEquals(1, view.indexOf('\t', 0));
+		assertEquals(4, view.indexOf('\t', 2));
+		assertEquals(-1, view.indexOf('x', 0));
+		assertEquals("bc", view.subSequence(2, 4).toString());
+		assertEquals("a\tbc\td", view.toLine().getText());
+		reader.close();
+	}
+
+	@Test
+	public void testSkipLineIgnoresSurroundingWhitespace() throws IOException {
+		InputStream is = new ByteArrayInputStream("  # comment\n#comment\n# \nline\n".getBytes("UTF-8"));
+		StreamLineReader reader = new StreamLineReader(is, ENCODING, "# ");
+		assertEquals("#comment", reader.readLine().getText());
+		/* as with String.trim(), trailing whitespace is not considered part of the prefix */
+		assertEquals("# ", reader.readLine().getText());
+		assertEquals("line", reader.readLine().getText());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testOffsetTracking() throws IOException {
+		/* the first line contains a supplementary character, i.e. two chars but a single code point */
+		String text = "a\ud83d\ude00b\r\nc\n";
+		assertOffsets(text, OffsetTracking.BYTE, 6, 5, 8);
+		assertOffsets(text, OffsetTracking.CODE_POINT, 6, 5, -1);
+		assertOffsets(text, OffsetTracking.CHARACTER, 6, -1, -1);
+		assertOffsets(text, OffsetTracking.NONE, -1, -1, -1);
+	}
+
+	private void assertOffsets(String text, OffsetTracking offsetTracking, long characterOffset,
+			long codePointOffset, long byteOffset) throws IOException {
+		InputStream is = new ByteArrayInputStream(text.getBytes("UTF-8"));
+		StreamLineReader reader = new StreamLineReader(is, ENCODING, null, LinePosition.START, offsetTracking);
+		Line firstLine = reader.readLine();
+		assertEquals(offsetTracking.tracksCharacterOffsets() ? 0 : -1, firstLine.getCharacterOffset());
+		Line secondLine = reader.readLine();
+		assertEquals("c", secondLine.getText());
+		assertEquals(1, secondLine.getLineNumber());
+		assertEquals(characterOffset, secondLine.getCharacterOffset());
+		assertEquals(codePointOffset, secondLine.getCodePointOffset());
+		assertEquals(byteOffset, secondLine.getByteOffset());
+		assertNull(reader.readLine());
+		reader.close();
 	}
 
 	/**
@@ -0,0 +1,182 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assume;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.io.ClassPathUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class StreamingExcelFileLineReaderTest extends DefaultTestCase {
+
+	@Test
+	public void testReadXlsxFile() throws IOException {
+		InputStream xlsxStream = ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.xlsx");
+		StreamingExcelFileLineReader lineReader = new StreamingExcelFileLineReader(xlsxStream, null);
+		assertLine(lineReader.readLine(), "a\tb\tc\td", 2, 0);
+		assertLine(lineReader.readLine(), "a\t\tc\td", 3, 8);
+		assertLine(lineReader.readLine(), "\tb\tc\td", 4, 15);
+		assertLine(lineReader.readLine(), "\t\tc\t", 5, 22);
+		assertNull(lineReader.readLine());
+		lineReader.close();
+	}
+
+	@Test
+	public void testMatchesExcelFileLineReader() throws IOException {
+		File xlsxFile = folder.newFile("sample.xlsx");
+		FileUtils.copyInputStreamToFile(ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.xlsx"),
+				xlsxFile);
+		ExcelFileLineReader expectedReader = new ExcelFileLineReader(xlsxFile, null);
+		StreamingExcelFileLineReader lineReader = new StreamingExcelFileLineReader(xlsxFile, null);
+		Line expected;
+		while ((expected = expectedReader.readLine()) != null) {
+			Line line = lineReader.readLine();
+			assertEquals(expected.getText(), line.getText());
+			assertEquals(expected.getLineNumber(), line.getLineNumber());
+			assertEquals(expected.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expected.getCharacterOffset(), line.getCharacterOffset());
+		}
+		assertNull(lineReader.readLine());
+		expectedReader.close();
+		lineReader.close();
+	}
+
+	@Test
+	public void testCellTypesMissingRowsAndSkippedLines() throws IOException {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		Sheet sheet = workbook.createSheet("data");
+		Row header = sheet.createRow(0);
+		header.createCell(0).setCellValue("h1");
+		header.createCell(1).setCellValue("h2");
+		header.createCell(2).setCellValue("h3");
+		Row row = sheet.createRow(1);
+		row.createCell(0).setCellValue("x");
+		row.createCell(1).setCellValue(1.5);
+		row.createCell(2).setCellValue(true);
+		/* cells beyond the header columns are ignored */
+		row.createCell(4).setCellValue("ignored");
+		sheet.createRow(3).createCell(0).setCellValue("#comment");
+		row = sheet.createRow(4);
+		row.createCell(0).setCellValue("\u00df");
+		row.createCell(2).setCellValue("z");
+		File xlsxFile = new File(folder.getRoot(), "generated.xlsx");
+		OutputStream out = new FileOutputStream(xlsxFile);
+		try {
+			workbook.write(out);
+		} finally {
+			out.close();
+			workbook.close();
+		}
+
+		StreamingExcelFileLineReader lineReader = new StreamingExcelFileLineReader(xlsxFile, "#");
+		assertLine(lineReader.readLine(), "x\t1.5\tTRUE", 2, 0);
+		/* row 3 is absent from the sheet */
+		assertLine(lineReader.readLine(), "\t\t", 3, 11);
+		/* row 4 is skipped */
+		Line line = lineReader.readLine();
+		assertLine(line, "\u00df\t\tz", 5, 25);
+		assertEquals(25, line.getCharacterOffset());
+		assertNull(lineReader.readLine());
+		lineReader.close();
+	}
+
+	/**
+	 * @return the number of file descriptors of this process that refer to the input file
+	 */
+	private static int countOpenDescriptors(File file) throws IOException {
+		int count = 0;
+		for (File descriptor : new File("/proc/self/fd").listFiles()) {
+			try {
+				if (Files.readSymbolicLink(descriptor.toPath()).equals(file.getAbsoluteFile().toPath()))
+					count++;
+			} catch (IOException e) {
+				/* the descriptor was closed while listing */
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testFileIsClosedIfHeaderRowIsMissing() throws IOException {
+		Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		workbook.createSheet("data").createRow(1).createCell(0).setCellValue("no header");
+		File xlsxFile = new File(folder.getRoot(), "noheader.xlsx");
+		OutputStream out = new FileOutputStream(xlsxFile);
+		try {
+			workbook.write(out);
+		} finally {
+			out.close();
+			workbook.close();
+		}
+		try {
+			new StreamingExcelFileLineReader(xlsxFile, null);
+			fail("The missing header row should have been reported.");
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+		assertEquals(0, countOpenDescriptors(xlsxFile));
+	}
+
+	@Test
+	public void testGetColumnIndex() {
+		assertEquals(0, StreamingExcelFileLineReader.getColumnIndex("A1"));
+		assertEquals(25, StreamingExcelFileLineReader.getColumnIndex("Z10"));
+		assertEquals(26, StreamingExcelFileLineReader.getColumnIndex("AA3"));
+		assertEquals(731, StreamingExcelFileLineReader.getColumnIndex("ABD7"));
+	}
+
+	private static void assertLine(Line line, String expectedText, long expectedLineNumber, long expectedByteOffset) {
+		assertEquals(expectedText, line.getText());
+		assertEquals(expectedLineNumber, line.getLineNumber());
+		assertEquals(expectedByteOffset, line.getByteOffset());
+	}
+
+}
@@ -0,0 +1,184 @@
+package edu.ucdenver.ccp.common.string;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class DelimitedLineParserTest extends DefaultTestCase {
+
+	@Test
+	public void testGetLiteral() {
+		assertEquals("\t", DelimitedLineParser.getLiteral("\t"));
+		assertEquals("\t", DelimitedLineParser.getLiteral("\\t"));
+		assertEquals(",", DelimitedLineParser.getLiteral(","));
+		assertEquals("|", DelimitedLineParser.getLiteral("\\|"));
+		assertEquals("::", DelimitedLineParser.getLiteral("::"));
+		assertEquals("a.b", DelimitedLineParser.getLiteral("\\Qa.b\\E"));
+		assertNull(DelimitedLineParser.getLiteral("\\s+"));
+		assertNull(DelimitedLineParser.getLiteral("|"));
+		assertNull(DelimitedLineParser.getLiteral("[,;]"));
+		assertNull(DelimitedLineParser.getLiteral("\\d"));
+	}
+
+	@Test
+	public void testLiteralDelimiterMatchesStringSplit() {
+		String[] lines = new String[] { "", "a", "a\tb", "\ta\t\tb\t", "\t\t", "a b\tc d\t" };
+		DelimitedLineParser parser = new DelimitedLineParser("\t");
+		assertTrue(parser.isLiteral());
+		for (String line : lines) {
+			assertArrayEquals(line, line.split("\t", -1), parser.parse(line));
+		}
+		parser = new DelimitedLineParser("::");
+		assertTrue(parser.isLiteral());
+		for (String line : new String[] { "a::b", "::a:::b::", ":", "a" }) {
+			assertArrayEquals(line, line.split("::", -1), parser.parse(line));
+		}
+	}
+
+	@Test
+	public void testRegexDelimiterMatchesStringSplit() {
+		DelimitedLineParser parser = new DelimitedLineParser("\\s*[,;]\\s*");
+		assertFalse(parser.isLiteral());
+		for (String line : new String[] { "a , b;c", ",a,", "a", "", " ; " }) {
+			assertArrayEquals(line, line.split("\\s*[,;]\\s*", -1), parser.parse(line));
+		}
+		parser = new DelimitedLineParser("(?=b)");
+		for (String line : new String[] { "abab", "bab", "" }) {
+			assertArrayEquals(line, line.split("(?=b)", -1), parser.parse(line));
+		}
+	}
+
+	@Test
+	public void testFieldEnclosure() {
+		DelimitedLineParser parser = new DelimitedLineParser(",", "\"", true, false);
+		assertTrue(parser.isLiteral());
+		assertArrayEquals(new String[] { "a", "\"b,c\"", "d" }, parser.parse("a, \"b,c\" ,d"));
+		assertArrayEquals(new String[] { "a", "x\"b,c\"y", "" }, parser.parse("a,x\"b,c\"y,"));
+		assertArrayEquals(new String[] { "\"\"", "\"\"" }, parser.parse("\"\",\"\""));
+	}
+
+	@Test
+	public void testUnmatchedFieldEnclosureIsLiteral() {
+		DelimitedLineParser parser = new DelimitedLineParser(",", "\"", true, false);
+		assertArrayEquals(new String[] { "\"a", "b" }, parser.parse("\"a,b"));
+		assertArrayEquals(new String[] { "\"a,b\"", "\"c", "d" }, parser.parse("\"a,b\",\"c,d"));
+	}
+
+	@Test
+	public void testRemoveFieldEnclosures() {
+		DelimitedLineParser parser = new DelimitedLineParser(",", ":", false, true);
+		assertArrayEquals(new String[] { "1", "2", "3" }, parser.parse(":1:,:2:,:3:"));
+		assertArrayEquals(new String[] { "1,2", ":3" }, parser.parse(":1,2:,:3"));
+	}
+
+	@Test
+	public void testRegexFieldEnclosure() {
+		DelimitedLineParser parser = new DelimitedLineParser("\\t", "\\*+", true, true);
+		assertFalse(parser.isLiteral());
+		assertArrayEquals(new String[] { "a\tb", "c" }, parser.parse("**a\tb**\tc"));
+		parser = new DelimitedLineParser("\\s*,\\s*", "'", true, true);
+		assertFalse(parser.isLiteral());
+		assertArrayEquals(new String[] { "a", "b, c", "d" }, parser.parse("a , 'b, c' , d"));
+	}
+
+	@Test
+	public void testContainsFieldEnclosure() {
+		assertTrue(new DelimitedLineParser(",", "\"", true, false).containsFieldEnclosure("a,\"b"));
+		assertFalse(new DelimitedLineParser(",", "\"", true, false).containsFieldEnclosure("a,b"));
+		assertTrue(new DelimitedLineParser(",", "\\*+", true, false).containsFieldEnclosure("a,*b"));
+		assertFalse(new DelimitedLineParser(",").containsFieldEnclosure("a,\"b"));
+	}
+
+	@Test
+	public void testParseColumns() {
+		DelimitedLineParser parser = new DelimitedLineParser("\t");
+		String line = "c0\tc1\tc2\tc3\tc4";
+		assertArrayEquals(new String[] { "c0", "c2" }, parser.parseColumns(line, 0, 2));
+		assertArrayEquals(new String[] { "c4", "c1", "c4" }, parser.parseColumns(line, 4, 1, 4));
+		assertArrayEquals(parser.parse(line), parser.parseColumns(line));
+		parser = new DelimitedLineParser("\\s*,\\s*", "'", true, true);
+		assertArrayEquals(new String[] { "b, c" }, parser.parseColumns("a , 'b, c' , d", 1));
+	}
+
+	@Test
+	public void testParseColumnsReportsShortLine() {
+		DelimitedLineParser parser = new DelimitedLineParser(",");
+		try {
+			parser.parseColumns("a,b,c", 0, 3);
+			fail("Column 3 does not exist");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			assertEquals("Column index 3 does not exist on line. There are only 3 columns on line: a,b,c",
+					e.getMessage());
+		}
+		try {
+			parser.parseColumns("a,b,c", -1);
+			fail("Column -1 does not exist");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			assertEquals("Column index -1 does not exist on line. There are only 3 columns on line: a,b,c",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLocateColumn() {
+		int[] bounds = new int[2];
+		new DelimitedLineParser(",").locateColumn("a,bb,ccc", 1, bounds);
+		assertArrayEquals(new int[] { 2, 4 }, bounds);
+		String line = "x, \"y,z\" ,w";
+		new DelimitedLineParser(",", "\"", true, true).locateColumn(line, 1, bounds);
+		assertEquals("y,z", line.substring(bounds[0], bounds[1]));
+		new DelimitedLineParser(",", "\"+", true, true).locateColumn(line, 1, bounds);
+		assertEquals("y,z", line.substring(bounds[0], bounds[1]));
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testLocateMissingColumn() {
+		new DelimitedLineParser(",").locateColumn("a,b", 2, new int[2]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyDelimiter() {
+		new DelimitedLineParser("");
+	}
+
+}
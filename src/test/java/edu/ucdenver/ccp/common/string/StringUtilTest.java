@@ -494,6 +494,22 @@ public class StringUtilTest extends DefaultTestCase {
 				StringUtil.splitWithFieldEnclosure(inputStr, StringConstants.COMMA, StringConstants.QUOTATION_MARK));
 	}
 
+	@Test
+	public void testSplitColumnsWithFieldEnclosure() {
+		String inputStr = "J Clin Invest,0021-9738,1558-8238,1940,19,\"Index, vol.1-17\",1,10.1172/JCI101100";
+		assertArrayEquals(new String[] { "Index, vol.1-17", "J Clin Invest" }, StringUtil
+				.splitColumnsWithFieldEnclosure(inputStr, StringConstants.COMMA, StringConstants.QUOTATION_MARK,
+						RemoveFieldEnclosures.TRUE, 5, 0));
+		/* parsers evicted from the cache are rebuilt on demand */
+		for (int i = 1; i <= 300; i++) {
+			String delimiter = "x{" + i + "}";
+			assertArrayEquals(new String[] { "b" }, StringUtil.splitColumnsWithFieldEnclosure("a"
+					+ StringUtil.createRepeatingString("x", i) + "b", delimiter, null, RemoveFieldEnclosures.FALSE, 1));
+		}
+		assertArrayEquals(new String[] { "19" }, StringUtil.splitColumnsWithFieldEnclosure(inputStr,
+				StringConstants.COMMA, StringConstants.QUOTATION_MARK, RemoveFieldEnclosures.TRUE, 4));
+	}
+
 	@Test
 	public void testSplitWithFieldDelimiter_IncludeADelimiterInColumn() {
 		String inputStr = "J Clin Invest,0021-9738,1558-8238,1940,19,\"Index, vol.1-17\"\",1,10.1172/JCI101100,PMC548872,0,,live";